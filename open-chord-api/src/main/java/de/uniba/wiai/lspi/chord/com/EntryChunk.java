@@ -0,0 +1,43 @@
+package de.uniba.wiai.lspi.chord.com;
+
+import java.io.Serializable;
+import java.util.List;
+
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Result of {@link Node#copyEntries(ID, ID, int)}: a bounded part of the entries of an interval of IDs, in the order of their IDs, together with the cursor
+ * from which the next chunk is requested.
+ *
+ * @version 1.0.5
+ */
+@Getter
+public class EntryChunk implements Serializable {
+
+	private static final long serialVersionUID = 3906174520431775841L;
+
+	@NonNull
+	private List<Entry> entries;
+
+	/**
+	 * ID of the last entries contained in this chunk, which is the lower bound of the next chunk, or <code>null</code> if this is the last chunk of the
+	 * interval.
+	 */
+	private ID nextCursor;
+
+	public EntryChunk(@NonNull List<Entry> entries, ID nextCursor) {
+		this.entries = entries;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * @return <code>true</code> if no further chunks of the interval follow.
+	 */
+	public boolean isLast() {
+		return this.nextCursor == null;
+	}
+
+}
@@ -0,0 +1,49 @@
+package de.uniba.wiai.lspi.chord.com;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Reports that a node has joined or left the network. Membership events are piggybacked on stabilization traffic (see
+ * {@link Node#stabilize(Node, java.util.List, boolean, ReplicaSummary)}) in order to keep a table of all members of the network on every node.
+ *
+ * @version 1.0.5
+ */
+@Getter
+@ToString
+public class MembershipEvent {
+
+	/**
+	 * Kind of a membership event.
+	 */
+	public enum Type {
+		/**
+		 * The node has joined the network or has been observed to be alive.
+		 */
+		JOINED,
+		/**
+		 * The node has left the network or has been observed to have failed.
+		 */
+		LEFT
+	}
+
+	private final Node node;
+	private final Type type;
+
+	/**
+	 * Incarnation of the node the event concerns. Incarnation numbers are assigned by the node itself when it joins and increased when it learns that it is
+	 * believed to have left, so they do not depend on the clocks of the nodes reporting the event. Of two events concerning the same node, the one with the
+	 * greater incarnation supersedes the other one; for the same incarnation, {@link Type#LEFT} supersedes {@link Type#JOINED}.
+	 */
+	private final long incarnation;
+
+	public MembershipEvent(Node node, Type type, long incarnation) {
+		if (node == null || type == null) {
+			throw new NullPointerException("Neither node nor type may be null!");
+		}
+		this.node = node;
+		this.type = type;
+		this.incarnation = incarnation;
+	}
+
+}
@@ -1,5 +1,6 @@
 package de.uniba.wiai.lspi.chord.com;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -48,6 +49,17 @@ public abstract class Node {
 	 */
 	public abstract void ping() throws CommunicationException;
 
+	/**
+	 * Checks whether this node is alive, at the lowest cost the protocol allows. Used by failure detection, which only needs a sign of life and no result.
+	 * Protocols without a cheaper mechanism {@link #ping() ping} the node.
+	 *
+	 * @throws CommunicationException
+	 *             Thrown if the node could not be reached.
+	 */
+	public void probe() throws CommunicationException {
+		this.ping();
+	}
+
 	/**
 	 * Returns the Chord node which is responsible for the given key.
 	 *
@@ -80,6 +92,76 @@ public abstract class Node {
 	 */
 	public abstract ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) throws CommunicationException;
 
+	/**
+	 * Combines {@link #notify(Node)} with the exchange of membership events and of a summary of the replicas stored at this node in a single invocation, which
+	 * also serves as proof of liveness of the invoking node. Entries the invoking node has become responsible for are not returned, but have to be copied with
+	 * {@link #copyEntries(ID, ID, int)}. Protocols that are not able to transport the combined message fall back to {@link #notify(Node)}; they return no
+	 * events and no replica summary.
+	 *
+	 * @param potentialPredecessor
+	 *            Remote node which invokes this method
+	 * @param events
+	 *            Membership events known to the invoking node.
+	 * @param fullMembership
+	 *            If <code>true</code>, the returned events describe all members known to this node instead of only recent events.
+	 * @param replicaSummary
+	 *            Summary of the entries the invoking node is responsible for, or <code>null</code>.
+	 * @return References to predecessor and successors, the membership events known to this node, and the summary of the replicas stored at this node for
+	 *         the interval of <code>replicaSummary</code>.
+	 * @throws CommunicationException
+	 */
+	public StabilizationResult stabilize(Node potentialPredecessor, List<MembershipEvent> events, boolean fullMembership, ReplicaSummary replicaSummary)
+			throws CommunicationException {
+		return new StabilizationResult(this.notify(potentialPredecessor), new ArrayList<MembershipEvent>(), null);
+	}
+
+	/**
+	 * Exchanges membership events with this node independently of stabilization. Nodes invoke it on randomly chosen members, so that events spread by gossip
+	 * in a logarithmic number of rounds instead of travelling along the ring one hop per round. Protocols that are not able to transport membership events
+	 * return no events.
+	 *
+	 * @param events
+	 *            Membership events known to the invoking node.
+	 * @return Membership events known to this node.
+	 * @throws CommunicationException
+	 *             Thrown if an unresolvable communication failure occurs.
+	 */
+	public List<MembershipEvent> exchangeEvents(List<MembershipEvent> events) throws CommunicationException {
+		return new ArrayList<MembershipEvent>();
+	}
+
+	/**
+	 * Tells whether this node answers {@link #copyEntries(ID, ID, int)}. Protocols that do not support chunked transfers return <code>false</code>; entries
+	 * then have to be copied with {@link #notifyAndCopyEntries(Node)}.
+	 *
+	 * @return <code>true</code> if entries can be copied in chunks from this node.
+	 * @throws CommunicationException
+	 *             Thrown if the support could not be determined, because the node could not be reached.
+	 */
+	public boolean supportsCopyEntries() throws CommunicationException {
+		return false;
+	}
+
+	/**
+	 * Requests a chunk of the entries stored at this node with IDs in the interval from <code>fromID</code> (exclusive) to <code>toID</code> (inclusive), in
+	 * the order of their IDs on the ring. The complete interval is transferred by repeated invocations, each starting at the cursor returned by the previous
+	 * one, so that neither node has to hold the entries of the whole interval in a single message. An interrupted transfer can be resumed at the last cursor.
+	 * May only be invoked if {@link #supportsCopyEntries()} returns <code>true</code>.
+	 *
+	 * @param fromID
+	 *            Lower bound of IDs, or cursor returned by the previous chunk; entries with this ID are NOT included.
+	 * @param toID
+	 *            Upper bound of IDs; entries with this ID are included.
+	 * @param maxEntries
+	 *            Number of entries after which the chunk is closed. Entries with the same ID are never split, so a chunk may exceed this number.
+	 * @return Chunk of entries and cursor of the next chunk.
+	 * @throws CommunicationException
+	 *             Thrown if an unresolvable communication failure occurs, or if the protocol does not support chunked transfers.
+	 */
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException {
+		throw new CommunicationException("Chunked transfer of entries is not supported by " + this.getClass().getName() + "!");
+	}
+
 	/**
 	 * Stores the given object under the given ID.
 	 *
@@ -0,0 +1,26 @@
+package de.uniba.wiai.lspi.chord.com;
+
+import lombok.Getter;
+
+/**
+ * Thrown if a remote node has rejected an invocation because it is overloaded. The invocation has not been executed and may be repeated after
+ * {@link #getRetryAfter()} milliseconds.
+ *
+ * @version 1.0.5
+ */
+public class OverloadedException extends CommunicationException {
+
+	private static final long serialVersionUID = 4829180533766254930L;
+
+	/**
+	 * Time in milliseconds after which the invocation may be repeated.
+	 */
+	@Getter
+	private final long retryAfter;
+
+	public OverloadedException(String message, long retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+}
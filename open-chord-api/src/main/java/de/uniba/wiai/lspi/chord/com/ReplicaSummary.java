@@ -0,0 +1,50 @@
+package de.uniba.wiai.lspi.chord.com;
+
+import java.io.Serializable;
+
+import de.uniba.wiai.lspi.chord.data.ID;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * Summarizes the entries a node stores for an interval of IDs, excluding the lower and including the upper bound, by their number and a digest of their IDs.
+ * Is exchanged during stabilization (see {@link Node#stabilize(Node, java.util.List, boolean, ReplicaSummary)}) to detect replicas missing at the successor
+ * without transferring the entries themselves.
+ *
+ * @version 1.0.5
+ */
+@Getter
+@ToString
+public class ReplicaSummary implements Serializable {
+
+	private static final long serialVersionUID = 4718402255176436137L;
+
+	@NonNull
+	private ID from;
+
+	@NonNull
+	private ID to;
+
+	private int count;
+
+	private long digest;
+
+	public ReplicaSummary(@NonNull ID from, @NonNull ID to, int count, long digest) {
+		this.from = from;
+		this.to = to;
+		this.count = count;
+		this.digest = digest;
+	}
+
+	/**
+	 * Determines whether the given summary describes the same entries as this one.
+	 *
+	 * @param other
+	 * @return <code>true</code> if number and digest of both summaries match.
+	 */
+	public boolean matches(ReplicaSummary other) {
+		return other != null && this.count == other.count && this.digest == other.digest;
+	}
+
+}
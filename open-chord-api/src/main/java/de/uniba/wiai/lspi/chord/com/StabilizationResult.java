@@ -0,0 +1,36 @@
+package de.uniba.wiai.lspi.chord.com;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Result of {@link Node#stabilize(Node, List, boolean, ReplicaSummary)}.
+ *
+ * @version 1.0.5
+ */
+@Getter
+public class StabilizationResult {
+
+	/**
+	 * Predecessor of the invoked node, followed by its successor list.
+	 */
+	private List<Node> references;
+
+	/**
+	 * Membership events known to the invoked node.
+	 */
+	private List<MembershipEvent> events;
+
+	/**
+	 * Summary of the replicas the invoked node stores for the interval requested by the invoking node, or <code>null</code> if none was requested.
+	 */
+	private ReplicaSummary replicaSummary;
+
+	public StabilizationResult(List<Node> references, List<MembershipEvent> events, ReplicaSummary replicaSummary) {
+		this.references = references;
+		this.events = events;
+		this.replicaSummary = replicaSummary;
+	}
+
+}
@@ -1,6 +1,7 @@
 package de.uniba.wiai.lspi.chord.data;
 
 import java.io.Serializable;
+import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -81,6 +82,28 @@ public class ID implements Comparable<ID>, Serializable {
 		return toBinaryString(payload.length);
 	}
 
+	/**
+	 * Returns the unsigned numeric value of this ID.
+	 *
+	 * @return Non-negative value of this ID.
+	 */
+	public BigInteger toBigInteger() {
+		return new BigInteger(1, payload);
+	}
+
+	/**
+	 * Calculates the clockwise distance from this ID to the given ID on the identifier ring, i.e. <code>(to - this) mod 2^length</code>.
+	 *
+	 * @param to
+	 *            ID to measure the distance to. Must have the same length as this ID.
+	 * @return Clockwise distance from this ID to <code>to</code>.
+	 */
+	public BigInteger distanceTo(ID to) {
+		if (getBitLength() != to.getBitLength())
+			throw new ClassCastException(getBitLength() + " != " + to.getBitLength());
+		return to.toBigInteger().subtract(toBigInteger()).mod(BigInteger.ONE.shiftLeft(getBitLength()));
+	}
+
 	/**
 	 * Returns length of this ID measured in bits. ID length is determined by the length of the stored byte[] array, i.e. leading zeros have to be stored in the
 	 * array.
@@ -126,14 +149,33 @@ public class ID implements Comparable<ID>, Serializable {
 		return new ID(copy);
 	}
 
+	/**
+	 * Calculates the ID which is the given value greater than the current ID modulo the maximum ID and returns it.
+	 *
+	 * @param value
+	 *            Non-negative value which is added to the current ID.
+	 * @return ID which is <code>value</code> greater than the current ID modulo the maximum ID.
+	 */
+	public ID add(BigInteger value) {
+		if (value.signum() < 0)
+			throw new IllegalArgumentException("The value to add must not be negative!");
+		BigInteger sum = toBigInteger().add(value).mod(BigInteger.ONE.shiftLeft(getBitLength()));
+		byte[] bytes = sum.toByteArray();
+		// strip sign byte or pad with leading zeros
+		byte[] result = new byte[payload.length];
+		int length = Math.min(bytes.length, result.length);
+		System.arraycopy(bytes, bytes.length - length, result, result.length - length, length);
+		return new ID(result);
+	}
+
 	@Override
 	public int compareTo(ID o) throws ClassCastException {
 		if (getBitLength() != o.getBitLength())
 			throw new ClassCastException(getBitLength() + " != " + o.getBitLength());
 		for (int i = 0; i < payload.length; i++) {
-			if (payload[i] - 128 < o.payload[i] - 128) {
+			if ((byte) (payload[i] - 128) < (byte) (o.payload[i] - 128)) {
 				return -1; // this ID is smaller
-			} else if (payload[i] - 128 > o.payload[i] - 128) {
+			} else if ((byte) (payload[i] - 128) > (byte) (o.payload[i] - 128)) {
 				return 1; // this ID is greater
 			}
 		}
@@ -43,4 +43,11 @@ public interface Report {
 	 * @return Formatted String containing the predecessor reference of this node.
 	 */
 	String printPredecessor();
+
+	/**
+	 * Returns a formatted String containing the number of inserts, retrievals and removals of this node by the number of attempts they took.
+	 *
+	 * @return Formatted String containing the number of operations by the number of attempts they took.
+	 */
+	String printRetryStatistics();
 }
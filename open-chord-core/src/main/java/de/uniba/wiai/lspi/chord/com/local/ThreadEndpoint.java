@@ -11,8 +11,6 @@
 
 package de.uniba.wiai.lspi.chord.com.local;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -20,12 +18,15 @@ import java.util.Set;
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Endpoint;
 import de.uniba.wiai.lspi.chord.com.Endpoints;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
-import de.uniba.wiai.lspi.chord.service.impl.ChordImpl;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -56,6 +57,11 @@ public final class ThreadEndpoint extends Endpoint {
 	 */
 	protected List<InvocationListener> invocationListeners = null;
 
+	/**
+	 * Determines whether the node of this endpoint has left the network, so that invocations fail instead of waiting for a state that is never reached.
+	 */
+	private volatile boolean disconnected = false;
+
 	/**
 	 * Creates a new Endpoint for communication via Java Threads.
 	 *
@@ -205,6 +211,22 @@ public final class ThreadEndpoint extends Endpoint {
 		return s;
 	}
 
+	/**
+	 * @param fromID
+	 * @param toID
+	 * @param maxEntries
+	 * @return Implementation of {@link Node#copyEntries(ID, ID, int)}. See documentation of {@link Node}.
+	 * @throws CommunicationException
+	 */
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException {
+		this.checkIfCrashed();
+		this.waitFor(Endpoint.State.ACCEPT_ENTRIES);
+		this.notifyInvocationListeners(InvocationListener.NOTIFY_AND_COPY);
+		EntryChunk chunk = this.node.copyEntries(fromID, toID, maxEntries);
+		this.notifyInvocationListenersFinished(InvocationListener.NOTIFY_AND_COPY);
+		return chunk;
+	}
+
 	/**
 	 * @param predecessor
 	 * @throws CommunicationException
@@ -265,6 +287,44 @@ public final class ThreadEndpoint extends Endpoint {
 		return new ReferencesAndEntries(nodes, refs.getEntries());
 	}
 
+	/**
+	 * @param potentialPredecessor
+	 * @param events
+	 * @param fullMembership
+	 * @param replicaSummary
+	 * @return Implementation of {@link Node#stabilize(Node, List, boolean, ReplicaSummary)}. See documentation of {@link Node}.
+	 * @throws CommunicationException
+	 */
+	public StabilizationResult stabilize(Node potentialPredecessor, List<MembershipEvent> events, boolean fullMembership, ReplicaSummary replicaSummary)
+			throws CommunicationException {
+		this.checkIfCrashed();
+		this.waitFor(Endpoint.State.LISTENING);
+		this.notifyInvocationListeners(InvocationListener.NOTIFY);
+		StabilizationResult refs = this.node.stabilize(potentialPredecessor, events, fullMembership, replicaSummary);
+		List<Node> nodes = new LinkedList<Node>();
+		for (Node current : refs.getReferences()) {
+			if (current == this.node) {
+				this.logger.debug("Returned node is local node. Converting to 'remote' reference. ");
+				nodes.add(new ThreadProxy(this.url, this.url));
+			} else {
+				nodes.add(current);
+			}
+		}
+		this.notifyInvocationListenersFinished(InvocationListener.NOTIFY);
+		return new StabilizationResult(nodes, refs.getEvents(), refs.getReplicaSummary());
+	}
+
+	/**
+	 * @param events
+	 * @return Implementation of {@link Node#exchangeEvents(List)}. See documentation of {@link Node}.
+	 * @throws CommunicationException
+	 */
+	public List<MembershipEvent> exchangeEvents(List<MembershipEvent> events) throws CommunicationException {
+		this.checkIfCrashed();
+		this.waitFor(Endpoint.State.LISTENING);
+		return this.node.exchangeEvents(events);
+	}
+
 	/**
 	 * Wait for the endpoint to get into given state.
 	 *
@@ -278,7 +338,7 @@ public final class ThreadEndpoint extends Endpoint {
 				try {
 					this.logger.debug(Thread.currentThread() + " waiting for state: " + state);
 					this.lock.wait();
-					if (state == Endpoint.State.CRASHED) {
+					if (getState().isCrashed() || this.disconnected) {
 						throw new CommunicationException("Connection destroyed!");
 					}
 				} catch (InterruptedException t) {
@@ -316,6 +376,7 @@ public final class ThreadEndpoint extends Endpoint {
 	 */
 	@Override
 	protected void closeConnections() {
+		this.disconnected = true;
 		this.registry.unbind(this);
 		this.registry.removeProxiesInUseBy(this.getUrl());
 		/** state has changed. notify waiting threads */
@@ -333,8 +394,8 @@ public final class ThreadEndpoint extends Endpoint {
 	}
 
 	/**
-	 * Method to emulate a crash of the node that this is the endpoint for. This method heavily relise on the internal structure of service layer implementation
-	 * to make it possible to emulate a chord overlay network within one JVM. This method may cause problems at runtime.
+	 * Method to emulate a crash of the node that this is the endpoint for. The node is informed by the change to state {@link Endpoint.State#CRASHED} and stops
+	 * its maintenance tasks.
 	 */
 	public void crash() {
 		this.logger.debug("crash() invoked!");
@@ -349,33 +410,12 @@ public final class ThreadEndpoint extends Endpoint {
 		this.registry.removeProxiesInUseBy(this.getUrl());
 		this.setState(Endpoint.State.CRASHED);
 		this.notifyWaitingThreads();
-		/* kill threads of node (gefrickelt) */
-		ChordImpl impl = ChordImplAccess.fetchChordImplOfNode(this.node);
-		Field[] fields = impl.getClass().getDeclaredFields();
-		this.logger.debug(fields.length + " fields obtained from class " + impl.getClass());
-		for (Field field : fields) {
-			this.logger.debug("Examining field " + field + " of node " + this.node);
-			try {
-				if (field.getName().equals("maintenanceTasks")) {
-					field.setAccessible(true);
-
-					Object executor = field.get(impl);
-					this.logger.debug("Shutting down TaskExecutor " + executor + ".");
-					Method m = executor.getClass().getMethod("shutdown", new Class[0]);
-					m.setAccessible(true);
-					m.invoke(executor, new Object[0]);
-				}
-			} catch (Throwable t) {
-				this.logger.warn("Could not kill threads of node " + this.node, t);
-				t.printStackTrace();
-			}
-		}
 		Endpoints.endpoints.remove(this.url);
 		this.invocationListeners = null;
 	}
 
 	/**
-	 * Checks if this has crashed.
+	 * Checks if this has crashed or left the network.
 	 *
 	 * @throws CommunicationException
 	 */
@@ -384,6 +424,10 @@ public final class ThreadEndpoint extends Endpoint {
 			this.logger.debug(this + " has crashed. Throwing Exception.");
 			throw new CommunicationException();
 		}
+		if (this.disconnected) {
+			this.logger.debug(this + " has left the network. Throwing Exception.");
+			throw new CommunicationException();
+		}
 	}
 
 	/** ********************************************************** */
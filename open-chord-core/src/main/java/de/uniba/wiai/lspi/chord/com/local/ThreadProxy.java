@@ -1,14 +1,19 @@
 package de.uniba.wiai.lspi.chord.com.local;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.Nodes;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
@@ -182,6 +187,19 @@ public class ThreadProxy extends Node {
 		this.endpoint.ping();
 	}
 
+	@Override
+	public boolean supportsCopyEntries() throws CommunicationException {
+		this.checkValidity();
+		return true;
+	}
+
+	@Override
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException {
+		this.checkValidity();
+		logger.debug("Trying to execute copyEntries().");
+		return this.endpoint.copyEntries(fromID, toID, maxEntries);
+	}
+
 	@Override
 	public Set<Entry> retrieveEntries(ID id) throws CommunicationException {
 		this.checkValidity();
@@ -255,6 +273,51 @@ public class ThreadProxy extends Node {
 		return this.endpoint.notifyAndCopyEntries(potentialPredecessorProxy);
 	}
 
+	@Override
+	public StabilizationResult stabilize(Node potentialPredecessor, List<MembershipEvent> events, boolean fullMembership, ReplicaSummary replicaSummary)
+			throws CommunicationException {
+		this.checkValidity();
+
+		ThreadProxy potentialPredecessorProxy = new ThreadProxy(this.creatorURL, potentialPredecessor.getUrl());
+
+		logger.debug("Trying to execute stabilize().");
+		StabilizationResult refs = this.endpoint.stabilize(potentialPredecessorProxy, this.convertEvents(events, this.url), fullMembership, replicaSummary);
+		List<Node> proxies = new ArrayList<Node>();
+		try {
+			for (Node current : refs.getReferences()) {
+				proxies.add(((ThreadProxy) current).cloneMeAt(this.creatorURL));
+			}
+		} catch (Throwable t) {
+			throw new CommunicationException(t);
+		}
+		return new StabilizationResult(proxies, this.convertEvents(refs.getEvents(), this.creatorURL), refs.getReplicaSummary());
+	}
+
+	@Override
+	public List<MembershipEvent> exchangeEvents(List<MembershipEvent> events) throws CommunicationException {
+		this.checkValidity();
+		logger.debug("Trying to execute exchangeEvents().");
+		return this.convertEvents(this.endpoint.exchangeEvents(this.convertEvents(events, this.url)), this.creatorURL);
+	}
+
+	/**
+	 * Creates copies of the given events, whose nodes are represented by proxies created at the node with the given url. Events concerning that node itself
+	 * are kept, so that it learns when it is believed to have left.
+	 *
+	 * @param events
+	 * @param creatorUrl
+	 *            The url of the node where the events are being copied.
+	 * @return The copied events.
+	 */
+	private List<MembershipEvent> convertEvents(List<MembershipEvent> events, URL creatorUrl) {
+		List<MembershipEvent> result = new ArrayList<MembershipEvent>(events.size());
+		for (MembershipEvent event : events) {
+			Node node = event.getNode();
+			result.add(new MembershipEvent(new ThreadProxy(creatorUrl, node.getUrl(), node.getId()), event.getType(), event.getIncarnation()));
+		}
+		return result;
+	}
+
 	@Override
 	public void disconnect() {
 	}
@@ -14,6 +14,7 @@ import java.util.Set;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Endpoint;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
 import de.uniba.wiai.lspi.chord.data.Entry;
@@ -131,6 +132,10 @@ public final class RMIEndpoint extends Endpoint implements RemoteNode {
 		return new RemoteRefsAndEntries(raes.getEntries(), rNodes);
 	}
 
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws RemoteException, CommunicationException {
+		return this.node.copyEntries(fromID, toID, maxEntries);
+	}
+
 	public void ping() throws RemoteException {
 	}
 
@@ -19,6 +19,7 @@ import java.util.Set;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Endpoints;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
 import de.uniba.wiai.lspi.chord.data.Entry;
@@ -208,6 +209,22 @@ public final class RMIProxy extends Node {
 		}
 	}
 
+	@Override
+	public boolean supportsCopyEntries() throws CommunicationException {
+		this.testConnection();
+		return true;
+	}
+
+	@Override
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException {
+		this.testConnection();
+		try {
+			return this.remoteNode.copyEntries(fromID, toID, maxEntries);
+		} catch (RemoteException e) {
+			throw new CommunicationException("Could not connect to " + this.url + "!", e);
+		}
+	}
+
 	@Override
 	public void ping() throws CommunicationException {
 		this.testConnection();
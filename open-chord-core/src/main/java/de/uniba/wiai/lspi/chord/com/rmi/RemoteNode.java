@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.Set;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 
@@ -76,6 +77,16 @@ public interface RemoteNode extends Remote {
 	 */
 	public RemoteRefsAndEntries notifyAndCopyEntries(RemoteNodeInfo potentialPredecessor) throws CommunicationException, RemoteException;
 
+	/**
+	 * @param fromID
+	 * @param toID
+	 * @param maxEntries
+	 * @return
+	 * @throws CommunicationException
+	 * @throws RemoteException
+	 */
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException, RemoteException;
+
 	/**
 	 * @throws CommunicationException
 	 * @throws RemoteException
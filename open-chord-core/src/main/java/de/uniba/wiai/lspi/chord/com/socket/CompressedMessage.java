@@ -0,0 +1,184 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link Request} or {@link Response} compressed with {@link Deflater}. Only messages which carry entries are compressed, and only if they are at least
+ * {@link #THRESHOLD} bytes long when serialized, so that maintenance messages are sent as they are. Messages are only compressed for connections to nodes
+ * which have announced {@link Hello#COMPRESSION} in their {@link Hello}.<br/>
+ * A message is serialized into a buffer of {@link #THRESHOLD} bytes; once it exceeds the buffer, the rest is deflated while it is serialized, so the
+ * uncompressed form is never held as a whole. Messages carrying entries that fit into the buffer are sent as the serialized bytes in the buffer, so that
+ * they are not serialized a second time. Compressed messages are inflated while they are deserialized.
+ *
+ * @version 1.0.5
+ */
+final class CompressedMessage implements Serializable {
+
+	private static final long serialVersionUID = 2283596041877339071L;
+
+	/**
+	 * Tells whether this node compresses messages and announces to accept compressed messages.
+	 */
+	static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(CompressedMessage.class.getName() + ".enabled", "true"));
+
+	/**
+	 * Minimum size in bytes of a serialized message to be compressed.
+	 */
+	static final int THRESHOLD = Integer.parseInt(System.getProperty(CompressedMessage.class.getName() + ".threshold", "8192"));
+
+	/**
+	 * Compression level of {@link Deflater}.
+	 */
+	private static final int LEVEL = Integer.parseInt(System.getProperty(CompressedMessage.class.getName() + ".level", Integer.toString(Deflater.BEST_SPEED)));
+
+	/**
+	 * Serialized message.
+	 */
+	private final byte[] data;
+
+	/**
+	 * Tells whether {@link #data} has been deflated.
+	 */
+	private final boolean deflated;
+
+	private CompressedMessage(byte[] data1, boolean deflated1) {
+		this.data = data1;
+		this.deflated = deflated1;
+	}
+
+	/**
+	 * @param message
+	 * @return <code>true</code> if the given message is a request or response carrying entries.
+	 */
+	private static boolean carriesEntries(Serializable message) {
+		if (message instanceof Request) {
+			int type = ((Request) message).getRequestType();
+			return type == MethodConstants.INSERT_ENTRY || type == MethodConstants.INSERT_REPLICAS || type == MethodConstants.REMOVE_REPLICAS;
+		}
+		if (message instanceof Response) {
+			Response response = (Response) message;
+			int type = response.getMethodIdentifier();
+			return !response.isFailureResponse()
+					&& (type == MethodConstants.RETRIEVE_ENTRIES || type == MethodConstants.NOTIFY_AND_COPY || type == MethodConstants.COPY_ENTRIES);
+		}
+		return false;
+	}
+
+	/**
+	 * Compresses the given message if it carries entries and is large enough. Messages which turn out not to compress well are sent compressed anyway, as
+	 * the few bytes this costs are cheaper than serializing them a second time.
+	 *
+	 * @param message
+	 *            Message to send.
+	 * @return A compressed message, an uncompressed one if <code>message</code> carries entries but is too small, or <code>message</code> itself if it does not
+	 *         carry entries.
+	 * @throws IOException
+	 *             If the message could not be serialized.
+	 */
+	static Serializable compress(Serializable message) throws IOException {
+		if (!carriesEntries(message)) {
+			return message;
+		}
+		Deflater deflater = new Deflater(LEVEL);
+		try {
+			DeflatingStream stream = new DeflatingStream(deflater);
+			ObjectOutputStream out = new ObjectOutputStream(stream);
+			out.writeObject(message);
+			out.close();
+			if (stream.compressed == null) {
+				return new CompressedMessage(stream.head.toByteArray(), false);
+			}
+			return new CompressedMessage(stream.compressed.toByteArray(), true);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Returns the message contained in the given object, if it is a compressed message.
+	 *
+	 * @param received
+	 *            Object read from a connection.
+	 * @return The decompressed message, or <code>received</code> itself if it is not compressed.
+	 * @throws IOException
+	 *             If the message could not be decompressed.
+	 * @throws ClassNotFoundException
+	 *             If the class of the message is not available.
+	 */
+	static Object decompress(Object received) throws IOException, ClassNotFoundException {
+		if (!(received instanceof CompressedMessage)) {
+			return received;
+		}
+		CompressedMessage message = (CompressedMessage) received;
+		InputStream bytes = new ByteArrayInputStream(message.data);
+		ObjectInputStream in = new ObjectInputStream(message.deflated ? new InflaterInputStream(bytes) : bytes);
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Stream which keeps the first {@link CompressedMessage#THRESHOLD} bytes written to it and deflates all bytes as soon as more are written.
+	 */
+	private static final class DeflatingStream extends OutputStream {
+
+		private final Deflater deflater;
+
+		private final ByteArrayOutputStream head = new ByteArrayOutputStream(THRESHOLD);
+
+		/**
+		 * Deflated bytes; <code>null</code> while fewer than {@link CompressedMessage#THRESHOLD} bytes have been written.
+		 */
+		private ByteArrayOutputStream compressed = null;
+
+		private DeflaterOutputStream deflating = null;
+
+		DeflatingStream(Deflater deflater1) {
+			this.deflater = deflater1;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (this.deflating == null) {
+				if (this.head.size() + len < THRESHOLD) {
+					this.head.write(b, off, len);
+					return;
+				}
+				this.compressed = new ByteArrayOutputStream(THRESHOLD);
+				this.deflating = new DeflaterOutputStream(this.compressed, this.deflater, 8192);
+				this.head.writeTo(this.deflating);
+			}
+			this.deflating.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.deflating != null) {
+				this.deflating.finish();
+			}
+		}
+	}
+
+}
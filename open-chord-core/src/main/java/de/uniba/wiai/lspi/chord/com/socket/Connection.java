@@ -0,0 +1,611 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+import de.uniba.wiai.lspi.chord.data.URL;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * One socket connection to a remote node, over which {@link SocketProxy proxies} of any local node send {@link Request requests}. A thread reads the
+ * {@link Response responses} and hands them to the threads waiting for them. Connections are obtained from and shared by means of the {@link ConnectionPool}.
+ * The socket is opened with the first request; see {@link Hello} for the handshake.
+ *
+ * @version 1.0.5
+ */
+final class Connection implements Runnable {
+
+	/**
+	 * Time in milliseconds to wait for a socket to be connected and for the response to the {@link Hello}.
+	 */
+	private static final int CONNECT_TIMEOUT = 5000;
+
+	/**
+	 * Time in milliseconds to wait for the response to a request, before the request is given up.
+	 */
+	private static final long RESPONSE_TIMEOUT = Long.parseLong(System.getProperty(Connection.class.getName() + ".responseTimeout", "60000"));
+
+	private static final Logger logger = Logger.getLogger(Connection.class);
+
+	/**
+	 * URL of the remote node.
+	 */
+	private final URL url;
+
+	/**
+	 * Lock held while opening the socket, so that the first requests sent concurrently wait for one socket.
+	 */
+	private final Lock openLock = new ReentrantLock();
+
+	/**
+	 * Guarded by {@link #openLock}; <code>null</code> until opened.
+	 */
+	private Socket socket;
+
+	/**
+	 * Set once the socket has been opened; guarded by {@link #openLock}.
+	 */
+	private volatile FrameWriter out;
+
+	/**
+	 * Created by the thread reading responses.
+	 */
+	private volatile ObjectInputStream in;
+
+	/**
+	 * Responses which have arrived before the requesting thread waited for them. Key: identifier of the request.
+	 */
+	private final Map<String, Response> responses = new HashMap<String, Response>();
+
+	/**
+	 * {@link Map} where threads are put in that are waiting for a repsonse. Key: identifier of the request (same as for the response). Value: The Thread
+	 * itself.
+	 */
+	private final Map<String, WaitingThread> waitingThreads = new HashMap<String, WaitingThread>();
+
+	/**
+	 * Identifiers of the requests whose responses are not waited for anymore, as waiting has timed out or has been interrupted. Their responses are dropped.
+	 */
+	private final Set<String> abandoned = new HashSet<String>();
+
+	/**
+	 * Lock protecting {@link #responses} and {@link #waitingThreads}. Locks are used instead of monitors, so that virtual threads waiting for responses do not
+	 * pin their carrier thread.
+	 */
+	private final Lock responsesLock = new ReentrantLock();
+
+	/**
+	 * {@link Hello} received from the remote node; <code>null</code> if it has not been received yet or the remote node does not send one.
+	 */
+	private volatile Hello remoteHello;
+
+	/**
+	 * Time in milliseconds after which the connection may be opened again, if the remote node has refused it because it is overloaded; -1 otherwise.
+	 */
+	private volatile long retryAfter = -1;
+
+	/**
+	 * Released when the response to the {@link Hello} has been received or the connection has broken down.
+	 */
+	private final CountDownLatch helloReceived = new CountDownLatch(1);
+
+	/**
+	 * Indicates that this connection has been closed or has broken down. It is not used for further requests.
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Number of invocations which have acquired this connection from the {@link ConnectionPool} and not released it yet; -1 once the pool has evicted this
+	 * connection.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * Time in milliseconds when this connection has been released for the last time.
+	 */
+	private volatile long lastUsed = System.currentTimeMillis();
+
+	/**
+	 * Creates an unopened connection.
+	 *
+	 * @param url1
+	 *            URL of the remote node.
+	 */
+	Connection(URL url1) {
+		this.url = url1;
+	}
+
+	/**
+	 * @return URL of the remote node.
+	 */
+	URL getUrl() {
+		return this.url;
+	}
+
+	/**
+	 * @return <code>true</code> if this connection has been closed or has broken down.
+	 */
+	boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * @return Number of invocations using this connection.
+	 */
+	int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * @return Time in milliseconds when this connection has been released for the last time.
+	 */
+	long getLastUsed() {
+		return this.lastUsed;
+	}
+
+	/**
+	 * Counts an invocation using this connection.
+	 *
+	 * @return <code>false</code> if this connection has been evicted and must not be used.
+	 */
+	boolean reserve() {
+		while (true) {
+			int current = this.inFlight.get();
+			if (current < 0) {
+				return false;
+			}
+			if (this.inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Counts the end of an invocation using this connection.
+	 */
+	void release() {
+		this.lastUsed = System.currentTimeMillis();
+		this.inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Marks this connection as evicted if no invocation is using it.
+	 *
+	 * @return <code>true</code> if this connection has been marked and must be closed by the caller.
+	 */
+	boolean evict() {
+		return this.inFlight.compareAndSet(0, -1);
+	}
+
+	/**
+	 * Opens the socket and sends the {@link Hello}, unless this has been done before. Does not wait for the response to the hello, which is read by the thread
+	 * reading all responses, so that requests can be sent right away instead of waiting for a round trip.
+	 *
+	 * @throws CommunicationException
+	 *             If the socket could not be opened or this connection has been closed.
+	 */
+	void open() throws CommunicationException {
+		if (this.out != null) {
+			return;
+		}
+		this.openLock.lock();
+		try {
+			if (this.closed) {
+				throw new CommunicationException("Connection to remote host " + this.url + " is broken down. ");
+			}
+			if (this.out != null) {
+				return;
+			}
+			logger.info("Opening new socket to " + this.url);
+			this.socket = new Socket();
+			// set time out, in case the other side does not answer the hello!
+			this.socket.setSoTimeout(CONNECT_TIMEOUT);
+			this.socket.connect(new InetSocketAddress(this.url.getHost(), this.url.getPort()), CONNECT_TIMEOUT);
+			logger.debug("Socket created: " + this.socket);
+			FrameWriter writer = new FrameWriter(this.socket.getOutputStream());
+			logger.debug("Sending connection request!");
+			Request hello = new Request(MethodConstants.CONNECT, "Initial Connection");
+			hello.setParameters(Hello.toParameters());
+			writer.write(hello);
+			this.out = writer;
+			Thread t = ThreadFactories.newThread(this, "SocketProxy_Thread_" + this.url);
+			t.start();
+		} catch (UnknownHostException e) {
+			this.close();
+			throw new CommunicationException("Unknown host: " + this.url.getHost());
+		} catch (IOException ioe) {
+			this.close();
+			throw new CommunicationException("Could not set up IO channel " + "to host " + this.url.getHost(), ioe);
+		} finally {
+			this.openLock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the given request. Requests sent concurrently by other threads are coalesced by {@link FrameWriter}.
+	 *
+	 * @param request
+	 *            The {@link Request} to be sent.
+	 * @throws CommunicationException
+	 *             while writing to {@link FrameWriter output stream}.
+	 */
+	void send(Request request) throws CommunicationException {
+		FrameWriter writer = this.out;
+		if (this.closed || writer == null) {
+			throw this.brokenDown();
+		}
+		try {
+			logger.debug("Sending request " + request.getReplyWith());
+			writer.write(request);
+		} catch (IOException e) {
+			this.close();
+			throw new CommunicationException("Could not connect to node " + this.url, e);
+		}
+	}
+
+	/**
+	 * Blocks until the response to the {@link Hello} has been received. Returns at the latest when the socket timeout for the response expires.
+	 *
+	 * @return Hello of the remote node; <code>null</code> if it does not send one.
+	 * @throws CommunicationException
+	 *             If the connection has broken down meanwhile or waiting has been interrupted.
+	 */
+	Hello awaitHello() throws CommunicationException {
+		try {
+			this.helloReceived.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommunicationException("Interrupted while connecting to " + this.url + "!", e);
+		}
+		if (this.closed) {
+			if (this.retryAfter >= 0) {
+				throw this.brokenDown();
+			}
+			throw new CommunicationException("Establishing connection to " + this.url + " failed!");
+		}
+		return this.remoteHello;
+	}
+
+	/**
+	 * @return Exception telling that this connection is broken down, or that the remote node has refused it because it is overloaded.
+	 */
+	private CommunicationException brokenDown() {
+		if (this.retryAfter >= 0) {
+			return new OverloadedException("Remote host " + this.url + " has refused the connection, as it is overloaded.", this.retryAfter);
+		}
+		return new CommunicationException("Connection to remote host " + this.url + " is broken down. ");
+	}
+
+	/**
+	 * Blocks the calling thread until the {@link Response response} to the given request has been received, at most for {@link #RESPONSE_TIMEOUT}
+	 * milliseconds.
+	 *
+	 * @param request
+	 * @return The {@link Response} for <code>request</code>.
+	 * @throws CommunicationException
+	 *             If the connection has broken down before the response has been received, the response has not been received in time, or waiting has been
+	 *             interrupted.
+	 */
+	Response waitForResponse(Request request) throws CommunicationException {
+
+		String responseIdentifier = request.getReplyWith();
+		Response response = null;
+		logger.debug("Trying to wait for response with identifier " + responseIdentifier + " for method " + MethodConstants.getMethodName(request.getRequestType()));
+
+		this.responsesLock.lock();
+		try {
+			logger.debug("No of responses " + this.responses.size());
+			/*
+			 * Test if response is already available (Maybe response arrived before we reached this point).
+			 */
+			response = this.responses.remove(responseIdentifier);
+			if (response != null) {
+				return response;
+			}
+			/* Test if we got disconnected while waiting for lock on object */
+			if (this.closed) {
+				throw this.brokenDown();
+			}
+
+			/* WAIT FOR RESPONSE */
+			/* add current thread to map of threads waiting for a response */
+			WaitingThread wt = new WaitingThread(Thread.currentThread(), this.responsesLock.newCondition());
+			this.waitingThreads.put(responseIdentifier, wt);
+			long remaining = TimeUnit.MILLISECONDS.toNanos(RESPONSE_TIMEOUT);
+			try {
+				while (!wt.hasBeenWokenUp()) {
+					if (remaining <= 0) {
+						this.abandoned.add(responseIdentifier);
+						throw new CommunicationException("No response received from " + this.url + " within " + RESPONSE_TIMEOUT + " ms!");
+					}
+					/*
+					 * Wait until response arrives or connection breaks down.
+					 */
+					logger.debug("Waiting for response to arrive.");
+					remaining = wt.await(remaining);
+				}
+			} catch (InterruptedException e) {
+				this.abandoned.add(responseIdentifier);
+				Thread.currentThread().interrupt();
+				throw new CommunicationException("Interrupted while waiting for a response from " + this.url + "!", e);
+			} finally {
+				/* remove thread from map of threads waiting for a response */
+				this.waitingThreads.remove(responseIdentifier);
+			}
+			logger.debug("Have been woken up from waiting for response.");
+			/* try to get the response if available */
+			response = this.responses.remove(responseIdentifier);
+			logger.debug("Response for request with identifier " + responseIdentifier + " for method " + MethodConstants.getMethodName(request.getRequestType()) + " received.");
+			/* if no response availabe */
+			if (response == null) {
+				logger.debug("No response received.");
+				/* we have been disconnected */
+				if (this.closed) {
+					logger.info("Connection to remote host lost.");
+					throw this.brokenDown();
+				}
+				/* or time out has elapsed */
+				else {
+					logger.error("There is no result, but we have not been " + "disconnected. Something went seriously wrong!");
+					throw new CommunicationException("Did not receive a response!");
+				}
+			}
+		} finally {
+			this.responsesLock.unlock();
+		}
+		return response;
+	}
+
+	/**
+	 * This method is called by {@link #run()}when it receives a {@link Response}. The {@link Thread thread}waiting for response is woken up and the response is
+	 * put into {@link Map responses}.
+	 *
+	 * @param response
+	 */
+	private void responseReceived(Response response) {
+		this.responsesLock.lock();
+		try {
+			/* Try to fetch thread waiting for this response */
+			logger.debug("No of waiting threads " + this.waitingThreads);
+			WaitingThread waitingThread = this.waitingThreads.get(response.getInReplyTo());
+			logger.debug("Response with id " + response.getInReplyTo() + "received.");
+			if (this.abandoned.remove(response.getInReplyTo())) {
+				logger.debug("Dropping response, as it is not waited for anymore.");
+				return;
+			}
+			/* save response */
+			this.responses.put(response.getInReplyTo(), response);
+			/* if there is a thread waiting for this response */
+			if (waitingThread != null) {
+				/* wake up the thread */
+				logger.debug("Waking up thread!");
+				waitingThread.wakeUp();
+			}
+		} finally {
+			this.responsesLock.unlock();
+		}
+	}
+
+	/**
+	 * Method to indicate that this connection is broken down. Wakes up all threads waiting for responses.
+	 */
+	private void connectionBrokenDown() {
+		/* lock responses, as all threads accessing this connection do so */
+		this.responsesLock.lock();
+		try {
+			logger.info("Connection broken down!");
+			this.closed = true;
+			/* wake up all threads */
+			for (WaitingThread thread : this.waitingThreads.values()) {
+				logger.debug("Waking up waiting thread " + thread);
+				thread.wakeUp();
+			}
+		} finally {
+			this.responsesLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes this connection. The remote node is notified, if the socket has been opened. Threads waiting for responses fail.
+	 */
+	void close() {
+		logger.info("Closing connection to " + this.url);
+		this.closed = true;
+		try {
+			FrameWriter writer = this.out;
+			if (writer != null) {
+				try {
+					/*
+					 * notify endpoint this is connected to, about shut down of this connection
+					 */
+					logger.debug("Sending shutdown notification to endpoint.");
+					writer.write(new Request(MethodConstants.SHUTDOWN, "Shutdown"));
+					writer.close();
+				} catch (IOException e) {
+					/* should not occur */
+					logger.debug(this + ": Exception during closing of output stream " + writer, e);
+				}
+			}
+			ObjectInputStream input = this.in;
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					/* should not occur */
+					logger.debug("Exception during closing of input stream" + input);
+				}
+			}
+			Socket s = this.socket;
+			if (s != null) {
+				try {
+					s.close();
+				} catch (IOException e) {
+					/* should not occur */
+					logger.debug("Exception during closing of socket " + s);
+				}
+			}
+		} catch (Throwable t) {
+			logger.warn("Unexpected exception during closing of connection", t);
+		}
+		this.connectionBrokenDown();
+		this.helloReceived.countDown();
+	}
+
+	/**
+	 * The run methods waits for incoming {@link de.uniba.wiai.lspi.chord.com.socket.Response} and puts them into a datastructure from where the can be
+	 * collected by the associated method call that made a {@link de.uniba.wiai.lspi.chord.com.socket.Request}.
+	 */
+	public void run() {
+		try {
+			this.receiveHello();
+		} finally {
+			this.helloReceived.countDown();
+		}
+		while (!this.closed) {
+			try {
+				Response response = (Response) CompressedMessage.decompress(this.in.readObject());
+				logger.debug("Response " + response + "received!");
+				this.responseReceived(response);
+			} catch (ClassNotFoundException cnfe) {
+				/* should not occur, as all classes must be locally available */
+				logger.fatal("ClassNotFoundException occured during deserialization " + "of response. There is something seriously wrong " + " here! ", cnfe);
+			} catch (IOException e) {
+				if (!this.closed) {
+					logger.warn("Could not read response from stream!", e);
+					/* release the socket, as this connection cannot be used anymore */
+					this.close();
+				} else {
+					logger.debug(this + ": Connection has been closed!");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens the input stream and reads the response to the {@link Hello}. Closes this connection if the response does not arrive in time or the remote node
+	 * refuses the connection.
+	 */
+	private void receiveHello() {
+		try {
+			this.in = new ObjectInputStream(this.socket.getInputStream());
+			logger.debug("Waiting for connection response!");
+			Response response = (Response) this.in.readObject();
+			this.socket.setSoTimeout(0);
+			if (response.isOverloadedResponse()) {
+				logger.info("Remote host " + this.url + " has refused the connection, as it is overloaded.");
+				this.retryAfter = response.getRetryAfter();
+				this.close();
+				return;
+			}
+			if (response.getStatus() != Response.REQUEST_SUCCESSFUL) {
+				logger.warn("Establishing connection to " + this.url + " failed! " + response.getFailureReason());
+				this.close();
+				return;
+			}
+			/* remote nodes of older versions do not send a hello */
+			if (response.getResult() instanceof Hello) {
+				this.remoteHello = (Hello) response.getResult();
+				logger.debug("Received " + this.remoteHello + " from " + this.url);
+				if (this.remoteHello.supports(Hello.COMPRESSION) && CompressedMessage.ENABLED) {
+					this.out.enableCompression();
+				}
+			}
+		} catch (SocketTimeoutException e) {
+			logger.info("Connection to " + this.url + " timed out!");
+			this.close();
+		} catch (IOException e) {
+			if (!this.closed) {
+				logger.warn("Could not establish connection to " + this.url + "!", e);
+				this.close();
+			}
+		} catch (ClassNotFoundException e) {
+			logger.warn("Unexpected result received from " + this.url + "! " + e.getMessage(), e);
+			this.close();
+		} catch (ClassCastException e) {
+			logger.warn("Unexpected result received from " + this.url + "! " + e.getMessage(), e);
+			this.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Connection[url=" + this.url + ", socket=" + this.socket + ", inFlight=" + this.inFlight.get() + "]";
+	}
+
+	/**
+	 * Wraps a thread, which is waiting for a response. All methods must be invoked while holding {@link Connection#responsesLock}.
+	 */
+	private static class WaitingThread {
+
+		private boolean hasBeenWokenUp = false;
+
+		private Thread thread;
+
+		/**
+		 * Condition of {@link Connection#responsesLock} the thread waits on.
+		 */
+		private Condition condition;
+
+		private WaitingThread(Thread thread, Condition condition) {
+			this.thread = thread;
+			this.condition = condition;
+		}
+
+		/**
+		 * Returns <code>true</code> when the thread has been woken up by invoking {@link #wakeUp()}
+		 *
+		 * @return
+		 */
+		boolean hasBeenWokenUp() {
+			return this.hasBeenWokenUp;
+		}
+
+		/**
+		 * Blocks the thread until it is woken up by invoking {@link #wakeUp()}, the given time has elapsed or the thread is interrupted.
+		 *
+		 * @param nanos
+		 *            Maximum time to wait in nanoseconds.
+		 * @return Time left to wait in nanoseconds.
+		 * @throws InterruptedException
+		 */
+		long await(long nanos) throws InterruptedException {
+			return this.condition.awaitNanos(nanos);
+		}
+
+		/**
+		 * Wake up the thread that is waiting for a response.
+		 */
+		void wakeUp() {
+			this.hasBeenWokenUp = true;
+			this.condition.signal();
+		}
+
+		@Override
+		public String toString() {
+			return this.thread.toString() + ": Waiting? " + !this.hasBeenWokenUp();
+		}
+	}
+
+}
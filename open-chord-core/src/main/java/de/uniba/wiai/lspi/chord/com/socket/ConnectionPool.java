@@ -0,0 +1,346 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.data.URL;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Manages the {@link Connection connections} of all {@link SocketProxy proxies} in this JVM. Connections are kept per remote URL and shared by the proxies of
+ * all local nodes. Usually, there is one connection per remote node; if all connections to a node are busy with at least {@link #BUSY_THRESHOLD} invocations,
+ * a further one is opened, up to {@link #CHANNELS_PER_PEER}.<br/>
+ * Connections that have not been used for {@link #IDLE_TIMEOUT} milliseconds are closed, and at most {@link #MAX_CONNECTIONS} connections are open at the
+ * same time; if this limit is reached, the least recently used idle connection is closed to make room for a new one. A closed connection is opened again
+ * with the next invocation, so evicting it does not affect the references of a node.
+ *
+ * @version 1.0.5
+ */
+final class ConnectionPool {
+
+	/**
+	 * Maximum number of connections to one remote node.
+	 */
+	static final int CHANNELS_PER_PEER = Math.max(1, Integer.parseInt(System.getProperty(ConnectionPool.class.getName() + ".channelsPerPeer", "4")));
+
+	/**
+	 * Number of invocations that must be using every connection to a node before a further connection is opened.
+	 */
+	static final int BUSY_THRESHOLD = Math.max(1, Integer.parseInt(System.getProperty(ConnectionPool.class.getName() + ".busyThreshold", "8")));
+
+	/**
+	 * Maximum number of open connections to other nodes. Connections from other nodes are limited by each {@link SocketEndpoint} separately.
+	 */
+	static final int MAX_CONNECTIONS = Math.max(1, Integer.parseInt(System.getProperty(ConnectionPool.class.getName() + ".maxConnections", "1024")));
+
+	/**
+	 * Time in milliseconds after which an unused connection is closed.
+	 */
+	static final long IDLE_TIMEOUT = Long.parseLong(System.getProperty(ConnectionPool.class.getName() + ".idleTimeout", "60000"));
+
+	private static final Logger logger = Logger.getLogger(ConnectionPool.class);
+
+	/**
+	 * Connections by remote URL. Arrays are replaced, not modified, while holding {@link #lock}, so that they can be read without locking.
+	 */
+	private final Map<URL, Connection[]> connections = new ConcurrentHashMap<URL, Connection[]>();
+
+	/**
+	 * Lock held while connections are added or removed. A lock is used instead of a monitor, so that virtual threads waiting for it do not pin their carrier
+	 * thread.
+	 */
+	private final Lock lock = new ReentrantLock();
+
+	/**
+	 * Number of connections in {@link #connections}. Guarded by {@link #lock}.
+	 */
+	private int size = 0;
+
+	/**
+	 * Time in milliseconds when idle connections have been looked for the last time.
+	 */
+	private volatile long lastEviction = System.currentTimeMillis();
+
+	/**
+	 * Returns a connection to the given node for one invocation. The connection must be released with {@link #release(Connection)} when the response has been
+	 * received.
+	 *
+	 * @param url
+	 *            URL of the remote node.
+	 * @return An open connection to <code>url</code>.
+	 * @throws CommunicationException
+	 *             If no connection could be opened.
+	 */
+	final Connection acquire(URL url) throws CommunicationException {
+		this.evictIdle();
+		while (true) {
+			Connection[] current = this.connections.get(url);
+			Connection chosen = leastLoaded(current);
+			if (chosen == null || (chosen.getInFlight() >= BUSY_THRESHOLD && current.length < CHANNELS_PER_PEER)) {
+				chosen = this.addConnection(url);
+			}
+			if (chosen.reserve()) {
+				try {
+					chosen.open();
+				} catch (CommunicationException e) {
+					this.release(chosen);
+					this.remove(chosen);
+					throw e;
+				}
+				return chosen;
+			}
+			/* evicted meanwhile */
+		}
+	}
+
+	/**
+	 * Ends an invocation using the given connection.
+	 *
+	 * @param connection
+	 *            Connection returned by {@link #acquire(URL)}.
+	 */
+	final void release(Connection connection) {
+		connection.release();
+	}
+
+	/**
+	 * @param candidates
+	 *            May be <code>null</code>.
+	 * @return The open connection used by the least invocations; <code>null</code> if there is none.
+	 */
+	private static Connection leastLoaded(Connection[] candidates) {
+		Connection result = null;
+		if (candidates != null) {
+			for (Connection next : candidates) {
+				if (!next.isClosed() && (result == null || next.getInFlight() < result.getInFlight())) {
+					result = next;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a connection to the given node, unless another thread has done so meanwhile.
+	 *
+	 * @param url
+	 * @return Connection to use for the node; a busy one if no further connection can be opened.
+	 * @throws CommunicationException
+	 *             If {@link #MAX_CONNECTIONS} connections are in use and none exists to the given node.
+	 */
+	private Connection addConnection(URL url) throws CommunicationException {
+		List<Connection> toClose = new ArrayList<Connection>();
+		Connection result;
+		this.lock.lock();
+		try {
+			this.removeClosed(url);
+			Connection[] current = this.connections.get(url);
+			result = leastLoaded(current);
+			if (result != null && (result.getInFlight() < BUSY_THRESHOLD || current.length >= CHANNELS_PER_PEER)) {
+				return result;
+			}
+			if (this.size >= MAX_CONNECTIONS) {
+				this.removeClosed();
+			}
+			if (this.size >= MAX_CONNECTIONS) {
+				Connection evicted = this.evictLeastRecentlyUsed();
+				if (evicted != null) {
+					toClose.add(evicted);
+				} else if (result != null) {
+					return result;
+				} else {
+					throw new CommunicationException("Cannot connect to " + url + ", as " + MAX_CONNECTIONS + " connections are in use!");
+				}
+			}
+			result = new Connection(url);
+			this.put(url, result);
+		} finally {
+			this.lock.unlock();
+			for (Connection next : toClose) {
+				next.close();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Closes connections which have not been used for {@link #IDLE_TIMEOUT} milliseconds. Looks for them at most twice per timeout, and only if no other
+	 * thread is doing so.
+	 */
+	private void evictIdle() {
+		long now = System.currentTimeMillis();
+		if (now - this.lastEviction < IDLE_TIMEOUT / 2 || !this.lock.tryLock()) {
+			return;
+		}
+		List<Connection> toClose = new ArrayList<Connection>();
+		try {
+			this.lastEviction = now;
+			for (Connection[] peer : this.connections.values()) {
+				for (Connection next : peer) {
+					if (next.isClosed() || (now - next.getLastUsed() >= IDLE_TIMEOUT && next.evict())) {
+						toClose.add(next);
+					}
+				}
+			}
+			for (Connection next : toClose) {
+				this.removeLocked(next);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+		for (Connection next : toClose) {
+			if (!next.isClosed()) {
+				logger.debug("Closing idle " + next);
+				next.close();
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently used idle connection. Must be invoked while holding {@link #lock}.
+	 *
+	 * @return The removed connection, which must be closed by the caller; <code>null</code> if all connections are busy.
+	 */
+	private Connection evictLeastRecentlyUsed() {
+		while (true) {
+			Connection candidate = null;
+			for (Connection[] peer : this.connections.values()) {
+				for (Connection next : peer) {
+					if (next.getInFlight() == 0 && (candidate == null || next.getLastUsed() < candidate.getLastUsed())) {
+						candidate = next;
+					}
+				}
+			}
+			if (candidate == null) {
+				return null;
+			}
+			if (candidate.evict()) {
+				this.removeLocked(candidate);
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Removes all closed connections. Must be invoked while holding {@link #lock}.
+	 */
+	private void removeClosed() {
+		for (Connection[] peer : this.connections.values()) {
+			for (Connection next : peer) {
+				if (next.isClosed()) {
+					this.removeLocked(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes closed connections to the given node. Must be invoked while holding {@link #lock}.
+	 *
+	 * @param url
+	 */
+	private void removeClosed(URL url) {
+		Connection[] current = this.connections.get(url);
+		if (current != null) {
+			for (Connection next : current) {
+				if (next.isClosed()) {
+					this.removeLocked(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the given connection from this pool without closing it.
+	 *
+	 * @param connection
+	 */
+	private void remove(Connection connection) {
+		this.lock.lock();
+		try {
+			this.removeLocked(connection);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Must be invoked while holding {@link #lock}.
+	 *
+	 * @param url
+	 * @param connection
+	 */
+	private void put(URL url, Connection connection) {
+		Connection[] current = this.connections.get(url);
+		Connection[] updated;
+		if (current == null) {
+			updated = new Connection[] { connection };
+		} else {
+			updated = new Connection[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = connection;
+		}
+		this.connections.put(url, updated);
+		this.size++;
+	}
+
+	/**
+	 * Must be invoked while holding {@link #lock}.
+	 *
+	 * @param connection
+	 */
+	private void removeLocked(Connection connection) {
+		Connection[] current = this.connections.get(connection.getUrl());
+		if (current == null) {
+			return;
+		}
+		List<Connection> remaining = new ArrayList<Connection>(current.length);
+		for (Connection next : current) {
+			if (next != connection) {
+				remaining.add(next);
+			}
+		}
+		if (remaining.size() == current.length) {
+			return;
+		}
+		if (remaining.isEmpty()) {
+			this.connections.remove(connection.getUrl());
+		} else {
+			this.connections.put(connection.getUrl(), remaining.toArray(new Connection[remaining.size()]));
+		}
+		this.size--;
+	}
+
+	/**
+	 * Closes all connections.
+	 */
+	final void closeAll() {
+		List<Connection> toClose = new ArrayList<Connection>();
+		this.lock.lock();
+		try {
+			for (Connection[] peer : this.connections.values()) {
+				for (Connection next : peer) {
+					toClose.add(next);
+				}
+			}
+			this.connections.clear();
+			this.size = 0;
+		} finally {
+			this.lock.unlock();
+		}
+		for (Connection next : toClose) {
+			next.close();
+		}
+	}
+
+}
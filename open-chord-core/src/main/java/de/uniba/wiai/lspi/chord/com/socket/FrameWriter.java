@@ -0,0 +1,175 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes messages to the output stream of one connection. Threads sending concurrently enqueue their messages, and the thread that obtains the lock writes
+ * the enqueued messages up to and including its own into a buffer, which is flushed to the socket with a single write. So, messages sent at the same time
+ * share one system call and as few TCP segments as possible instead of one each, while no thread writes messages enqueued after its own. A thread returns
+ * from {@link #write(Serializable)} as soon as its message has been flushed, no matter which thread has written it.
+ *
+ * @version 1.0.5
+ */
+final class FrameWriter {
+
+	/**
+	 * Size of the buffer in which messages are gathered before they are written to the socket.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	private final ObjectOutputStream out;
+
+	/**
+	 * Messages which have not been written yet.
+	 */
+	private final Queue<Frame> frames = new ConcurrentLinkedQueue<Frame>();
+
+	/**
+	 * Lock held while writing to {@link #out}. A lock is used instead of a monitor, so that virtual threads blocked on writing do not pin their carrier
+	 * thread.
+	 */
+	private final Lock lock = new ReentrantLock();
+
+	/**
+	 * Guarded by {@link #lock}.
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Tells whether large messages carrying entries are compressed; set when the other side has announced to accept {@link CompressedMessage compressed
+	 * messages}.
+	 */
+	private volatile boolean compression = false;
+
+	/**
+	 * Creates a writer for the given stream and sends the header of the object stream, which the other side waits for.
+	 *
+	 * @param stream
+	 *            Output stream of a socket.
+	 * @throws IOException
+	 *             If the header could not be sent.
+	 */
+	FrameWriter(OutputStream stream) throws IOException {
+		this.out = new ObjectOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the given message and returns when it has been flushed to the socket.
+	 *
+	 * @param message
+	 *            Message to send.
+	 * @throws IOException
+	 *             If the message could not be written or this writer has been closed.
+	 */
+	void write(Serializable message) throws IOException {
+		if (this.compression) {
+			// compress in the calling thread, not while holding the lock
+			message = CompressedMessage.compress(message);
+		}
+		Frame frame = new Frame(message);
+		this.frames.add(frame);
+		this.lock.lock();
+		try {
+			if (!frame.written && frame.failure == null) {
+				this.drain(frame);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+		if (frame.failure != null) {
+			throw frame.failure;
+		}
+	}
+
+	/**
+	 * Writes the enqueued messages up to and including the given one and flushes them. Must be invoked while holding {@link #lock}.
+	 *
+	 * @param last
+	 *            Enqueued frame of the invoking thread.
+	 */
+	private void drain(Frame last) {
+		List<Frame> batch = new ArrayList<Frame>();
+		try {
+			Frame next;
+			do {
+				next = this.frames.poll();
+				batch.add(next);
+				if (this.closed) {
+					throw new IOException("Connection has been closed.");
+				}
+				this.out.writeObject(next.message);
+				// do not keep references on written objects
+				this.out.reset();
+			} while (next != last);
+			this.out.flush();
+			for (Frame written : batch) {
+				written.written = true;
+			}
+		} catch (IOException e) {
+			// also fail messages which have not been polled yet, as the stream
+			// cannot be used anymore
+			Frame next;
+			while ((next = this.frames.poll()) != null) {
+				batch.add(next);
+			}
+			for (Frame failed : batch) {
+				failed.failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Compresses large messages carrying entries from now on.
+	 */
+	void enableCompression() {
+		this.compression = true;
+	}
+
+	/**
+	 * Closes the underlying stream. Messages written afterwards fail.
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		this.lock.lock();
+		try {
+			this.closed = true;
+			this.out.close();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * A message and the result of writing it, both guarded by {@link FrameWriter#lock}.
+	 */
+	private static final class Frame {
+
+		private final Serializable message;
+
+		private boolean written = false;
+
+		private IOException failure = null;
+
+		Frame(Serializable message) {
+			this.message = message;
+		}
+	}
+
+}
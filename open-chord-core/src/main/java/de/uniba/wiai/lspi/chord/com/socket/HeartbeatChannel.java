@@ -0,0 +1,338 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Datagram channel for probing the liveness of nodes, bound to the UDP port with the number of the TCP port of a {@link SocketEndpoint}. A probe and its
+ * acknowledgement are datagrams of a magic number, the message type, a sequence number matching the acknowledgement to the probe, and the ID of the probed
+ * node. A channel acknowledges only probes for the ID of its own node, and an acknowledgement only counts if it carries the ID the probe was sent for, so that
+ * another node which has taken over the port of a failed node does not answer for it. Probes are answered by the thread receiving them, so that they
+ * neither wait for a connection nor for an invocation thread.<br/>
+ * Probes are sent by {@link SocketProxy#probe()} from one socket shared by all proxies in this JVM, which is closed together with the last channel. A probe
+ * that is not acknowledged does not prove anything, as datagrams may be lost or the probed node may not run a heartbeat channel; the proxy then pings the
+ * node over its connection.
+ *
+ * @version 1.0.5
+ */
+final class HeartbeatChannel implements Runnable {
+
+	/**
+	 * Tells whether endpoints answer probes and proxies send them.
+	 */
+	static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(HeartbeatChannel.class.getName() + ".enabled", "true"));
+
+	/**
+	 * Time in milliseconds to wait for the acknowledgement of a probe.
+	 */
+	private static final long TIMEOUT = Long.parseLong(System.getProperty(HeartbeatChannel.class.getName() + ".timeout", "200"));
+
+	/**
+	 * Number of probes sent before a node is pinged over its connection.
+	 */
+	private static final int ATTEMPTS = Math.max(1, Integer.parseInt(System.getProperty(HeartbeatChannel.class.getName() + ".attempts", "2")));
+
+	/**
+	 * "OCHB"
+	 */
+	private static final int MAGIC = 0x4F434842;
+
+	private static final byte PROBE = 1;
+
+	private static final byte ACKNOWLEDGEMENT = 2;
+
+	/**
+	 * Length of the header of probes and acknowledgements: magic number, type, and sequence number. The ID of the probed node follows.
+	 */
+	private static final int HEADER_LENGTH = 4 + 1 + 8;
+
+	/**
+	 * Maximum length of probes and acknowledgements, which allows for IDs of up to 512 bits.
+	 */
+	private static final int MAX_LENGTH = HEADER_LENGTH + 65;
+
+	private static final Logger logger = Logger.getLogger(HeartbeatChannel.class);
+
+	/**
+	 * Socket probes are sent from; created with the first probe.
+	 */
+	private static DatagramSocket prober = null;
+
+	/**
+	 * Number of open channels; guarded by {@link #proberLock}.
+	 */
+	private static int channels = 0;
+
+	/**
+	 * Lock protecting {@link #prober} and {@link #channels}.
+	 */
+	private static final Lock proberLock = new ReentrantLock();
+
+	private static final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Probes waiting for acknowledgements by their sequence numbers.
+	 */
+	private static final ConcurrentMap<Long, Probe> pending = new ConcurrentHashMap<Long, Probe>();
+
+	/**
+	 * Socket probes of other nodes are received on.
+	 */
+	private final DatagramSocket socket;
+
+	/**
+	 * ID of the local node as sent in probes.
+	 */
+	private final BigInteger nodeID;
+
+	private HeartbeatChannel(DatagramSocket socket1, ID nodeID1) {
+		this.socket = socket1;
+		this.nodeID = nodeID1.toBigInteger();
+	}
+
+	/**
+	 * Opens a heartbeat channel for the endpoint with the given URL and starts answering probes.
+	 *
+	 * @param url
+	 *            URL of a {@link SocketEndpoint}.
+	 * @param nodeID
+	 *            ID of the node of the endpoint.
+	 * @return The channel; <code>null</code> if heartbeat channels are disabled or the port is not available, in which case probes of other nodes are not
+	 *         acknowledged and those nodes ping the local node instead.
+	 */
+	static HeartbeatChannel open(URL url, ID nodeID) {
+		if (!ENABLED) {
+			return null;
+		}
+		try {
+			HeartbeatChannel channel = new HeartbeatChannel(new DatagramSocket(url.getPort()), nodeID);
+			proberLock.lock();
+			try {
+				channels++;
+			} finally {
+				proberLock.unlock();
+			}
+			ThreadFactories.newThread(channel, "HeartbeatChannel_" + url).start();
+			return channel;
+		} catch (SocketException e) {
+			logger.warn("Could not open heartbeat channel on UDP port " + url.getPort() + "; other nodes will ping " + url + " instead.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stops answering probes. Closes the socket probes are sent from if this has been the last open channel.
+	 */
+	void close() {
+		if (this.socket.isClosed()) {
+			return;
+		}
+		this.socket.close();
+		proberLock.lock();
+		try {
+			if (--channels == 0 && prober != null) {
+				prober.close();
+				prober = null;
+			}
+		} finally {
+			proberLock.unlock();
+		}
+	}
+
+	/**
+	 * Answers probes until this channel is closed.
+	 */
+	public void run() {
+		byte[] buffer = new byte[MAX_LENGTH];
+		DatagramPacket packet = new DatagramPacket(buffer, MAX_LENGTH);
+		while (!this.socket.isClosed()) {
+			try {
+				packet.setLength(MAX_LENGTH);
+				this.socket.receive(packet);
+				ByteBuffer message = ByteBuffer.wrap(buffer, 0, packet.getLength());
+				if (packet.getLength() > HEADER_LENGTH && message.getInt() == MAGIC && message.get() == PROBE) {
+					// skip the sequence number, which is sent back as it is
+					message.getLong();
+					if (this.nodeID.equals(readID(message))) {
+						buffer[4] = ACKNOWLEDGEMENT;
+						this.socket.send(packet);
+					}
+				}
+			} catch (IOException e) {
+				if (!this.socket.isClosed()) {
+					logger.warn("Could not answer probe!", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param message
+	 *            Probe or acknowledgement positioned at the ID.
+	 * @return The ID contained in the rest of <code>message</code>.
+	 */
+	private static BigInteger readID(ByteBuffer message) {
+		byte[] id = new byte[message.remaining()];
+		message.get(id);
+		return new BigInteger(id);
+	}
+
+	/**
+	 * Probes the node with the given URL and ID and waits for its acknowledgement.
+	 *
+	 * @param url
+	 *            URL of the node to probe.
+	 * @param nodeID
+	 *            ID of the node to probe; may be <code>null</code> if it is not known.
+	 * @return <code>true</code> if the node has acknowledged a probe; <code>false</code> if none of {@link #ATTEMPTS} probes has been acknowledged within
+	 *         {@link #TIMEOUT} milliseconds, the ID of the node is not known, or heartbeat channels are disabled.
+	 */
+	static boolean probe(URL url, ID nodeID) {
+		if (!ENABLED || nodeID == null) {
+			return false;
+		}
+		byte[] id = nodeID.toBigInteger().toByteArray();
+		if (HEADER_LENGTH + id.length > MAX_LENGTH) {
+			return false;
+		}
+		DatagramSocket socket = getProber();
+		InetSocketAddress address = new InetSocketAddress(url.getHost(), url.getPort());
+		if (socket == null || address.isUnresolved()) {
+			return false;
+		}
+		for (int i = 0; i < ATTEMPTS; i++) {
+			long next = sequence.incrementAndGet();
+			Probe probe = new Probe(nodeID.toBigInteger());
+			pending.put(next, probe);
+			try {
+				int length = HEADER_LENGTH + id.length;
+				byte[] message = ByteBuffer.allocate(length).putInt(MAGIC).put(PROBE).putLong(next).put(id).array();
+				socket.send(new DatagramPacket(message, length, address));
+				if (probe.acknowledged.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			} catch (IOException e) {
+				logger.debug("Could not send probe to " + url, e);
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				pending.remove(next);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The socket probes are sent from, which is created together with the thread receiving acknowledgements if necessary; <code>null</code> if it
+	 *         could not be created.
+	 */
+	private static DatagramSocket getProber() {
+		proberLock.lock();
+		try {
+			if (prober == null) {
+				final DatagramSocket socket = new DatagramSocket();
+				ThreadFactories.create("HeartbeatChannel_Prober", true).newThread(new Runnable() {
+					public void run() {
+						receiveAcknowledgements(socket);
+					}
+				}).start();
+				prober = socket;
+			}
+			return prober;
+		} catch (SocketException e) {
+			logger.warn("Could not open socket for probes; nodes will be pinged instead.", e);
+			return null;
+		} finally {
+			proberLock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the threads waiting for acknowledgements received on the given socket until it is closed. If the socket fails, it is closed, so that the next
+	 * probe opens a new one.
+	 *
+	 * @param socket
+	 */
+	private static void receiveAcknowledgements(DatagramSocket socket) {
+		byte[] buffer = new byte[MAX_LENGTH];
+		DatagramPacket packet = new DatagramPacket(buffer, MAX_LENGTH);
+		while (!socket.isClosed()) {
+			try {
+				packet.setLength(MAX_LENGTH);
+				socket.receive(packet);
+				ByteBuffer message = ByteBuffer.wrap(buffer, 0, packet.getLength());
+				if (packet.getLength() > HEADER_LENGTH && message.getInt() == MAGIC && message.get() == ACKNOWLEDGEMENT) {
+					long acknowledgedSequence = message.getLong();
+					Probe probe = pending.get(acknowledgedSequence);
+					if (probe != null && probe.nodeID.equals(readID(message)) && pending.remove(acknowledgedSequence, probe)) {
+						probe.acknowledged.countDown();
+					}
+				}
+			} catch (IOException e) {
+				if (!socket.isClosed()) {
+					logger.warn("Could not receive acknowledgement of probe; opening a new socket for probes.", e);
+					closeProber(socket);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the given socket for probes and forgets it, unless it has been replaced meanwhile.
+	 *
+	 * @param socket
+	 */
+	private static void closeProber(DatagramSocket socket) {
+		proberLock.lock();
+		try {
+			socket.close();
+			if (prober == socket) {
+				prober = null;
+			}
+		} finally {
+			proberLock.unlock();
+		}
+	}
+
+	/**
+	 * A probe waiting for its acknowledgement.
+	 */
+	private static final class Probe {
+
+		/**
+		 * ID of the probed node.
+		 */
+		final BigInteger nodeID;
+
+		final CountDownLatch acknowledged = new CountDownLatch(1);
+
+		Probe(BigInteger nodeID1) {
+			this.nodeID = nodeID1;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.Serializable;
+
+import de.uniba.wiai.lspi.chord.data.ID;
+
+/**
+ * Exchanged by {@link SocketProxy} and {@link RequestHandler} when a connection is established. It tells the other side the version of the protocol and the
+ * optional methods the sending node supports, and the handler also tells the ID of its node. The proxy sends its hello as parameters of the
+ * {@link MethodConstants#CONNECT} request, which consist of {@link Integer}s only (see {@link #toParameters()}), so that nodes that do not know this class
+ * can read the request and ignore them. The handler sends its hello as result of the response only if it has received one. As the proxy does not wait for
+ * the response before sending further requests, and the ID of the remote node is taken from the response, a new connection costs no additional round
+ * trip.<br/>
+ * Nodes that do not send a hello are treated as supporting none of the {@link #capabilities}.
+ *
+ * @version 1.0.5
+ */
+final class Hello implements Serializable {
+
+	private static final long serialVersionUID = 4153712695624379451L;
+
+	/**
+	 * Version of the protocol spoken by this implementation. Connections to nodes speaking another version are refused.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Capability of a node to answer {@link MethodConstants#COPY_ENTRIES}.
+	 */
+	static final int COPY_ENTRIES = 1;
+
+	/**
+	 * Capability of a node to answer {@link MethodConstants#STABILIZE}.
+	 */
+	static final int STABILIZE = 1 << 1;
+
+	/**
+	 * Capability of a node to receive {@link CompressedMessage compressed messages}.
+	 */
+	static final int COMPRESSION = 1 << 2;
+
+	/**
+	 * Capability of a node to answer {@link MethodConstants#EXCHANGE_EVENTS}.
+	 */
+	static final int EXCHANGE_EVENTS = 1 << 3;
+
+	/**
+	 * Capabilities of this implementation.
+	 */
+	static final int CAPABILITIES = COPY_ENTRIES | STABILIZE | EXCHANGE_EVENTS | (CompressedMessage.ENABLED ? COMPRESSION : 0);
+
+	/**
+	 * ID of the sending node; <code>null</code> if sent by a proxy, whose connection may be shared by several local nodes.
+	 */
+	private final ID nodeID;
+
+	private final int version;
+
+	private final int capabilities;
+
+	/**
+	 * Creates a hello for a node of this implementation.
+	 *
+	 * @param nodeID1
+	 *            ID of the sending node; may be <code>null</code>.
+	 */
+	Hello(ID nodeID1) {
+		this(nodeID1, VERSION, CAPABILITIES);
+	}
+
+	private Hello(ID nodeID1, int version1, int capabilities1) {
+		this.nodeID = nodeID1;
+		this.version = version1;
+		this.capabilities = capabilities1;
+	}
+
+	/**
+	 * @return Parameters of a {@link MethodConstants#CONNECT} request that carry the hello of a proxy of this implementation.
+	 */
+	static Serializable[] toParameters() {
+		return new Serializable[] { Integer.valueOf(VERSION), Integer.valueOf(CAPABILITIES) };
+	}
+
+	/**
+	 * Reads the hello of a proxy from the parameters of a {@link MethodConstants#CONNECT} request.
+	 *
+	 * @param parameters
+	 *            Parameters of the request; may be <code>null</code>.
+	 * @return Hello without node ID; <code>null</code> if the proxy has not sent a hello.
+	 */
+	static Hello fromParameters(Serializable[] parameters) {
+		if (parameters == null || parameters.length < 2 || !(parameters[0] instanceof Integer) || !(parameters[1] instanceof Integer)) {
+			return null;
+		}
+		return new Hello(null, ((Integer) parameters[0]).intValue(), ((Integer) parameters[1]).intValue());
+	}
+
+	/**
+	 * @return ID of the sending node; may be <code>null</code>.
+	 */
+	ID getNodeID() {
+		return this.nodeID;
+	}
+
+	/**
+	 * @return Version of the protocol spoken by the sending node.
+	 */
+	int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @param capability
+	 *            One of the capability constants of this class.
+	 * @return <code>true</code> if the sending node supports the given capability.
+	 */
+	boolean supports(int capability) {
+		return (this.capabilities & capability) == capability;
+	}
+
+	@Override
+	public String toString() {
+		return "[Hello " + this.nodeID + ", version " + this.version + ", capabilities " + this.capabilities + "]";
+	}
+
+}
@@ -13,13 +13,15 @@ package de.uniba.wiai.lspi.chord.com.socket;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import de.uniba.wiai.lspi.util.concurrent.BoundedExecutor;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -31,12 +33,13 @@ import de.uniba.wiai.lspi.util.logging.Logger;
 class InvocationThread implements Runnable {
 
 	/**
-	 * Name of property which defines the number of threads in pool created by {@link #createInvocationThreadPool()}.
+	 * Name of property which defines the number of threads in pool created by {@link #createDataThreadPool()}.
 	 */
 	protected static final String CORE_POOL_SIZE_PROPERTY_NAME = InvocationThread.class.getName() + ".corepoolsize";
 
 	/**
-	 * Name of property which defines the maximum number of threads in pool created by {@link #createInvocationThreadPool()}.
+	 * Name of property which defines the maximum number of threads in pool created by {@link #createDataThreadPool()}, and the maximum number of virtual
+	 * threads executing invocations of either pool at the same time.
 	 */
 	protected static final String MAX_POOL_SIZE_PROPERTY_NAME = InvocationThread.class.getName() + ".maxpoolsize";
 
@@ -46,20 +49,41 @@ class InvocationThread implements Runnable {
 	protected static final String KEEP_ALIVE_TIME_PROPERTY_NAME = InvocationThread.class.getName() + ".keepalivetime";
 
 	/**
-	 * The number of core threads in ThreadPool created by {@link #createInvocationThreadPool()}.
+	 * Name of property which defines the number of threads in pool created by {@link #createInvocationThreadPool()}.
+	 */
+	protected static final String MAINTENANCE_POOL_SIZE_PROPERTY_NAME = InvocationThread.class.getName() + ".maintenancepoolsize";
+
+	/**
+	 * Name of property which defines the number of invocations of data methods that may wait for a thread of the pool created by
+	 * {@link #createDataThreadPool()}.
+	 */
+	protected static final String DATA_QUEUE_SIZE_PROPERTY_NAME = InvocationThread.class.getName() + ".dataqueuesize";
+
+	/**
+	 * The number of core threads in ThreadPool created by {@link #createDataThreadPool()}.
 	 */
 	private static final int CORE_POOL_SIZE = Integer.parseInt(System.getProperty(CORE_POOL_SIZE_PROPERTY_NAME));
 
 	/**
-	 * The maximum number of threads in ThreadPool created by {@link #createInvocationThreadPool()}.
+	 * The maximum number of threads in ThreadPool created by {@link #createDataThreadPool()}.
 	 */
 	private static final int MAX_POOL_SIZE = Integer.parseInt(System.getProperty(MAX_POOL_SIZE_PROPERTY_NAME));
 
 	/**
-	 * The time threads in ThreadPool created by {@link #createInvocationThreadPool()} can be idle before being terminated.
+	 * The time threads in ThreadPools created by this class can be idle before being terminated.
 	 */
 	private static final int KEEP_ALIVE_TIME = Integer.parseInt(System.getProperty(KEEP_ALIVE_TIME_PROPERTY_NAME));
 
+	/**
+	 * The number of threads in ThreadPool created by {@link #createInvocationThreadPool()}.
+	 */
+	private static final int MAINTENANCE_POOL_SIZE = Integer.parseInt(System.getProperty(MAINTENANCE_POOL_SIZE_PROPERTY_NAME, "5"));
+
+	/**
+	 * The capacity of the queue of ThreadPool created by {@link #createDataThreadPool()}.
+	 */
+	private static final int DATA_QUEUE_SIZE = Integer.parseInt(System.getProperty(DATA_QUEUE_SIZE_PROPERTY_NAME, "500"));
+
 	/**
 	 * The logger for instances of this class.
 	 */
@@ -77,30 +101,51 @@ class InvocationThread implements Runnable {
 	 */
 	private RequestHandler handler;
 
-	/**
-	 * The {@link ObjectOutputStream} to write the results of the invocation to.
-	 */
-	private ObjectOutputStream out;
-
 	/**
 	 * @param handler1
-	 *            Reference to {@link RequestHandler} that started this.
+	 *            Reference to {@link RequestHandler} that started this and to which the result of the invocation is passed.
 	 * @param request1
 	 *            The {@link Request} that caused this invocation to be started.
-	 * @param out1
-	 *            The stream to which to write the result of the invocation.
 	 */
-	InvocationThread(RequestHandler handler1, Request request1, ObjectOutputStream out1) {
+	InvocationThread(RequestHandler handler1, Request request1) {
 		this.handler = handler1;
 		this.request = request1;
-		this.out = out1;
 		// schedule this for execution
-		this.handler.getEndpoint().scheduleInvocation(this);
+		this.handler.getEndpoint().scheduleInvocation(this.handler, this);
 		if (debug) {
 			logger.debug("InvocationThread scheduled for request " + request1);
 		}
 	}
 
+	/**
+	 * @return The identifier of the requested method.
+	 */
+	int getRequestType() {
+		return this.request.getRequestType();
+	}
+
+	/**
+	 * Answers the request with a failure response instead of invoking the requested method.
+	 *
+	 * @param reason
+	 *            Reason for not invoking the method.
+	 */
+	void reject(String reason) {
+		this.handler.sendFailureResponse(null, reason, this.request);
+		this.handler = null;
+	}
+
+	/**
+	 * Answers the request with a response telling the requestor to repeat it later instead of invoking the requested method.
+	 *
+	 * @param retryAfter
+	 *            Time in milliseconds after which the request may be repeated.
+	 */
+	void rejectOverloaded(long retryAfter) {
+		this.handler.sendOverloadedResponse(this.request, retryAfter);
+		this.handler = null;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
@@ -113,7 +158,7 @@ class InvocationThread implements Runnable {
 
 	/**
 	 * This <code>run</code>-method invokes the Method that is assigned to it by {@link Request} provided in its
-	 * {@link #InvocationThread(RequestHandler, Request, ObjectOutputStream) constructor}.
+	 * {@link #InvocationThread(RequestHandler, Request) constructor}.
 	 */
 	public void run() {
 		if (debug) {
@@ -133,11 +178,7 @@ class InvocationThread implements Runnable {
 			/* Send result of requested method back to requestor. */
 			Response response = new Response(Response.REQUEST_SUCCESSFUL, requestType, this.request.getReplyWith());
 			response.setResult(result);
-			synchronized (this.out) {
-				this.out.writeObject(response);
-				this.out.flush();
-				this.out.reset();
-			}
+			this.handler.sendResponse(response);
 			logger.debug("Method invoked and result has been sent.");
 		} catch (IOException e) {
 			if (this.handler.connected) {
@@ -153,28 +194,39 @@ class InvocationThread implements Runnable {
 		}
 		//		this.request = null;
 		this.handler = null;
-		this.out = null;
 		if (debug) {
 			logger.debug(this + " finished");
 		}
 	}
 
 	/**
-	 * Creates a ThreadPool that is used by the {@link SocketEndpoint} to execute instances of this class.
+	 * Creates a ThreadPool that is used by the {@link SocketEndpoint} to execute instances of this class which invoke maintenance methods (see
+	 * {@link MethodConstants#isMaintenance(int)}). Maintenance methods are invoked less often than data methods, so the pool has only
+	 * {@link #MAINTENANCE_POOL_SIZE} threads. If virtual threads are used (see {@link ThreadFactories}), every invocation is executed by a virtual thread of
+	 * its own instead, and at most {@link #MAX_POOL_SIZE} of them run at the same time.
 	 *
 	 * @return A ThreadPool that is used by the {@link SocketEndpoint} to execute instances of this class.
 	 */
-	static ThreadPoolExecutor createInvocationThreadPool() {
-		return new ThreadPoolExecutor(CORE_POOL_SIZE, MAX_POOL_SIZE, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
-
-			private static final String name = "InvocationExecution-";
-
-			public Thread newThread(Runnable r) {
-				Thread newThread = new Thread(r);
-				newThread.setName(name + newThread.getName());
-				return newThread;
-			}
+	static ExecutorService createInvocationThreadPool() {
+		if (ThreadFactories.isVirtual()) {
+			return new BoundedExecutor(ThreadFactories.newExecutor("InvocationExecution", MAX_POOL_SIZE, false), MAX_POOL_SIZE, BoundedExecutor.UNBOUNDED);
+		}
+		return new ThreadPoolExecutor(MAINTENANCE_POOL_SIZE, MAINTENANCE_POOL_SIZE, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				ThreadFactories.create("InvocationExecution", false));
+	}
 
-		});
+	/**
+	 * Creates a ThreadPool that is used by the {@link SocketEndpoint} to execute instances of this class which invoke data methods, so that they cannot delay
+	 * maintenance methods. At most {@link #DATA_QUEUE_SIZE} invocations wait for a thread; further invocations are rejected. If virtual threads are used,
+	 * every invocation is executed by a virtual thread of its own instead, but the same bounds apply.
+	 *
+	 * @return A ThreadPool that is used by the {@link SocketEndpoint} to execute instances of this class.
+	 */
+	static ExecutorService createDataThreadPool() {
+		if (ThreadFactories.isVirtual()) {
+			return new BoundedExecutor(ThreadFactories.newExecutor("DataInvocationExecution", MAX_POOL_SIZE, false), MAX_POOL_SIZE, DATA_QUEUE_SIZE);
+		}
+		return new ThreadPoolExecutor(CORE_POOL_SIZE, MAX_POOL_SIZE, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(DATA_QUEUE_SIZE),
+				ThreadFactories.create("DataInvocationExecution", false));
 	}
 }
\ No newline at end of file
@@ -92,12 +92,27 @@ final class MethodConstants {
 	 */
 	static final int SHUTDOWN = 11;
 
+	/**
+	 * Integer constant used to identify method <code>stabilize</code>.
+	 */
+	static final int STABILIZE = 12;
+
+	/**
+	 * Integer constant used to identify method <code>copyEntries</code>.
+	 */
+	static final int COPY_ENTRIES = 13;
+
+	/**
+	 * Integer constant used to identify method <code>exchangeEvents</code>.
+	 */
+	static final int EXCHANGE_EVENTS = 14;
+
 	/**
 	 * Array containing names of methods of {@link de.uniba.wiai.lspi.chord.com.Node}. A name of a method can be accessed by using the constant identifying the
 	 * method as an index into this array.
 	 */
 	static final String[] METHOD_NAMES = new String[] { "findSuccessor", "getNodeID", "insertEntry", "insertReplicas", "leavesNetwork", "notify", "notifyAndCopyEntries", "ping", "removeEntry",
-		"removeReplicas", "retrieveEntries", "shutdown" };
+		"removeReplicas", "retrieveEntries", "shutdown", "stabilize", "copyEntries", "exchangeEvents" };
 
 	/**
 	 * Used to get the name of a method for a method identifier.
@@ -110,4 +125,27 @@ final class MethodConstants {
 		return METHOD_NAMES[methodIdentifier];
 	}
 
+	/**
+	 * Determines whether a method maintains the Chord overlay network, as opposed to methods transferring entries. Invocations of maintenance methods are small
+	 * and must be answered in time, so that nodes are not suspected to have failed.
+	 *
+	 * @param methodIdentifier
+	 *            The identifier of the method.
+	 * @return <code>true</code> if the method maintains the overlay network.
+	 */
+	static boolean isMaintenance(int methodIdentifier) {
+		switch (methodIdentifier) {
+		case FIND_SUCCESSOR:
+		case GET_NODE_ID:
+		case LEAVES_NETWORK:
+		case NOTIFY:
+		case PING:
+		case STABILIZE:
+		case EXCHANGE_EVENTS:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 }
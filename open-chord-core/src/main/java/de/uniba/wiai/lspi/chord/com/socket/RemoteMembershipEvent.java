@@ -0,0 +1,70 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.Serializable;
+
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
+
+/**
+ * This class represents a {@link MembershipEvent} that has to be transferred between two nodes. The node the event concerns is represented by a
+ * {@link RemoteNodeInfo}.
+ *
+ * @version 1.0.5
+ */
+final class RemoteMembershipEvent implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 3920736915207381174L;
+
+	/**
+	 * The node the event concerns.
+	 */
+	protected RemoteNodeInfo nodeInfo;
+
+	/**
+	 * The type of the event.
+	 */
+	protected MembershipEvent.Type type;
+
+	/**
+	 * The incarnation of the node the event concerns.
+	 */
+	protected long incarnation;
+
+	/**
+	 * @param event
+	 *            The event to represent.
+	 */
+	protected RemoteMembershipEvent(MembershipEvent event) {
+		this.nodeInfo = new RemoteNodeInfo(event.getNode().getUrl(), event.getNode().getId());
+		this.type = event.getType();
+		this.incarnation = event.getIncarnation();
+	}
+
+	/**
+	 * @return Returns the nodeInfo.
+	 */
+	protected RemoteNodeInfo getNodeInfo() {
+		return this.nodeInfo;
+	}
+
+	/**
+	 * @return Returns the type.
+	 */
+	protected MembershipEvent.Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return Returns the incarnation.
+	 */
+	protected long getIncarnation() {
+		return this.incarnation;
+	}
+}
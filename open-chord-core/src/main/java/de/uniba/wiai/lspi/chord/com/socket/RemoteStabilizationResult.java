@@ -0,0 +1,72 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import java.io.Serializable;
+import java.util.List;
+
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+
+/**
+ * This class represents the result of a stabilization, i.e. {@link RemoteNodeInfo references}, {@link RemoteMembershipEvent membership events} and a
+ * {@link ReplicaSummary}, that has to be transferred between two nodes.
+ *
+ * @version 1.0.5
+ */
+final class RemoteStabilizationResult implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2281468830186531507L;
+
+	/**
+	 * List of {@link RemoteNodeInfo}.
+	 */
+	protected List<RemoteNodeInfo> nodeInfos;
+
+	/**
+	 * List of {@link RemoteMembershipEvent}.
+	 */
+	protected List<RemoteMembershipEvent> events;
+
+	/**
+	 * Summary of replicas; may be <code>null</code>.
+	 */
+	protected ReplicaSummary replicaSummary;
+
+	/**
+	 * @param nodeInfos1
+	 * @param events1
+	 * @param replicaSummary1
+	 */
+	protected RemoteStabilizationResult(List<RemoteNodeInfo> nodeInfos1, List<RemoteMembershipEvent> events1, ReplicaSummary replicaSummary1) {
+		this.nodeInfos = nodeInfos1;
+		this.events = events1;
+		this.replicaSummary = replicaSummary1;
+	}
+
+	/**
+	 * @return Returns the nodeInfos.
+	 */
+	protected List<RemoteNodeInfo> getNodeInfos() {
+		return this.nodeInfos;
+	}
+
+	/**
+	 * @return Returns the events.
+	 */
+	protected List<RemoteMembershipEvent> getEvents() {
+		return this.events;
+	}
+
+	/**
+	 * @return Returns the replica summary.
+	 */
+	protected ReplicaSummary getReplicaSummary() {
+		return this.replicaSummary;
+	}
+}
@@ -20,7 +20,6 @@ import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.INFO;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.Socket;
 import java.util.Collections;
@@ -29,14 +28,22 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Endpoint;
 import de.uniba.wiai.lspi.chord.com.EndpointListener;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -46,7 +53,7 @@ import de.uniba.wiai.lspi.util.logging.Logger;
  * @author sven
  * @version 1.0.5
  */
-final class RequestHandler extends Thread implements EndpointListener {
+final class RequestHandler implements Runnable, EndpointListener {
 
 	/**
 	 * Logger for this class.
@@ -64,9 +71,9 @@ final class RequestHandler extends Thread implements EndpointListener {
 	private Socket connection;
 
 	/**
-	 * {@link ObjectOutputStream}to write answers to.
+	 * {@link FrameWriter}to write answers with. Responses of concurrent invocations are coalesced.
 	 */
-	private ObjectOutputStream out;
+	private final FrameWriter out;
 
 	/**
 	 * {@link ObjectInputStream}to read {@link Request requests}from.
@@ -91,10 +98,30 @@ final class RequestHandler extends Thread implements EndpointListener {
 
 	/**
 	 * This {@link Vector}contains {@link Thread threads}waiting for a state of the {@link SocketEndpoint endpoint}that permits the execution of the methods the
-	 * threads are about to execute. This is also used as synchronization variable for these threads.
+	 * threads are about to execute. Guarded by {@link #waitingThreadsLock}.
 	 */
 	private Set<Thread> waitingThreads = new HashSet<Thread>();
 
+	/**
+	 * Lock protecting {@link #waitingThreads}.
+	 */
+	private final Lock waitingThreadsLock = new ReentrantLock();
+
+	/**
+	 * Signalled when the state of the endpoint changes or this handler is disconnected.
+	 */
+	private final Condition stateChanged = this.waitingThreadsLock.newCondition();
+
+	/**
+	 * Name of the thread running this handler.
+	 */
+	private final String name;
+
+	/**
+	 * Permits for invocations of data methods received over this connection that have not been answered yet.
+	 */
+	private final Semaphore dataInvocations = new Semaphore(SocketEndpoint.MAX_DATA_INVOCATIONS_PER_CONNECTION);
+
 	/**
 	 * Creates a new instance of RequestHandler
 	 *
@@ -108,7 +135,7 @@ final class RequestHandler extends Thread implements EndpointListener {
 	 *             Thrown if the establishment of a connection over the provided socket fails.
 	 */
 	RequestHandler(Node node_, Socket connection_, SocketEndpoint ep) throws IOException {
-		super("RequestHandler_" + ep.getUrl());
+		this.name = "RequestHandler_" + ep.getUrl();
 
 		if (RequestHandler.logger.isEnabledFor(INFO)) {
 			RequestHandler.logger.info("Initialising RequestHandler. Socket " + connection_ + ", " + ", Endpoint " + ep);
@@ -117,7 +144,7 @@ final class RequestHandler extends Thread implements EndpointListener {
 		// connection.toString());
 		this.node = node_;
 		this.connection = connection_;
-		this.out = new ObjectOutputStream(this.connection.getOutputStream());
+		this.out = new FrameWriter(this.connection.getOutputStream());
 		try {
 			this.in = new ObjectInputStream(this.connection.getInputStream());
 		} catch (IOException e1) {
@@ -126,10 +153,14 @@ final class RequestHandler extends Thread implements EndpointListener {
 		}
 		try {
 			Request r = (Request) this.in.readObject();
-			if (r.getRequestType() != MethodConstants.CONNECT) {
+			Hello hello = Hello.fromParameters(r.getParameters());
+			if (r.getRequestType() != MethodConstants.CONNECT || (hello != null && hello.getVersion() != Hello.VERSION)) {
 				Response resp = new Response(Response.REQUEST_FAILED, r.getRequestType(), r.getReplyWith());
+				if (hello != null) {
+					resp.setFailureReason("Unsupported protocol version " + hello.getVersion() + "!");
+				}
 				try {
-					out.writeObject(resp);
+					out.write(resp);
 				} catch (IOException e) {
 				}
 				try {
@@ -143,7 +174,14 @@ final class RequestHandler extends Thread implements EndpointListener {
 				throw new IOException("Unexpected Message received! " + r);
 			} else {
 				Response resp = new Response(Response.REQUEST_SUCCESSFUL, r.getRequestType(), r.getReplyWith());
-				out.writeObject(resp);
+				if (hello != null) {
+					// proxies that send a hello take the ID of this node from the response
+					resp.setResult(new Hello(this.node.getId()));
+				}
+				out.write(resp);
+				if (hello != null && hello.supports(Hello.COMPRESSION) && CompressedMessage.ENABLED) {
+					out.enableCompression();
+				}
 			}
 		} catch (ClassNotFoundException e) {
 			throw new IOException("Unexpected class type received! " + e.getMessage());
@@ -163,6 +201,13 @@ final class RequestHandler extends Thread implements EndpointListener {
 		return this.endpoint;
 	}
 
+	/**
+	 * @return Permits for invocations of data methods received over this connection, which limit the invocations a single client can have in flight.
+	 */
+	Semaphore getDataInvocations() {
+		return this.dataInvocations;
+	}
+
 	/**
 	 * The task of this Thread. Listens for incoming requests send over the {@link #connection}of this thread. The thread can be stopped by invoking
 	 * {@link #disconnect()}.
@@ -177,15 +222,13 @@ final class RequestHandler extends Thread implements EndpointListener {
 			try {
 				/* wait for incoming requests */
 				logger.debug("Waiting for request...");
-				request = (Request) this.in.readObject();
+				request = (Request) CompressedMessage.decompress(this.in.readObject());
 				if (request.getRequestType() == MethodConstants.SHUTDOWN) {
 					logger.debug("Received shutdown request");
 					this.disconnect();
 				} else {
 					logger.debug("Received request " + request);
-					new InvocationThread(this, request, /*
-					 * "Request_" + MethodConstants.getMethodName(request .getRequestType()) + "_" + request.getReplyWith(),
-					 */this.out);
+					new InvocationThread(this, request);
 				}
 			} catch (IOException e) {
 				/*
@@ -206,6 +249,24 @@ final class RequestHandler extends Thread implements EndpointListener {
 		}
 	}
 
+	/**
+	 * Starts a thread, which is virtual if configured (see {@link ThreadFactories}), that listens for incoming requests.
+	 */
+	void start() {
+		ThreadFactories.newThread(this, this.name).start();
+	}
+
+	/**
+	 * Sends the given response to the requestor.
+	 *
+	 * @param response
+	 * @throws IOException
+	 *             If the response could not be sent or this handler has been disconnected.
+	 */
+	void sendResponse(Response response) throws IOException {
+		this.out.write(response);
+	}
+
 	/**
 	 * Method to create failure responses and send them to the requestor.
 	 *
@@ -222,11 +283,7 @@ final class RequestHandler extends Thread implements EndpointListener {
 		failureResponse.setFailureReason(failure);
 		failureResponse.setThrowable(t);
 		try {
-			synchronized (this.out) {
-				this.out.writeObject(failureResponse);
-				this.out.flush();
-				this.out.reset();
-			}
+			this.sendResponse(failureResponse);
 			logger.debug("Response send.");
 		} catch (IOException e) {
 			if (this.connected) {
@@ -236,6 +293,29 @@ final class RequestHandler extends Thread implements EndpointListener {
 		}
 	}
 
+	/**
+	 * Answers the given request with a response telling the requestor that this node is overloaded and that the request may be repeated later.
+	 *
+	 * @param request
+	 * @param retryAfter
+	 *            Time in milliseconds after which the request may be repeated.
+	 */
+	void sendOverloadedResponse(Request request, long retryAfter) {
+		if (!this.connected) {
+			return;
+		}
+		Response overloadedResponse = new Response(Response.REQUEST_OVERLOADED, request.getRequestType(), request.getReplyWith());
+		overloadedResponse.setOverloaded("Node is overloaded!", retryAfter);
+		try {
+			this.sendResponse(overloadedResponse);
+		} catch (IOException e) {
+			if (this.connected) {
+				logger.debug("Connection seems to be broken down. Could not " + "send overloaded response. Connection is closed. ", e);
+				this.disconnect();
+			}
+		}
+	}
+
 	/**
 	 * Invokes methods on {@link #node}.
 	 *
@@ -255,37 +335,56 @@ final class RequestHandler extends Thread implements EndpointListener {
 			/* throw an Exception */
 			throw new CommunicationException("Connection closed.");
 		}
-		Serializable result = null;
 		logger.debug("Trying to invoke method " + methodType + " with parameters: ");
 		for (Serializable parameter : parameters) {
 			logger.debug(parameter);
 		}
+		Serializable result = dispatch(this.node, methodType, parameters);
+		logger.debug("Returning result.");
+		return result;
+	}
+
+	/**
+	 * Invokes methods on the given node and converts node references in the result to their serializable form. Used both for requests received over a
+	 * connection and for requests of proxies in the same JVM (see {@link SocketEndpoint#invokeLocally(Request)}), so that both see the same results.
+	 *
+	 * @param node
+	 *            The node to invoke the method on.
+	 * @param methodType
+	 *            The type of the method to invoke. See {@link MethodConstants}.
+	 * @param parameters
+	 *            The parameters to pass to the method.
+	 * @return The result of the invoked method. May be <code>null</code> if method is void.
+	 * @throws Exception
+	 */
+	static Serializable dispatch(Node node, int methodType, Serializable[] parameters) throws Exception {
+		Serializable result = null;
 		switch (methodType) {
 		case MethodConstants.FIND_SUCCESSOR: {
-			Node chordNode = this.node.findSuccessor((ID) parameters[0]);
+			Node chordNode = node.findSuccessor((ID) parameters[0]);
 			result = new RemoteNodeInfo(chordNode.getUrl(), chordNode.getId());
 			break;
 		}
 		case MethodConstants.GET_NODE_ID: {
-			result = this.node.getId();
+			result = node.getId();
 			break;
 		}
 		case MethodConstants.INSERT_ENTRY: {
-			this.node.insertEntry((Entry) parameters[0]);
+			node.insertEntry((Entry) parameters[0]);
 			break;
 		}
 		case MethodConstants.INSERT_REPLICAS: {
-			this.node.insertReplicas((Set<Entry>) parameters[0]);
+			node.insertReplicas((Set<Entry>) parameters[0]);
 			break;
 		}
 		case MethodConstants.LEAVES_NETWORK: {
 			RemoteNodeInfo nodeInfo = (RemoteNodeInfo) parameters[0];
-			this.node.leavesNetwork(SocketProxy.create(nodeInfo.getNodeURL(), this.node.getUrl(), nodeInfo.getNodeID()));
+			node.leavesNetwork(SocketProxy.create(nodeInfo.getNodeURL(), node.getUrl(), nodeInfo.getNodeID()));
 			break;
 		}
 		case MethodConstants.NOTIFY: {
 			RemoteNodeInfo nodeInfo = (RemoteNodeInfo) parameters[0];
-			List<Node> l = this.node.notify(SocketProxy.create(nodeInfo.getNodeURL(), this.node.getUrl(), nodeInfo.getNodeID()));
+			List<Node> l = node.notify(SocketProxy.create(nodeInfo.getNodeURL(), node.getUrl(), nodeInfo.getNodeID()));
 			List<RemoteNodeInfo> nodeInfos = new LinkedList<RemoteNodeInfo>();
 			for (Node current : l) {
 				nodeInfos.add(new RemoteNodeInfo(current.getUrl(), current.getId()));
@@ -295,7 +394,7 @@ final class RequestHandler extends Thread implements EndpointListener {
 		}
 		case MethodConstants.NOTIFY_AND_COPY: {
 			RemoteNodeInfo nodeInfo = (RemoteNodeInfo) parameters[0];
-			ReferencesAndEntries refs = this.node.notifyAndCopyEntries(SocketProxy.create(nodeInfo.getNodeURL(), this.node.getUrl(), nodeInfo.getNodeID()));
+			ReferencesAndEntries refs = node.notifyAndCopyEntries(SocketProxy.create(nodeInfo.getNodeURL(), node.getUrl(), nodeInfo.getNodeID()));
 			List<Node> l = refs.getReferences();
 			List<RemoteNodeInfo> nodeInfos = new LinkedList<RemoteNodeInfo>();
 			for (Node current : l) {
@@ -305,30 +404,59 @@ final class RequestHandler extends Thread implements EndpointListener {
 			result = rRefs;
 			break;
 		}
+		case MethodConstants.STABILIZE: {
+			RemoteNodeInfo nodeInfo = (RemoteNodeInfo) parameters[0];
+			List<MembershipEvent> events = SocketProxy.toMembershipEvents((List<?>) parameters[1], node.getUrl());
+			StabilizationResult stabilization = node.stabilize(SocketProxy.create(nodeInfo.getNodeURL(), node.getUrl(), nodeInfo.getNodeID()), events,
+					(Boolean) parameters[2], (ReplicaSummary) parameters[3]);
+			List<RemoteNodeInfo> nodeInfos = new LinkedList<RemoteNodeInfo>();
+			for (Node current : stabilization.getReferences()) {
+				nodeInfos.add(new RemoteNodeInfo(current.getUrl(), current.getId()));
+			}
+			List<RemoteMembershipEvent> eventsToReturn = new LinkedList<RemoteMembershipEvent>();
+			for (MembershipEvent event : stabilization.getEvents()) {
+				eventsToReturn.add(new RemoteMembershipEvent(event));
+			}
+			result = new RemoteStabilizationResult(nodeInfos, eventsToReturn, stabilization.getReplicaSummary());
+			break;
+		}
+		case MethodConstants.EXCHANGE_EVENTS: {
+			List<MembershipEvent> events = node.exchangeEvents(SocketProxy.toMembershipEvents((List<?>) parameters[0], node.getUrl()));
+			List<RemoteMembershipEvent> eventsToReturn = new LinkedList<RemoteMembershipEvent>();
+			for (MembershipEvent event : events) {
+				eventsToReturn.add(new RemoteMembershipEvent(event));
+			}
+			result = (Serializable) eventsToReturn;
+			break;
+		}
 		case MethodConstants.PING: {
 			logger.debug("Invoking ping()");
-			this.node.ping();
+			node.ping();
 			logger.debug("ping() invoked.");
 			break;
 		}
 		case MethodConstants.REMOVE_ENTRY: {
-			this.node.removeEntry((Entry) parameters[0]);
+			node.removeEntry((Entry) parameters[0]);
 			break;
 		}
 		case MethodConstants.REMOVE_REPLICAS: {
-			this.node.removeReplicas((ID) parameters[0], (Set<Entry>) parameters[1]);
+			node.removeReplicas((ID) parameters[0], (Set<Entry>) parameters[1]);
 			break;
 		}
 		case MethodConstants.RETRIEVE_ENTRIES: {
-			result = (Serializable) this.node.retrieveEntries((ID) parameters[0]);
+			result = (Serializable) node.retrieveEntries((ID) parameters[0]);
+			break;
+		}
+		case MethodConstants.COPY_ENTRIES: {
+			result = node.copyEntries((ID) parameters[0], (ID) parameters[1], (Integer) parameters[2]);
 			break;
 		}
 		default: {
+			String method = MethodConstants.getMethodName(methodType);
 			logger.warn("Unknown method requested " + method);
 			throw new Exception("Unknown method requested " + method);
 		}
 		}
-		logger.debug("Returning result.");
 		return result;
 	}
 
@@ -342,7 +470,8 @@ final class RequestHandler extends Thread implements EndpointListener {
 	private void waitForMethod(String method) {
 
 		logger.debug(method + " allowed? " + !(Collections.binarySearch(Endpoint.METHODS_ALLOWED_IN_ACCEPT_ENTRIES, method) >= 0));
-		synchronized (this.waitingThreads) {
+		this.waitingThreadsLock.lock();
+		try {
 			while ((!(this.state == Endpoint.State.ACCEPT_ENTRIES)) && (this.connected) && ((Collections.binarySearch(Endpoint.METHODS_ALLOWED_IN_ACCEPT_ENTRIES, method) >= 0))) {
 
 				Thread currentThread = Thread.currentThread();
@@ -351,16 +480,14 @@ final class RequestHandler extends Thread implements EndpointListener {
 					logger.debug("HERE!!!" + currentThread + " waiting for permission to " + "execute " + method);
 				}
 				this.waitingThreads.add(currentThread);
-				try {
-					this.waitingThreads.wait();
-				} catch (InterruptedException e) {
-					// do nothing
-				}
+				this.stateChanged.awaitUninterruptibly();
 				if (debug) {
 					logger.debug("HERE!!!" + currentThread + " has been notified.");
 				}
 				this.waitingThreads.remove(currentThread);
 			}
+		} finally {
+			this.waitingThreadsLock.unlock();
 		}
 		logger.debug("waitForMethod(" + method + ") returns!");
 	}
@@ -374,18 +501,18 @@ final class RequestHandler extends Thread implements EndpointListener {
 		if (this.connected) {
 			/* cause the while loop in run() method to be finished */
 			/* and notify all threads waiting for execution of a method */
-			synchronized (this.waitingThreads) {
+			this.waitingThreadsLock.lock();
+			try {
 				this.connected = false;
-				this.waitingThreads.notifyAll();
+				this.stateChanged.signalAll();
+			} finally {
+				this.waitingThreadsLock.unlock();
 			}
 			/* release reference to node. */
 			this.node = null;
 			/* try to close the socket */
 			try {
-				synchronized (this.out) {
-					this.out.close();
-					this.out = null;
-				}
+				this.out.close();
 			} catch (IOException e) {
 				/* should not occur */
 				/* if closing of socket fails, that does not matter!??? */
@@ -410,6 +537,7 @@ final class RequestHandler extends Thread implements EndpointListener {
 				logger.debug("Exception while closing socket " + this.connection);
 			}
 			this.endpoint.unregister(this);
+			this.endpoint.removeHandler(this);
 		}
 		logger.debug("Disconnected.");
 	}
@@ -427,9 +555,12 @@ final class RequestHandler extends Thread implements EndpointListener {
 		logger.debug("notify(" + newState + ") called.");
 		this.state = newState;
 		/* notify all threads waiting for a state change */
-		synchronized (this.waitingThreads) {
+		this.waitingThreadsLock.lock();
+		try {
 			logger.debug("HERE!!! Notifying waiting threads. " + this.waitingThreads);
-			this.waitingThreads.notifyAll();
+			this.stateChanged.signalAll();
+		} finally {
+			this.waitingThreadsLock.unlock();
 		}
 	}
 
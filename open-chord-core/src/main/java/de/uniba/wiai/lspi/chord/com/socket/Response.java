@@ -34,6 +34,11 @@ final class Response extends Message {
 	 */
 	public static final int REQUEST_FAILED = 0;
 
+	/**
+	 * Constant holding the value that indicates that the {@link Request} that caused this response has been rejected, because the node is overloaded.
+	 */
+	public static final int REQUEST_OVERLOADED = 2;
+
 	/**
 	 * A String describing the failure if this is a failure response.
 	 */
@@ -50,7 +55,7 @@ final class Response extends Message {
 	private int methodIdentifier = -1;
 
 	/**
-	 * Status of the request {@link #REQUEST_FAILED} or {@link #REQUEST_SUCCESSFUL}.
+	 * Status of the request {@link #REQUEST_FAILED}, {@link #REQUEST_OVERLOADED} or {@link #REQUEST_SUCCESSFUL}.
 	 */
 	private int status = REQUEST_SUCCESSFUL;
 
@@ -64,6 +69,11 @@ final class Response extends Message {
 	 */
 	private Throwable throwable = null;
 
+	/**
+	 * If the request has been rejected because of overload, the time in milliseconds after which it may be repeated.
+	 */
+	private long retryAfter = 0;
+
 	/**
 	 * Creates a new instance of Response
 	 *
@@ -99,6 +109,20 @@ final class Response extends Message {
 		return (this.status == REQUEST_FAILED);
 	}
 
+	/**
+	 * @return <code>true</code> if the request, for which this is a response, has been rejected because the remote node is overloaded.
+	 */
+	boolean isOverloadedResponse() {
+		return (this.status == REQUEST_OVERLOADED);
+	}
+
+	/**
+	 * @return The time in milliseconds after which a rejected request may be repeated.
+	 */
+	long getRetryAfter() {
+		return this.retryAfter;
+	}
+
 	/**
 	 * If this a failure reponse, this method returns the Throwable that caused the failure. Otherwise <code>null</code>.
 	 *
@@ -131,6 +155,17 @@ final class Response extends Message {
 		this.failureReason = reason;
 	}
 
+	/**
+	 * @param reason
+	 * @param retryAfter1
+	 *            Time in milliseconds after which the request may be repeated.
+	 */
+	void setOverloaded(String reason, long retryAfter1) {
+		this.status = REQUEST_OVERLOADED;
+		this.failureReason = reason;
+		this.retryAfter = retryAfter1;
+	}
+
 	/**
 	 * @return The result of the request for which this is the response.
 	 */
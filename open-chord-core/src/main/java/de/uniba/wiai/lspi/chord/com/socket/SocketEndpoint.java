@@ -13,16 +13,29 @@ package de.uniba.wiai.lspi.chord.com.socket;
 
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
+import java.io.Serializable;
 import java.net.Socket;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.uniba.wiai.lspi.chord.com.Endpoint;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.data.URL;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -44,9 +57,48 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 	private final static boolean debug = logger.isEnabledFor(DEBUG);
 
 	/**
-	 * {@link Set} containing all {@link RequestHandler}s created by this endpoint.
+	 * Maximum number of invocations of data methods that may be in flight, i.e. queued or executing, at this endpoint.
 	 */
-	private Set<RequestHandler> handlers = new HashSet<RequestHandler>();
+	private static final int MAX_DATA_INVOCATIONS = Integer.parseInt(System.getProperty(SocketEndpoint.class.getName() + ".maxInFlight", "1000"));
+
+	/**
+	 * Maximum number of invocations of data methods that may be in flight for one connection, so that a single client cannot use up
+	 * {@link #MAX_DATA_INVOCATIONS}.
+	 */
+	static final int MAX_DATA_INVOCATIONS_PER_CONNECTION = Integer.parseInt(System.getProperty(SocketEndpoint.class.getName() + ".maxInFlightPerConnection", "100"));
+
+	/**
+	 * Time in milliseconds after which clients may repeat an invocation that has been rejected because of overload.
+	 */
+	private static final long RETRY_AFTER = Long.parseLong(System.getProperty(SocketEndpoint.class.getName() + ".retryAfter", "100"));
+
+	/**
+	 * Tells whether proxies for a node in the same JVM invoke its endpoint directly (see {@link #invokeLocally(Request)}) instead of over a connection.
+	 * Disabled by default.
+	 */
+	static final boolean IN_PROCESS = Boolean.parseBoolean(System.getProperty(SocketEndpoint.class.getName() + ".inProcess", "false"));
+
+	/**
+	 * Maximum number of connections from other nodes handled at the same time; the connection requests of further ones are answered with an overloaded
+	 * response, and they are closed.
+	 */
+	private static final int MAX_CONNECTIONS = Math.max(1, Integer.parseInt(System.getProperty(SocketEndpoint.class.getName() + ".maxConnections", "1024")));
+
+	/**
+	 * Maximum number of connections over {@link #maxConnections} whose connection requests are answered at the same time; further ones are closed without an
+	 * answer.
+	 */
+	private static final int MAX_REFUSALS = 16;
+
+	/**
+	 * Time in milliseconds to wait for the connection request of a connection that is refused.
+	 */
+	private static final int REFUSAL_TIMEOUT = 5000;
+
+	/**
+	 * {@link Set} containing the connected {@link RequestHandler}s created by this endpoint.
+	 */
+	private final Set<RequestHandler> handlers = Collections.newSetFromMap(new ConcurrentHashMap<RequestHandler, Boolean>());
 
 	/**
 	 * The Socket this endpoint listens to for connections.
@@ -54,9 +106,48 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 	private ServerSocket mySocket = null;
 
 	/**
-	 * The {@link java.util.concurrent.Executor} responsible for carrying out executions of methods with help of an instance of {@link InvocationThread}.
+	 * Channel answering probes of other nodes; <code>null</code> if none could be opened.
+	 */
+	private HeartbeatChannel heartbeat = null;
+
+	/**
+	 * The {@link java.util.concurrent.Executor} responsible for carrying out executions of maintenance methods with help of an instance of
+	 * {@link InvocationThread}.
+	 */
+	private final ExecutorService invocationExecutor = InvocationThread.createInvocationThreadPool();
+
+	/**
+	 * The {@link java.util.concurrent.Executor} responsible for carrying out executions of data methods with help of an instance of {@link InvocationThread}
+	 * . Kept apart from {@link #invocationExecutor}, so that pings and lookups need not wait for transfers of entries.
+	 */
+	private final ExecutorService dataInvocationExecutor = InvocationThread.createDataThreadPool();
+
+	/**
+	 * Permits for invocations of data methods in flight at this endpoint.
+	 */
+	private final Semaphore dataInvocations;
+
+	/**
+	 * Permits for invocations of data methods in flight by proxies in the same JVM, which are limited like the invocations received over one connection.
+	 */
+	private final Semaphore localDataInvocations = new Semaphore(MAX_DATA_INVOCATIONS_PER_CONNECTION);
+
+	/**
+	 * Permits for threads answering connections over {@link #maxConnections}.
+	 */
+	private final Semaphore refusals = new Semaphore(MAX_REFUSALS);
+
+	/**
+	 * Maximum number of connections from other nodes handled at the same time; {@link #MAX_CONNECTIONS} unless configured for a test.
+	 */
+	private final int maxConnections;
+
+	/**
+	 * Lock for waiting on state changes of this endpoint in {@link #invokeLocally(Request)}.
 	 */
-	private final ThreadPoolExecutor invocationExecutor = InvocationThread.createInvocationThreadPool();
+	private final Lock stateLock = new ReentrantLock();
+
+	private final Condition stateChanged = this.stateLock.newCondition();
 
 	/**
 	 * Creates a new <code>SocketEndpoint</code> for the given {@link Node} with {@link URL url}. <code>url</code> must have the protocol indexed by
@@ -68,7 +159,26 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 	 *            The {@link URL} of this endpoint.
 	 */
 	public SocketEndpoint(Node node1, URL url1) {
+		this(node1, url1, MAX_DATA_INVOCATIONS, MAX_CONNECTIONS);
+	}
+
+	/**
+	 * Creates a new <code>SocketEndpoint</code> which admits the given numbers of invocations of data methods and of connections instead of
+	 * {@link #MAX_DATA_INVOCATIONS} and {@link #MAX_CONNECTIONS}.
+	 *
+	 * @param node1
+	 *            The {@link Node} node this endpoint provides connections to.
+	 * @param url1
+	 *            The {@link URL} of this endpoint.
+	 * @param maxDataInvocations
+	 *            Maximum number of invocations of data methods in flight at this endpoint.
+	 * @param maxConnections1
+	 *            Maximum number of connections from other nodes handled at the same time.
+	 */
+	SocketEndpoint(Node node1, URL url1, int maxDataInvocations, int maxConnections1) {
 		super(node1, url1);
+		this.dataInvocations = new Semaphore(maxDataInvocations);
+		this.maxConnections = maxConnections1;
 		SocketEndpoint.logger.info("Initialisation finished.");
 	}
 
@@ -84,6 +194,7 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 				SocketEndpoint.logger.debug("Trying to open server socket on port " + this.url.getPort());
 			}
 			this.mySocket = new ServerSocket(this.url.getPort());
+			this.heartbeat = HeartbeatChannel.open(this.url, this.node.getId());
 			this.setState(State.LISTENING);
 			if (debug) {
 				SocketEndpoint.logger.debug("Server socket opened on port " + this.url.getPort() + ". Starting listener thread.");
@@ -100,6 +211,17 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 		}
 	}
 
+	@Override
+	protected void onStateChanged(Endpoint.State newState) {
+		super.onStateChanged(newState);
+		this.stateLock.lock();
+		try {
+			this.stateChanged.signalAll();
+		} finally {
+			this.stateLock.unlock();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see de.uniba.wiai.lspi.chord.com.Endpoint#entriesAcceptable()
@@ -128,11 +250,15 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 				SocketEndpoint.logger.debug("Could not close socket " + this.mySocket, e);
 			}
 		}
+		if (this.heartbeat != null) {
+			this.heartbeat.close();
+		}
 		this.invocationExecutor.shutdownNow();
+		this.dataInvocationExecutor.shutdownNow();
 		/*
 		 * Close outgoing connections.
 		 */
-		SocketProxy.shutDownAll();
+		SocketProxy.shutDownAll(this.getUrl());
 	}
 
 	/**
@@ -152,6 +278,11 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 				if (debug) {
 					SocketEndpoint.logger.debug("Incoming connection " + incomingConnection);
 				}
+				if (this.handlers.size() >= this.maxConnections) {
+					SocketEndpoint.logger.warn("Refusing incoming connection " + incomingConnection + ", as " + this.maxConnections + " connections are open.");
+					this.refuse(incomingConnection);
+					continue;
+				}
 				/*
 				 * Create a handler for requests that come in over the newly created socket.
 				 */
@@ -200,21 +331,239 @@ public final class SocketEndpoint extends Endpoint implements Runnable {
 	}
 
 	/**
-	 * Schedule an invocation of a local method to be executed.
+	 * Forgets the given handler, whose connection has been closed.
+	 *
+	 * @param handler
+	 */
+	void removeHandler(RequestHandler handler) {
+		this.handlers.remove(handler);
+	}
+
+	/**
+	 * Schedule an invocation of a local method to be executed. Invocations of maintenance methods are always accepted. Invocations of data methods are
+	 * rejected with a response telling the client to repeat them later if too many of them are in flight, either at this endpoint or for the connection they
+	 * have been received over.
 	 *
+	 * @param handler
+	 *            Handler of the connection the request has been received over.
 	 * @param invocationThread
 	 */
-	void scheduleInvocation(InvocationThread invocationThread) {
+	void scheduleInvocation(final RequestHandler handler, final InvocationThread invocationThread) {
 		if (debug) {
 			logger.debug("Scheduling invocation: " + invocationThread);
 		}
-		this.invocationExecutor.execute(invocationThread);
+		ExecutorService executor;
+		Runnable invocation;
+		if (MethodConstants.isMaintenance(invocationThread.getRequestType())) {
+			executor = this.invocationExecutor;
+			invocation = invocationThread;
+		} else {
+			if (!this.dataInvocations.tryAcquire()) {
+				this.rejectOverloaded(invocationThread);
+				return;
+			}
+			if (!handler.getDataInvocations().tryAcquire()) {
+				this.dataInvocations.release();
+				this.rejectOverloaded(invocationThread);
+				return;
+			}
+			executor = this.dataInvocationExecutor;
+			invocation = new Runnable() {
+				public void run() {
+					try {
+						invocationThread.run();
+					} finally {
+						handler.getDataInvocations().release();
+						SocketEndpoint.this.dataInvocations.release();
+					}
+				}
+			};
+		}
+		try {
+			executor.execute(invocation);
+		} catch (RejectedExecutionException e) {
+			if (invocation != invocationThread) {
+				handler.getDataInvocations().release();
+				this.dataInvocations.release();
+			}
+			if (executor.isShutdown()) {
+				invocationThread.reject("Node has left the network!");
+			} else {
+				this.rejectOverloaded(invocationThread);
+			}
+			return;
+		}
+		if (debug && executor instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			logger.debug("Current jobs: " + pool.getQueue().size());
+			logger.debug("Active jobs: " + pool.getActiveCount());
+			logger.debug("Completed jobs: " + pool.getCompletedTaskCount());
+		}
+	}
+
+	/**
+	 * Answers the connection request received over the given socket with an overloaded response and closes the socket. The request is read by a thread of its
+	 * own, so that accepting connections is not delayed. If {@link #MAX_REFUSALS} connections are being refused already, the socket is closed at once.
+	 *
+	 * @param socket
+	 *            Socket of a connection over {@link #maxConnections}.
+	 */
+	private void refuse(final Socket socket) {
+		if (!this.refusals.tryAcquire()) {
+			closeQuietly(socket);
+			return;
+		}
+		ThreadFactories.newThread(new Runnable() {
+			public void run() {
+				try {
+					socket.setSoTimeout(REFUSAL_TIMEOUT);
+					FrameWriter out = new FrameWriter(socket.getOutputStream());
+					ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+					out.write(overloaded((Request) in.readObject()));
+					socket.shutdownOutput();
+					/* read until the requestor closes the connection, so that the response is not discarded by a reset */
+					while (true) {
+						in.readObject();
+					}
+				} catch (IOException e) {
+					// connection closed
+				} catch (Exception e) {
+					if (debug) {
+						logger.debug("Could not refuse connection " + socket, e);
+					}
+				} finally {
+					closeQuietly(socket);
+					SocketEndpoint.this.refusals.release();
+				}
+			}
+		}, "RefuseConnection_" + this.url).start();
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// can be ignored, as the connection is not needed anymore
+		}
+	}
+
+	/**
+	 * @param invocationThread
+	 *            Invocation to reject because of overload.
+	 */
+	private void rejectOverloaded(InvocationThread invocationThread) {
 		if (debug) {
-			logger.debug("Current jobs: " + this.invocationExecutor.getQueue().size());
-			logger.debug("Active jobs: " + this.invocationExecutor.getActiveCount());
-			logger.debug("Completed jobs: " + this.invocationExecutor.getCompletedTaskCount());
+			logger.debug("Too many invocations in flight; rejecting " + invocationThread);
+		}
+		invocationThread.rejectOverloaded(RETRY_AFTER);
+	}
+
+	/**
+	 * Invokes the method requested by a {@link SocketProxy} in the same JVM on the thread of the proxy, without serializing the request and the response.
+	 * Apart from that, the request is treated as if it had been received over a connection: the method is invoked by {@link RequestHandler#dispatch(Node,
+	 * int, Serializable[])}, so that node references are passed as {@link RemoteNodeInfo} and the proxy creates references of its own from them; invocations
+	 * of data methods count towards {@link #MAX_DATA_INVOCATIONS} and, for all proxies in the same JVM together, towards
+	 * {@link #MAX_DATA_INVOCATIONS_PER_CONNECTION}; and methods requiring entries to be accepted wait until they are. The parameters and results of data
+	 * methods are copied, as the entries they carry must not be shared between the caller and the entries stored by the node.
+	 *
+	 * @param request
+	 * @return The response to <code>request</code>.
+	 */
+	Response invokeLocally(Request request) {
+		int requestType = request.getRequestType();
+		boolean data = !MethodConstants.isMaintenance(requestType);
+		if (data && !this.dataInvocations.tryAcquire()) {
+			return overloaded(request);
+		}
+		if (data && !this.localDataInvocations.tryAcquire()) {
+			this.dataInvocations.release();
+			return overloaded(request);
+		}
+		try {
+			if (!this.waitForMethod(MethodConstants.getMethodName(requestType))) {
+				Response failureResponse = new Response(Response.REQUEST_FAILED, requestType, request.getReplyWith());
+				failureResponse.setFailureReason("Node has left the network!");
+				return failureResponse;
+			}
+			Response response = new Response(Response.REQUEST_SUCCESSFUL, requestType, request.getReplyWith());
+			if (data) {
+				response.setResult(copy(RequestHandler.dispatch(this.node, requestType, copy(request.getParameters()))));
+			} else {
+				response.setResult(RequestHandler.dispatch(this.node, requestType, request.getParameters()));
+			}
+			return response;
+		} catch (Exception t) {
+			if (debug) {
+				logger.debug("Throwable occured during local execution of request " + MethodConstants.getMethodName(requestType) + "!");
+			}
+			Response failureResponse = new Response(Response.REQUEST_FAILED, requestType, request.getReplyWith());
+			failureResponse.setFailureReason("Could not execute request! " + "Reason unknown! Maybe this helps: " + t.getMessage());
+			failureResponse.setThrowable(t);
+			return failureResponse;
+		} finally {
+			if (data) {
+				this.localDataInvocations.release();
+				this.dataInvocations.release();
+			}
+		}
+	}
+
+	/**
+	 * @param request
+	 * @return Response rejecting <code>request</code> because of overload.
+	 */
+	private static Response overloaded(Request request) {
+		Response overloadedResponse = new Response(Response.REQUEST_OVERLOADED, request.getRequestType(), request.getReplyWith());
+		overloadedResponse.setOverloaded("Node is overloaded!", RETRY_AFTER);
+		return overloadedResponse;
+	}
+
+	/**
+	 * Copies the given object by serializing it, as if it had been sent over a connection.
+	 *
+	 * @param object
+	 *            Object to copy; may be <code>null</code>.
+	 * @return Copy of <code>object</code>.
+	 * @throws IOException
+	 *             If the object could not be serialized.
+	 * @throws ClassNotFoundException
+	 *             Should not occur, as the classes are available.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Serializable> T copy(T object) throws IOException, ClassNotFoundException {
+		if (object == null) {
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			return (T) in.readObject();
+		} finally {
+			in.close();
 		}
+	}
 
+	/**
+	 * Blocks until the given method may be invoked in the current state of this endpoint.
+	 *
+	 * @param method
+	 *            Name of the method to invoke.
+	 * @return <code>false</code> if this endpoint is not running anymore.
+	 */
+	private boolean waitForMethod(String method) {
+		boolean restricted = Collections.binarySearch(Endpoint.METHODS_ALLOWED_IN_ACCEPT_ENTRIES, method) >= 0;
+		this.stateLock.lock();
+		try {
+			while (restricted && this.getState() == Endpoint.State.LISTENING) {
+				this.stateChanged.awaitUninterruptibly();
+			}
+			return this.getState().isRunning();
+		} finally {
+			this.stateLock.unlock();
+		}
 	}
 
 }
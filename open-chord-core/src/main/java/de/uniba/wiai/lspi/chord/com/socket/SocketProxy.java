@@ -12,24 +12,27 @@ package de.uniba.wiai.lspi.chord.com.socket;
 
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Endpoint;
 import de.uniba.wiai.lspi.chord.com.Endpoints;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.Nodes;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
@@ -37,12 +40,13 @@ import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
  * This is the implementation of {@link Nodes} for the socket protocol. This connects to the {@link SocketEndpoint endpoint} of the node it represents by means
- * of <code>Sockets</code>.
+ * of <code>Sockets</code>. The sockets are taken from a {@link ConnectionPool}, which shares them with the proxies of other local nodes. If the node it
+ * represents runs in the same JVM and {@link SocketEndpoint#IN_PROCESS} is set, the proxy invokes its endpoint directly instead (see {@link SocketEndpoint#invokeLocally(Request)}).
  *
  * @author sven
  * @version 1.0.5
  */
-public final class SocketProxy extends Node implements Runnable {
+public final class SocketProxy extends Node {
 
 	/**
 	 * The logger for instances of this class.
@@ -50,54 +54,30 @@ public final class SocketProxy extends Node implements Runnable {
 	private final static Logger logger = Logger.getLogger(SocketProxy.class);
 
 	/**
-	 * Map of existing proxies. Key: {@link String}, Value: {@link SocketProxy}. changed on 21.03.2006 by sven. See documentation of method
-	 * {@link #createProxyKey(URL, URL)}
+	 * Existing proxies by URL of the local node using them and by URL of the remote node. Proxies are (kind of) singletons per local and remote URL, so that
+	 * socket communication also works when several nodes run within one JVM. Concurrent maps are used, as proxies are looked up for every node reference
+	 * received, and the nested maps do not require a key object to be built for each lookup.
 	 */
-	private static Map<String, SocketProxy> proxies = new HashMap<String, SocketProxy>();
+	private static final ConcurrentMap<URL, ConcurrentMap<URL, SocketProxy>> proxies = new ConcurrentHashMap<URL, ConcurrentMap<URL, SocketProxy>>();
 
 	/**
-	 * The {@link URL}of the node that uses this proxy to connect to the node, which is represented by this proxy.
-	 */
-	private URL urlOfLocalNode = null;
-
-	/**
-	 * Counter for requests that have been made by this proxy. Also required to create unique identifiers for {@link Request requests}.
-	 */
-	private long requestCounter = -1;
-
-	/**
-	 * The socket that provides the connection to the node that this is the Proxy for. This is transient as a proxy can be transferred over the network. After
-	 * transfer this socket has to be restored by reconnecting to the node.
-	 */
-	private transient Socket mySocket;
-
-	/**
-	 * The {@link ObjectOutputStream}this Proxy writes objects to. This is transient as a proxy can be transferred over the network. After transfer this stream
-	 * has to be restored.
-	 */
-	private transient ObjectOutputStream out;
-
-	/**
-	 * The {@link ObjectInputStream}this Proxy reads objects from. This is transient as a proxy can be transferred over the network. After transfer this stream
-	 * has to be restored.
+	 * Connections of all proxies in this JVM.
 	 */
-	private transient ObjectInputStream in;
+	private static final ConnectionPool connections = new ConnectionPool();
 
 	/**
-	 * The {@link ObjectInputStream} this Proxy reads objects from. This is transient as a proxy can be transferred over the network. After transfer this stream
-	 * has to be restored.
+	 * Counter for requests that have been made by all proxies. Required to create unique identifiers for {@link Request requests}.
 	 */
-	private transient Map<String, Response> responses;
+	private static final AtomicLong requestCounter = new AtomicLong();
 
 	/**
-	 * {@link Map} where threads are put in that are waiting for a repsonse. Key: identifier of the request (same as for the response). Value: The Thread
-	 * itself.
+	 * The {@link URL}of the node that uses this proxy to connect to the node, which is represented by this proxy.
 	 */
-	private transient Map<String, WaitingThread> waitingThreads;
+	private URL urlOfLocalNode = null;
 
 	/**
-	 * This indicates that an exception occured while waiting for responses and that the connection to the {@link Node node}, that this is the proxy for, could
-	 * not be reestablished.
+	 * This indicates that this proxy is not needed anymore (see {@link #disconnect()}). Further invocations fail, while a broken connection is replaced by the
+	 * {@link ConnectionPool} with the next invocation.
 	 */
 	private volatile boolean disconnected = false;
 
@@ -113,38 +93,45 @@ public final class SocketProxy extends Node implements Runnable {
 	 *             Thrown if establishment of connection to <code>url</code> failed.
 	 */
 	public static SocketProxy create(URL urlOfLocalNode, URL url) throws CommunicationException {
-		synchronized (proxies) {
-			/*
-			 * added on 21.03.2006 by sven. See documentation of method createProxyKey(URL, URL);
-			 */
-			String proxyKey = SocketProxy.createProxyKey(urlOfLocalNode, url);
-			logger.debug("Known proxies " + SocketProxy.proxies.keySet());
-			if (proxies.containsKey(proxyKey)) {
-				logger.debug("Returning existing proxy for " + url);
-				return proxies.get(proxyKey);
-			} else {
-				logger.debug("Creating new proxy for " + url);
-				SocketProxy newProxy = new SocketProxy(url, urlOfLocalNode);
-				proxies.put(proxyKey, newProxy);
-				return newProxy;
-			}
-		}
+		ConcurrentMap<URL, SocketProxy> proxiesOfLocalNode = proxiesOf(urlOfLocalNode);
+		SocketProxy proxy = proxiesOfLocalNode.get(url);
+		if (proxy != null) {
+			logger.debug("Returning existing proxy for " + url);
+			return proxy;
+		}
+		logger.debug("Creating new proxy for " + url);
+		/*
+		 * The remote node is contacted without holding a lock. If another thread creates a proxy for the same node meanwhile, that one is used; a proxy does not
+		 * hold any resources, so the other one is simply dropped.
+		 */
+		SocketProxy newProxy = new SocketProxy(url, urlOfLocalNode);
+		proxy = proxiesOfLocalNode.putIfAbsent(url, newProxy);
+		return proxy != null ? proxy : newProxy;
 	}
 
 	/**
-	 * Closes all outgoing connections to other peers. Allows the local peer to shutdown cleanly.
+	 * Disconnects all proxies used by the given local node. If no other local node uses proxies, all outgoing connections to other peers are closed. Allows
+	 * the local peer to shutdown cleanly.
+	 *
+	 * @param urlOfLocalNode
+	 *            URL of the local node shutting down.
 	 */
-	static void shutDownAll() {
-		Set<String> keys = proxies.keySet();
-		for (String key : keys) {
-			proxies.get(key).disconnect();
+	static void shutDownAll(URL urlOfLocalNode) {
+		ConcurrentMap<URL, SocketProxy> proxiesOfLocalNode = proxies.remove(urlOfLocalNode);
+		if (proxiesOfLocalNode != null) {
+			for (SocketProxy proxy : proxiesOfLocalNode.values()) {
+				proxy.disconnect();
+			}
+		}
+		if (proxies.isEmpty()) {
+			connections.closeAll();
 		}
-		proxies.clear();
 	}
 
 	/**
 	 * Creates a <code>SocketProxy</code> representing the connection from <code>urlOfLocalNode</code> to <code>url</code>. The connection is established when
-	 * the first (remote) invocation with help of the <code>SocketProxy</code> occurs.
+	 * the first (remote) invocation with help of the <code>SocketProxy</code> occurs. An existing proxy for <code>url</code> is only returned if it refers to
+	 * a node with the given ID; otherwise, the node at <code>url</code> has been replaced by one with another ID, and the existing proxy is disconnected.
 	 *
 	 * @param url
 	 *            The {@link URL} of the remote node.
@@ -155,37 +142,42 @@ public final class SocketProxy extends Node implements Runnable {
 	 * @return SocketProxy
 	 */
 	protected static SocketProxy create(URL url, URL urlOfLocalNode, ID nodeID) {
-		synchronized (proxies) {
-			/*
-			 * added on 21.03.2006 by sven. See documentation of method createProxyKey(String, String);
-			 */
-			String proxyKey = SocketProxy.createProxyKey(urlOfLocalNode, url);
-			logger.debug("Known proxies " + SocketProxy.proxies.keySet());
-			if (proxies.containsKey(proxyKey)) {
-				logger.debug("Returning existing proxy for " + url);
-				return proxies.get(proxyKey);
-			} else {
-				logger.debug("Creating new proxy for " + url);
-				SocketProxy proxy = new SocketProxy(url, urlOfLocalNode, nodeID);
-				proxies.put(proxyKey, proxy);
+		ConcurrentMap<URL, SocketProxy> proxiesOfLocalNode = proxiesOf(urlOfLocalNode);
+		while (true) {
+			SocketProxy proxy = proxiesOfLocalNode.get(url);
+			if (proxy != null && nodeID.equals(proxy.id)) {
 				return proxy;
 			}
+			logger.debug("Creating new proxy for " + url);
+			SocketProxy newProxy = new SocketProxy(url, urlOfLocalNode, nodeID);
+			if (proxy == null) {
+				proxy = proxiesOfLocalNode.putIfAbsent(url, newProxy);
+				if (proxy == null) {
+					return newProxy;
+				}
+			} else if (proxiesOfLocalNode.replace(url, proxy, newProxy)) {
+				logger.info("Node at " + url + " has changed its ID from " + proxy.id + " to " + nodeID);
+				proxy.disconnected = true;
+				return newProxy;
+			}
+			/* another thread has created a proxy meanwhile */
 		}
 	}
 
 	/**
-	 * Method that creates a unique key for a SocketProxy to be stored in {@link #proxies}. This is important for the methods {@link #create(URL, URL)},
-	 * {@link #create(URL, URL, ID)}, and {@link #disconnect()}, so that socket communication also works when it is used within one JVM. Added by sven
-	 * 21.03.2006, as before SocketProxy were stored in {@link #proxies} with help of their remote URL as key, so that they were a kind of singleton for that
-	 * URL. But the key has to consist of the URL of the local peer, that uses the proxy, and the remote URL as SocketProxies must only be (kind of) a singleton
-	 * per local and remote URL.
-	 *
-	 * @param localURL
-	 * @param remoteURL
-	 * @return The key to store the SocketProxy
-	 */
-	private static String createProxyKey(URL localURL, URL remoteURL) {
-		return localURL.toString() + "->" + remoteURL.toString();
+	 * @param urlOfLocalNode
+	 * @return Map of proxies used by the given local node, which is created if necessary.
+	 */
+	private static ConcurrentMap<URL, SocketProxy> proxiesOf(URL urlOfLocalNode) {
+		ConcurrentMap<URL, SocketProxy> result = proxies.get(urlOfLocalNode);
+		if (result == null) {
+			ConcurrentMap<URL, SocketProxy> created = new ConcurrentHashMap<URL, SocketProxy>();
+			result = proxies.putIfAbsent(urlOfLocalNode, created);
+			if (result == null) {
+				result = created;
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -224,41 +216,21 @@ public final class SocketProxy extends Node implements Runnable {
 	}
 
 	/**
-	 * Private method to send requests over the socket. This method is synchronized to ensure that no other thread concurrently accesses the
-	 * {@link ObjectOutputStream output stream}<code>out</code> while sending {@link Request request}.
-	 *
-	 * @param request
-	 *            The {@link Request}to be sent.
-	 * @throws CommunicationException
-	 *             while writing to {@link ObjectOutputStream output stream}.
-	 */
-	private synchronized void send(Request request) throws CommunicationException {
-		try {
-			logger.debug("Sending request " + request.getReplyWith());
-			this.out.writeObject(request);
-			this.out.flush();
-			this.out.reset();
-		} catch (IOException e) {
-			throw new CommunicationException("Could not connect to node " + this.url, e);
-		}
-	}
-
-	/**
-	 * Private method to create an identifier that enables this to associate a {@link Response response}with a {@link Request request}made before. This method
-	 * is synchronized to protect {@link #requestCounter}from race conditions.
+	 * Private method to create an identifier that enables this to associate a {@link Response response}with a {@link Request request}made before. The
+	 * {@link #requestCounter} is shared by all proxies, as they share connections.
 	 *
 	 * @param methodIdentifier
 	 *            Integer identifying the method this method is called from.
 	 * @return Unique Identifier for the request.
 	 */
-	private synchronized String createIdentifier(int methodIdentifier) {
+	private String createIdentifier(int methodIdentifier) {
 		/* Create unique identifier from */
 		StringBuilder uid = new StringBuilder();
 		/* Time stamp */
 		uid.append(System.currentTimeMillis());
 		uid.append("-");
 		/* counter and */
-		uid.append(this.requestCounter++);
+		uid.append(requestCounter.getAndIncrement());
 		/* methodIdentifier */
 		uid.append("-");
 		uid.append(methodIdentifier);
@@ -266,119 +238,88 @@ public final class SocketProxy extends Node implements Runnable {
 	}
 
 	/**
-	 * Called in a method that is delegated to the {@link Node node}, that this is the proxy for. This method blocks the thread that calls the particular method
-	 * until a {@link Response response} is received.
+	 * @param response
+	 * @return The given response, unless the remote node has rejected the request because it is overloaded.
+	 * @throws OverloadedException
+	 *             If the remote node has rejected the request because it is overloaded.
+	 */
+	private static Response checkOverloaded(Response response) throws OverloadedException {
+		if (response.isOverloadedResponse()) {
+			throw new OverloadedException(response.getFailureReason(), response.getRetryAfter());
+		}
+		return response;
+	}
+
+	/**
+	 * Sends the given request over a connection from the {@link ConnectionPool} and blocks until the response has been received. If the remote node runs in
+	 * the same JVM, its endpoint is invoked directly.
 	 *
 	 * @param request
 	 * @return The {@link Response} for <code>request</code>.
 	 * @throws CommunicationException
+	 *             If the request could not be sent or the connection broke down before the response arrived.
 	 */
-	private Response waitForResponse(Request request) throws CommunicationException {
-
-		String responseIdentifier = request.getReplyWith();
-		Response response = null;
-		logger.debug("Trying to wait for response with identifier " + responseIdentifier + " for method " + MethodConstants.getMethodName(request.getRequestType()));
-
-		synchronized (this.responses) {
-			logger.debug("No of responses " + this.responses.size());
-			/* Test if we got disconnected while waiting for lock on object */
-			if (this.disconnected) {
-				throw new CommunicationException("Connection to remote host " + " is broken down. ");
-			}
-			/*
-			 * Test if response is already available (Maybe response arrived before we reached this point).
-			 */
-			response = this.responses.remove(responseIdentifier);
-			if (response != null) {
-				return response;
-			}
+	private Response invoke(Request request) throws CommunicationException {
+		SocketEndpoint colocated = this.getColocatedEndpoint();
+		if (colocated != null && !this.disconnected) {
+			return checkOverloaded(colocated.invokeLocally(request));
+		}
+		Connection connection = this.acquire();
+		try {
+			logger.debug("Trying to send request " + request);
+			connection.send(request);
+			logger.debug("Waiting for response for request " + request);
+			return checkOverloaded(connection.waitForResponse(request));
+		} finally {
+			connections.release(connection);
+		}
+	}
 
-			/* WAIT FOR RESPONSE */
-			/* add current thread to map of threads waiting for a response */
-			WaitingThread wt = new WaitingThread(Thread.currentThread());
-			this.waitingThreads.put(responseIdentifier, wt);
-			while (!wt.hasBeenWokenUp()) {
-				try {
-					/*
-					 * Wait until notified or time out is reached.
-					 */
-					logger.debug("Waiting for response to arrive.");
-					this.responses.wait();
-				} catch (InterruptedException e) {
-					/*
-					 * does not matter as this is intended Thread is interrupted if response arrives
-					 */
-				}
-			}
-			logger.debug("Have been woken up from waiting for response.");
-
-			/* remove thread from map of threads waiting for a response */
-			this.waitingThreads.remove(responseIdentifier);
-			/* try to get the response if available */
-			response = this.responses.remove(responseIdentifier);
-			logger.debug("Response for request with identifier " + responseIdentifier + " for method " + MethodConstants.getMethodName(request.getRequestType()) + " received.");
-			/* if no response availabe */
-			if (response == null) {
-				logger.debug("No response received.");
-				/* we have been disconnected */
-				if (this.disconnected) {
-					logger.info("Connection to remote host lost.");
-					throw new CommunicationException("Connection to remote host " + " is broken down. ");
-				}
-				/* or time out has elapsed */
-				else {
-					logger.error("There is no result, but we have not been " + "disconnected. Something went seriously wrong!");
-					throw new CommunicationException("Did not receive a response!");
-				}
-			}
+	/**
+	 * @return The endpoint of the remote node if it is running in the same JVM and may be invoked directly; <code>null</code> otherwise.
+	 */
+	private SocketEndpoint getColocatedEndpoint() {
+		if (!SocketEndpoint.IN_PROCESS) {
+			return null;
 		}
-		return response;
+		Endpoint endpoint = Endpoints.getEndpoint(this.url);
+		if (endpoint instanceof SocketEndpoint && endpoint.getState().isRunning()) {
+			return (SocketEndpoint) endpoint;
+		}
+		return null;
 	}
 
 	/**
-	 * This method is called by {@link #run()}when it receives a {@link Response}. The {@link Thread thread}waiting for response is woken up and the response is
-	 * put into {@link Map responses}.
-	 *
-	 * @param response
+	 * @return A connection to the node this is the proxy for, which must be released after use.
+	 * @throws CommunicationException
+	 *             If this proxy has been disconnected or no connection could be opened.
 	 */
-	private void responseReceived(Response response) {
-		synchronized (this.responses) {
-			/* Try to fetch thread waiting for this response */
-			logger.debug("No of waiting threads " + this.waitingThreads);
-			WaitingThread waitingThread = this.waitingThreads.get(response.getInReplyTo());
-			logger.debug("Response with id " + response.getInReplyTo() + "received.");
-			/* save response */
-			this.responses.put(response.getInReplyTo(), response);
-			/* if there is a thread waiting for this response */
-			if (waitingThread != null) {
-				/* wake up the thread */
-				logger.debug("Waking up thread!");
-				waitingThread.wakeUp();
-			} else {
-				// TODO what else? why 'else' anyway?
-			}
+	private Connection acquire() throws CommunicationException {
+		if (this.disconnected) {
+			throw new CommunicationException("Connection from " + this.urlOfLocalNode + " to remote host " + this.url + " is broken down. ");
 		}
+		return connections.acquire(this.url);
 	}
 
 	/**
-	 * Method to indicate that connection to remote {@link Node node} is broken down.
+	 * Blocks until the {@link Hello} of the remote node has been received and tells whether the remote node supports the given capability.
+	 *
+	 * @param capability
+	 *            One of the capability constants of {@link Hello}.
+	 * @return <code>true</code> if the remote node supports <code>capability</code>; <code>false</code> if it does not or sends no hello.
+	 * @throws CommunicationException
+	 *             If the connection has broken down.
 	 */
-	private void connectionBrokenDown() {
-		if (this.responses == null) {
-			/*
-			 * Nothing to do!
-			 */
-			return;
+	private boolean remoteSupports(int capability) throws CommunicationException {
+		if (this.getColocatedEndpoint() != null) {
+			return (Hello.CAPABILITIES & capability) == capability;
 		}
-		/* synchronize on responses, as all threads accessing this proxy do so */
-		synchronized (this.responses) {
-			logger.info("Connection broken down!");
-			this.disconnected = true;
-			/* wake up all threads */
-			for (WaitingThread thread : this.waitingThreads.values()) {
-				logger.debug("Interrupting waiting thread " + thread);
-				thread.wakeUp();
-			}
+		Connection connection = this.acquire();
+		try {
+			Hello hello = connection.awaitHello();
+			return hello != null && hello.supports(capability);
+		} finally {
+			connections.release(connection);
 		}
 	}
 
@@ -410,23 +351,12 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public Node findSuccessor(ID key) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to find successor for ID " + key);
 
 		/* prepare request for method findSuccessor */
 		Request request = this.createRequest(MethodConstants.FIND_SUCCESSOR, new Serializable[] { key });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -454,24 +384,25 @@ public final class SocketProxy extends Node implements Runnable {
 	 * @throws CommunicationException
 	 */
 	private void initializeNodeID() throws CommunicationException {
+		if (this.getColocatedEndpoint() == null) {
+			Connection connection = this.acquire();
+			try {
+				Hello hello = connection.awaitHello();
+				if (hello != null) {
+					this.id = hello.getNodeID();
+				}
+			} finally {
+				connections.release(connection);
+			}
+		}
 		if (this.id == null) {
-			this.makeSocketAvailable();
-
+			/* remote node does not send its ID with its hello, or runs in the same JVM */
 			logger.debug("Trying to get node ID ");
 
 			/* prepare request for method findSuccessor */
 			Request request = this.createRequest(MethodConstants.GET_NODE_ID, new Serializable[0]);
-			/* send request */
-			try {
-				logger.debug("Trying to send request " + request);
-				this.send(request);
-			} catch (CommunicationException ce) {
-				logger.debug("Connection failed!");
-				throw ce;
-			}
-			/* wait for response */
-			logger.debug("Waiting for response for request " + request);
-			Response response = this.waitForResponse(request);
+			/* send request and wait for response */
+			Response response = this.invoke(request);
 			logger.debug("Response " + response + " arrived.");
 			if (response.isFailureResponse()) {
 				throw new CommunicationException(response.getFailureReason());
@@ -496,21 +427,12 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public List<Node> notify(Node potentialPredecessor) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		RemoteNodeInfo nodeInfoToSend = new RemoteNodeInfo(potentialPredecessor.getUrl(), potentialPredecessor.getId());
 
 		Request request = this.createRequest(MethodConstants.NOTIFY, new Serializable[] { nodeInfoToSend });
 
-		/* send request to remote node. */
-		try {
-			this.send(request);
-		} catch (CommunicationException e) {
-			throw e;
-		}
-
-		/* wait for response to arrive */
-		Response response = this.waitForResponse(request);
+		/* send request to remote node and wait for response to arrive */
+		Response response = this.invoke(request);
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
 		} else {
@@ -536,8 +458,6 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public void ping() throws CommunicationException {
-		this.makeSocketAvailable();
-
 		boolean debugEnabled = SocketProxy.logger.isEnabledFor(DEBUG);
 
 		if (debugEnabled) {
@@ -546,19 +466,8 @@ public final class SocketProxy extends Node implements Runnable {
 
 		/* prepare request for method findSuccessor */
 		Request request = this.createRequest(MethodConstants.PING, new Serializable[0]);
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		if (debugEnabled) {
-			logger.debug("Waiting for response for request " + request);
-		}
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		if (debugEnabled) {
 			logger.debug("Response " + response + " arrived.");
 		}
@@ -570,29 +479,35 @@ public final class SocketProxy extends Node implements Runnable {
 
 	}
 
+	/**
+	 * Probes the remote node over its {@link HeartbeatChannel}, and pings it over a connection only if no probe is acknowledged. Nodes in the same JVM are
+	 * pinged directly.
+	 *
+	 * @throws CommunicationException
+	 */
+	@Override
+	public void probe() throws CommunicationException {
+		if (this.disconnected) {
+			throw new CommunicationException("Connection from " + this.urlOfLocalNode + " to remote host " + this.url + " is broken down. ");
+		}
+		if (this.getColocatedEndpoint() == null && HeartbeatChannel.probe(this.url, this.id)) {
+			return;
+		}
+		this.ping();
+	}
+
 	/**
 	 * @param entry
 	 * @throws CommunicationException
 	 */
 	@Override
 	public void insertEntry(Entry entry) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to insert entry " + entry + ".");
 
 		/* prepare request for method insertEntry */
 		Request request = this.createRequest(MethodConstants.INSERT_ENTRY, new Serializable[] { entry });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -608,23 +523,12 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public void insertReplicas(Set<Entry> replicas) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to insert replicas " + replicas + ".");
 
 		/* prepare request for method insertEntry */
 		Request request = this.createRequest(MethodConstants.INSERT_REPLICAS, new Serializable[] { (Serializable) replicas });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -640,25 +544,14 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public void leavesNetwork(Node predecessor) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to insert notify node that " + predecessor + " leaves network.");
 
 		RemoteNodeInfo nodeInfo = new RemoteNodeInfo(predecessor.getUrl(), predecessor.getId());
 
 		/* prepare request for method insertEntry */
 		Request request = this.createRequest(MethodConstants.LEAVES_NETWORK, new Serializable[] { nodeInfo });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -674,23 +567,12 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public void removeEntry(Entry entry) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to remove entry " + entry + ".");
 
 		/* prepare request for method findSuccessor */
 		Request request = this.createRequest(MethodConstants.REMOVE_ENTRY, new Serializable[] { entry });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -708,23 +590,12 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public void removeReplicas(ID sendingNodeID, Set<Entry> replicas) throws CommunicationException {
-		this.makeSocketAvailable();
-
 		logger.debug("Trying to remove replicas " + replicas + ".");
 
 		/* prepare request for method insertEntry */
 		Request request = this.createRequest(MethodConstants.REMOVE_REPLICAS, new Serializable[] { sendingNodeID, (Serializable) replicas });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
-		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason());
@@ -735,100 +606,53 @@ public final class SocketProxy extends Node implements Runnable {
 	}
 
 	@Override
-	public Set<Entry> retrieveEntries(ID id) throws CommunicationException {
-		this.makeSocketAvailable();
-
-		logger.debug("Trying to retrieve entries for ID " + id);
+	public boolean supportsCopyEntries() throws CommunicationException {
+		return this.remoteSupports(Hello.COPY_ENTRIES);
+	}
 
-		/* prepare request for method findSuccessor */
-		Request request = this.createRequest(MethodConstants.RETRIEVE_ENTRIES, new Serializable[] { id });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
+	@Override
+	public EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) throws CommunicationException {
+		if (!this.remoteSupports(Hello.COPY_ENTRIES)) {
+			throw new CommunicationException("Node " + this.url + " does not support chunked transfers of entries!");
 		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+
+		logger.debug("Trying to copy entries from " + fromID + " to " + toID);
+
+		/* prepare request for method copyEntries */
+		Request request = this.createRequest(MethodConstants.COPY_ENTRIES, new Serializable[] { fromID, toID, maxEntries });
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason(), response.getThrowable());
 		} else {
 			try {
-				Set<Entry> result = (Set<Entry>) response.getResult();
-				return result;
+				return (EntryChunk) response.getResult();
 			} catch (ClassCastException cce) {
 				throw new CommunicationException("Could not understand result! " + response.getResult());
 			}
 		}
 	}
 
-	/**
-	 * This method has to be called at first in every method that uses the socket to connect to the node this is the proxy for. This method establishes the
-	 * connection if not already done. This method has to be called as this proxy can be serialized and the reference to the socket is transient. So by calling
-	 * this method after a transfer the connection to the node is reestablished. The same applies for {@link #logger}and {@link #responses}.
-	 *
-	 * @throws CommunicationException
-	 */
-	private void makeSocketAvailable() throws CommunicationException {
-		if (this.disconnected) {
-			throw new CommunicationException("Connection from " + this.urlOfLocalNode + " to remote host " + this.url + " is broken down. ");
-		}
-
-		logger.debug("makeSocketAvailable() called. " + "Testing for socket availability");
+	@Override
+	public Set<Entry> retrieveEntries(ID id) throws CommunicationException {
+		logger.debug("Trying to retrieve entries for ID " + id);
 
-		if (this.responses == null) {
-			this.responses = new HashMap<String, Response>();
-		}
-		if (this.waitingThreads == null) {
-			this.waitingThreads = new HashMap<String, WaitingThread>();
-		}
-		if (this.mySocket == null) {
+		/* prepare request for method findSuccessor */
+		Request request = this.createRequest(MethodConstants.RETRIEVE_ENTRIES, new Serializable[] { id });
+		/* send request and wait for response */
+		Response response = this.invoke(request);
+		logger.debug("Response " + response + " arrived.");
+		if (response.isFailureResponse()) {
+			throw new CommunicationException(response.getFailureReason(), response.getThrowable());
+		} else {
 			try {
-				logger.info("Opening new socket to " + this.url);
-				this.mySocket = new Socket(this.url.getHost(), this.url.getPort());
-				logger.debug("Socket created: " + this.mySocket);
-				this.mySocket.setSoTimeout(5000);
-				this.out = new ObjectOutputStream(this.mySocket.getOutputStream());
-				this.in = new ObjectInputStream(this.mySocket.getInputStream());
-				logger.debug("Sending connection request!");
-				out.writeObject(new Request(MethodConstants.CONNECT, "Initial Connection"));
-				try {
-					// set time out, in case the other side does not answer!
-					Response resp = null;
-					boolean timedOut = false;
-					try {
-						logger.debug("Waiting for connection response!");
-						resp = (Response) in.readObject();
-					} catch (SocketTimeoutException e) {
-						logger.info("Connection timed out!");
-						timedOut = true;
-					}
-					this.mySocket.setSoTimeout(0);
-					if (timedOut) {
-						throw new CommunicationException("Connection to remote host timed out!");
-					}
-					if (resp != null && resp.getStatus() == Response.REQUEST_SUCCESSFUL) {
-						Thread t = new Thread(this, "SocketProxy_Thread_" + this.url);
-						t.start();
-					} else {
-						throw new CommunicationException("Establishing connection failed!");
-					}
-				} catch (ClassNotFoundException e) {
-					throw new CommunicationException("Unexpected result received! " + e.getMessage(), e);
-				} catch (ClassCastException e) {
-					throw new CommunicationException("Unexpected result received! " + e.getMessage(), e);
-				}
-			} catch (UnknownHostException e) {
-				throw new CommunicationException("Unknown host: " + this.url.getHost());
-			} catch (IOException ioe) {
-				throw new CommunicationException("Could not set up IO channel " + "to host " + this.url.getHost(), ioe);
+				Set<Entry> result = (Set<Entry>) response.getResult();
+				return result;
+			} catch (ClassCastException cce) {
+				throw new CommunicationException("Could not understand result! " + response.getResult());
 			}
 		}
-		logger.debug("makeSocketAvailable() finished. Socket " + this.mySocket);
 	}
 
 	/**
@@ -847,131 +671,158 @@ public final class SocketProxy extends Node implements Runnable {
 	@Override
 	public void disconnect() {
 
-		logger.info("Destroying connection from " + this.urlOfLocalNode + " to " + this.url);
+		logger.info("Disconnecting proxy from " + this.urlOfLocalNode + " to " + this.url);
 
-		synchronized (proxies) {
-			/*
-			 * added on 21.03.2006 by sven. See documentation of method createProxyKey(String, String);
-			 */
-			String proxyKey = SocketProxy.createProxyKey(this.urlOfLocalNode, this.url);
-			Object o = proxies.remove(proxyKey);
+		ConcurrentMap<URL, SocketProxy> proxiesOfLocalNode = proxies.get(this.urlOfLocalNode);
+		if (proxiesOfLocalNode != null) {
+			proxiesOfLocalNode.remove(this.url, this);
 		}
+		/* connections are shared with other proxies and closed by the pool when they are idle */
 		this.disconnected = true;
-		try {
-			if (this.out != null) {
-				try {
-					/*
-					 * notify endpoint this is connected to, about shut down of this proxy
-					 */
-					logger.debug("Sending shutdown notification to endpoint.");
-					Request request = this.createRequest(MethodConstants.SHUTDOWN, new Serializable[0]);
-					logger.debug("Notification send.");
-					this.out.writeObject(request);
-					this.out.close();
-					this.out = null;
-					logger.debug("OutputStream " + this.out + " closed.");
-				} catch (IOException e) {
-					/* should not occur */
-					logger.debug(this + ": Exception during closing of output stream " + this.out, e);
-				}
-			}
-			if (this.in != null) {
-				try {
-					this.in.close();
-					logger.debug("InputStream " + this.in + " closed.");
-					this.in = null;
-				} catch (IOException e) {
-					/* should not occur */
-					logger.debug("Exception during closing of input stream" + this.in);
-				}
-			}
-			if (this.mySocket != null) {
-				try {
-					logger.info("Closing socket " + this.mySocket + ".");
-					this.mySocket.close();
-				} catch (IOException e) {
-					/* should not occur */
-					logger.debug("Exception during closing of socket " + this.mySocket);
-				}
-				this.mySocket = null;
-			}
-		} catch (Throwable t) {
-			logger.warn("Unexpected exception during disconnection of SocketProxy", t);
-		}
-		this.connectionBrokenDown();
 	}
 
 	/**
-	 * The run methods waits for incoming {@link de.uniba.wiai.lspi.chord.com.socket.Response} made by this proxy and puts them into a datastructure from where
-	 * the can be collected by the associated method call that made a {@link de.uniba.wiai.lspi.chord.com.socket.Request} to the {@link Node}, that this is the
-	 * proxy for.
+	 * @param potentialPredecessor
+	 * @return See {@link Node#notifyAndCopyEntries(Node)}.
+	 * @throws CommunicationException
 	 */
-	public void run() {
-		while (!this.disconnected) {
+	@Override
+	public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) throws CommunicationException {
+		RemoteNodeInfo nodeInfoToSend = new RemoteNodeInfo(potentialPredecessor.getUrl(), potentialPredecessor.getId());
+
+		/* prepare request for method notifyAndCopyEntries */
+		Request request = this.createRequest(MethodConstants.NOTIFY_AND_COPY, new Serializable[] { nodeInfoToSend });
+		/* send request and wait for response */
+		Response response = this.invoke(request);
+		logger.debug("Response " + response + " arrived.");
+		if (response.isFailureResponse()) {
+			throw new CommunicationException(response.getFailureReason(), response.getThrowable());
+		} else {
 			try {
-				Response response = (Response) this.in.readObject();
-				logger.debug("Response " + response + "received!");
-				this.responseReceived(response);
-			} catch (ClassNotFoundException cnfe) {
-				/* should not occur, as all classes must be locally available */
-				logger.fatal("ClassNotFoundException occured during deserialization " + "of response. There is something seriously wrong " + " here! ", cnfe);
-			} catch (IOException e) {
-				if (!this.disconnected) {
-					logger.warn("Could not read response from stream!", e);
-				} else {
-					logger.debug(this + ": Connection has been closed!");
+				RemoteRefsAndEntries result = (RemoteRefsAndEntries) response.getResult();
+				List<Node> newReferences = new LinkedList<Node>();
+				List<RemoteNodeInfo> references = result.getNodeInfos();
+				for (RemoteNodeInfo nodeInfo : references) {
+					if (nodeInfo.getNodeURL().equals(this.urlOfLocalNode)) {
+						newReferences.add(Endpoints.getEndpoint(this.urlOfLocalNode).getNode());
+					} else {
+						newReferences.add(create(nodeInfo.getNodeURL(), this.urlOfLocalNode, nodeInfo.getNodeID()));
+					}
 				}
-				this.connectionBrokenDown();
+				return new ReferencesAndEntries(newReferences, result.getEntries());
+			} catch (ClassCastException cce) {
+				throw new CommunicationException("Could not understand result! " + response.getResult());
 			}
 		}
 	}
 
 	/**
 	 * @param potentialPredecessor
-	 * @return See {@link Node#notifyAndCopyEntries(Node)}.
+	 * @param events
+	 * @param fullMembership
+	 * @param replicaSummary
+	 * @return See {@link Node#stabilize(Node, List, boolean, ReplicaSummary)}.
 	 * @throws CommunicationException
 	 */
 	@Override
-	public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) throws CommunicationException {
-		this.makeSocketAvailable();
+	public StabilizationResult stabilize(Node potentialPredecessor, List<MembershipEvent> events, boolean fullMembership, ReplicaSummary replicaSummary)
+			throws CommunicationException {
+		if (!this.remoteSupports(Hello.STABILIZE)) {
+			return super.stabilize(potentialPredecessor, events, fullMembership, replicaSummary);
+		}
 
 		RemoteNodeInfo nodeInfoToSend = new RemoteNodeInfo(potentialPredecessor.getUrl(), potentialPredecessor.getId());
-
-		/* prepare request for method notifyAndCopyEntries */
-		Request request = this.createRequest(MethodConstants.NOTIFY_AND_COPY, new Serializable[] { nodeInfoToSend });
-		/* send request */
-		try {
-			logger.debug("Trying to send request " + request);
-			this.send(request);
-		} catch (CommunicationException ce) {
-			logger.debug("Connection failed!");
-			throw ce;
+		ArrayList<RemoteMembershipEvent> eventsToSend = new ArrayList<RemoteMembershipEvent>(events.size());
+		for (MembershipEvent event : events) {
+			eventsToSend.add(new RemoteMembershipEvent(event));
 		}
-		/* wait for response */
-		logger.debug("Waiting for response for request " + request);
-		Response response = this.waitForResponse(request);
+
+		/* prepare request for method stabilize */
+		Request request = this.createRequest(MethodConstants.STABILIZE, new Serializable[] { nodeInfoToSend, eventsToSend, fullMembership, replicaSummary });
+		/* send request and wait for response */
+		Response response = this.invoke(request);
 		logger.debug("Response " + response + " arrived.");
 		if (response.isFailureResponse()) {
 			throw new CommunicationException(response.getFailureReason(), response.getThrowable());
 		} else {
 			try {
-				RemoteRefsAndEntries result = (RemoteRefsAndEntries) response.getResult();
+				RemoteStabilizationResult result = (RemoteStabilizationResult) response.getResult();
 				List<Node> newReferences = new LinkedList<Node>();
-				List<RemoteNodeInfo> references = result.getNodeInfos();
-				for (RemoteNodeInfo nodeInfo : references) {
+				for (RemoteNodeInfo nodeInfo : result.getNodeInfos()) {
 					if (nodeInfo.getNodeURL().equals(this.urlOfLocalNode)) {
 						newReferences.add(Endpoints.getEndpoint(this.urlOfLocalNode).getNode());
 					} else {
 						newReferences.add(create(nodeInfo.getNodeURL(), this.urlOfLocalNode, nodeInfo.getNodeID()));
 					}
 				}
-				return new ReferencesAndEntries(newReferences, result.getEntries());
+				return new StabilizationResult(newReferences, toMembershipEvents(result.getEvents(), this.urlOfLocalNode), result.getReplicaSummary());
+			} catch (ClassCastException cce) {
+				throw new CommunicationException("Could not understand result! " + response.getResult());
+			}
+		}
+	}
+
+	/**
+	 * @param events
+	 * @return See {@link Node#exchangeEvents(List)}.
+	 * @throws CommunicationException
+	 */
+	@Override
+	public List<MembershipEvent> exchangeEvents(List<MembershipEvent> events) throws CommunicationException {
+		if (!this.remoteSupports(Hello.EXCHANGE_EVENTS)) {
+			return super.exchangeEvents(events);
+		}
+
+		ArrayList<RemoteMembershipEvent> eventsToSend = new ArrayList<RemoteMembershipEvent>(events.size());
+		for (MembershipEvent event : events) {
+			eventsToSend.add(new RemoteMembershipEvent(event));
+		}
+
+		/* prepare request for method exchangeEvents */
+		Request request = this.createRequest(MethodConstants.EXCHANGE_EVENTS, new Serializable[] { eventsToSend });
+		/* send request and wait for response */
+		Response response = this.invoke(request);
+		logger.debug("Response " + response + " arrived.");
+		if (response.isFailureResponse()) {
+			throw new CommunicationException(response.getFailureReason(), response.getThrowable());
+		} else {
+			try {
+				return toMembershipEvents((List<?>) response.getResult(), this.urlOfLocalNode);
 			} catch (ClassCastException cce) {
 				throw new CommunicationException("Could not understand result! " + response.getResult());
 			}
 		}
 	}
 
+	/**
+	 * Converts the given received events into {@link MembershipEvent membership events} referring to proxies created for the given local node. Events
+	 * concerning the local node itself refer to the local node, so that it learns when it is believed to have left.
+	 *
+	 * @param events
+	 *            Received events; a list of {@link RemoteMembershipEvent}s.
+	 * @param urlOfLocalNode
+	 *            URL of the node that received the events.
+	 * @return List of membership events.
+	 * @throws ClassCastException
+	 *             If the list contains other objects.
+	 */
+	static List<MembershipEvent> toMembershipEvents(List<?> events, URL urlOfLocalNode) {
+		List<MembershipEvent> result = new ArrayList<MembershipEvent>(events.size());
+		for (Object received : events) {
+			RemoteMembershipEvent event = (RemoteMembershipEvent) received;
+			RemoteNodeInfo nodeInfo = event.getNodeInfo();
+			if (!nodeInfo.getNodeURL().equals(urlOfLocalNode)) {
+				result.add(new MembershipEvent(create(nodeInfo.getNodeURL(), urlOfLocalNode, nodeInfo.getNodeID()), event.getType(), event.getIncarnation()));
+			} else {
+				Endpoint endpoint = Endpoints.getEndpoint(urlOfLocalNode);
+				if (endpoint != null) {
+					result.add(new MembershipEvent(endpoint.getNode(), event.getType(), event.getIncarnation()));
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * The string representation of this proxy. Created when {@link #toString()} is invoked for the first time.
 	 */
@@ -982,15 +833,13 @@ public final class SocketProxy extends Node implements Runnable {
 	 */
 	@Override
 	public String toString() {
-		if (this.id == null || this.mySocket == null) {
+		if (this.id == null) {
 			return "Unconnected SocketProxy from " + this.urlOfLocalNode + " to " + this.url;
 		}
 		if (this.stringRepresentation == null) {
 			StringBuilder builder = new StringBuilder();
 			builder.append("Connection from Node[url=");
 			builder.append(this.urlOfLocalNode);
-			builder.append(", socket=");
-			builder.append(this.mySocket);
 			builder.append("] to Node[id=");
 			builder.append(this.id);
 			builder.append(", url=");
@@ -1001,42 +850,4 @@ public final class SocketProxy extends Node implements Runnable {
 		return this.stringRepresentation;
 	}
 
-	/**
-	 * Wraps a thread, which is waiting for a response.
-	 *
-	 * @author sven
-	 */
-	private static class WaitingThread {
-
-		private boolean hasBeenWokenUp = false;
-
-		private Thread thread;
-
-		private WaitingThread(Thread thread) {
-			this.thread = thread;
-		}
-
-		/**
-		 * Returns <code>true</code> when the thread has been woken up by invoking {@link #wakeUp()}
-		 *
-		 * @return
-		 */
-		boolean hasBeenWokenUp() {
-			return this.hasBeenWokenUp;
-		}
-
-		/**
-		 * Wake up the thread that is waiting for a response.
-		 */
-		void wakeUp() {
-			this.hasBeenWokenUp = true;
-			this.thread.interrupt();
-		}
-
-		@Override
-		public String toString() {
-			return this.thread.toString() + ": Waiting? " + !this.hasBeenWokenUp();
-		}
-	}
-
 }
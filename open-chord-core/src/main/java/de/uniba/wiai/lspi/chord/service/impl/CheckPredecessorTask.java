@@ -13,6 +13,7 @@ package de.uniba.wiai.lspi.chord.service.impl;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -33,21 +34,30 @@ final class CheckPredecessorTask implements Runnable {
 	 */
 	private References references;
 
+	/**
+	 * Time in milliseconds since the last contact with the predecessor within which the predecessor is not pinged. The predecessor contacts the local node
+	 * whenever it stabilizes, which proves its liveness as well.
+	 */
+	private final long interval;
+
 	/**
 	 * Creates a new instance, but without starting a thread running it.
 	 *
 	 * @param references
 	 *            Reference on routing table.
+	 * @param interval
+	 *            Interval of this task in milliseconds.
 	 * @throws NullPointerException
 	 *             If parameter value is <code>null</code>.
 	 */
-	CheckPredecessorTask(References references) {
+	CheckPredecessorTask(References references, long interval) {
 
 		if (references == null) {
 			throw new NullPointerException("Parameter references may not be null!");
 		}
 
 		this.references = references;
+		this.interval = interval;
 	}
 
 	public void run() {
@@ -66,21 +76,37 @@ final class CheckPredecessorTask implements Runnable {
 				// I have no predecessor
 				CheckPredecessorTask.logger.info("Nothing to check, as predecessor is null");
 				return;
+			} else if (System.currentTimeMillis() - this.references.getPeerStatistics().getLastContact(predecessor) < this.interval) {
+				// predecessor has recently stabilized with us
+				if (debug) {
+					CheckPredecessorTask.logger.debug("Predecessor has contacted us recently; no need to ping it.");
+				}
+				return;
 			} else {
 
 				// try to reach predecessor
 				try {
-					predecessor.ping();
+					predecessor.probe();
+					// a probe does not measure the round trip time of a request
+					this.references.getPeerStatistics().recordContact(predecessor);
 					// My predecessor responded
 					if (debug) {
 						CheckPredecessorTask.logger.debug("Predecessor reached!");
 					}
+				} catch (OverloadedException e) {
+					// the rejection proves that the predecessor is alive
+					this.references.getPeerStatistics().recordContact(predecessor);
+					if (debug) {
+						CheckPredecessorTask.logger.debug("Predecessor is overloaded, but reached.");
+					}
+					return;
 				} catch (CommunicationException e) {
 					if (debug) {
-						CheckPredecessorTask.logger.debug("Checking predecessor was NOT successful due " + "to a communication failure! Removing " + "predecessor reference.", e);
+						CheckPredecessorTask.logger.debug("Checking predecessor was NOT successful due " + "to a communication failure! Removing " + "predecessor reference "
+								+ "if it is regarded as failed.", e);
 					}
 					// My predecessor did not respond
-					this.references.removeReference(predecessor);
+					this.references.reportFailure(predecessor);
 					return;
 				}
 
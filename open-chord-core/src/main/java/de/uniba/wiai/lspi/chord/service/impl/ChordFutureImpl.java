@@ -10,6 +10,8 @@
  ***************************************************************************/
 package de.uniba.wiai.lspi.chord.service.impl;
 
+import java.util.concurrent.CountDownLatch;
+
 import de.uniba.wiai.lspi.chord.service.AsynChord;
 import de.uniba.wiai.lspi.chord.service.ChordFuture;
 import de.uniba.wiai.lspi.chord.service.ServiceException;
@@ -23,9 +25,10 @@ import de.uniba.wiai.lspi.chord.service.ServiceException;
 abstract class ChordFutureImpl implements ChordFuture {
 
 	/**
-	 * Indicates that the request to {@link AsynChord} has been completed.
+	 * Released when the request to {@link AsynChord} has been completed. A latch is used instead of a monitor, so that virtual threads waiting for the request
+	 * do not pin their carrier thread.
 	 */
-	private boolean isDone = false;
+	private final CountDownLatch done = new CountDownLatch(1);
 
 	/**
 	 * Any Exception/Throwable that occured during execution of request associated with this future.
@@ -45,10 +48,7 @@ abstract class ChordFutureImpl implements ChordFuture {
 	 * Indicate that the method associated with this has completed.
 	 */
 	final void setIsDone() {
-		synchronized (this) {
-			this.isDone = true;
-			this.notifyAll();
-		}
+		this.done.countDown();
 	}
 
 	/**
@@ -76,17 +76,15 @@ abstract class ChordFutureImpl implements ChordFuture {
 		if (this.throwable != null) {
 			throw new ServiceException(this.throwable.getMessage(), this.throwable);
 		}
-		return this.isDone;
+		return this.done.getCount() == 0;
 	}
 
 	/**
 	 * @see ChordFuture
 	 */
 	public void waitForBeingDone() throws ServiceException, InterruptedException {
-		synchronized (this) {
-			while (!this.isDone()) {
-				this.wait();
-			}
+		while (!this.isDone()) {
+			this.done.await();
 		}
 	}
 
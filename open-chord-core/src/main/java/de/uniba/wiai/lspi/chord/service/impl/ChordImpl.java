@@ -17,9 +17,11 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -27,7 +29,7 @@ import java.util.concurrent.TimeUnit;
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.Nodes;
-import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
@@ -39,6 +41,7 @@ import de.uniba.wiai.lspi.chord.service.ChordRetrievalFuture;
 import de.uniba.wiai.lspi.chord.service.Key;
 import de.uniba.wiai.lspi.chord.service.Report;
 import de.uniba.wiai.lspi.chord.service.ServiceException;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
@@ -90,6 +93,18 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 	private static final int NUMBER_OF_SUCCESSORS = (Integer.parseInt(System.getProperty("de.uniba.wiai.lspi.chord.service.impl.ChordImpl.successors")) < 1) ? 1 : Integer.parseInt(System
 			.getProperty("de.uniba.wiai.lspi.chord.service.impl.ChordImpl.successors"));
 
+	/**
+	 * Number of threads of the maintenance executor shared by all nodes of this JVM which are created without an injected executor. 0 means that every node
+	 * creates an executor of its own.
+	 */
+	private static final int SHARED_MAINTENANCE_THREADS = Integer.parseInt(System.getProperty(ChordImpl.class.getName() + ".maintenance.sharedThreads", "0"));
+
+	/**
+	 * Determines whether all nodes of this JVM which are created without an injected executor share one pool of {@link #ASYNC_CALL_THREADS} threads for
+	 * asynchronous requests.
+	 */
+	private static final boolean SHARED_ASYNC_EXECUTOR = Boolean.parseBoolean(System.getProperty(ChordImpl.class.getName() + ".AsyncThread.shared", "false"));
+
 	/**
 	 * Object logger.
 	 */
@@ -106,14 +121,60 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 	private Entries entries;
 
 	/**
-	 * Executor service for local maintenance tasks.
+	 * Executor service for local maintenance tasks; may be shared with other nodes.
+	 */
+	private final ScheduledExecutorService maintenanceExecutor;
+
+	/**
+	 * Schedules the maintenance tasks of this node on {@link #maintenanceExecutor}; <code>null</code> until the network has been created or joined.
+	 */
+	private MaintenanceScheduler maintenanceTasks;
+
+	/**
+	 * Cache of the routing state of this node; <code>null</code> if routing state is not cached or the network has not been created or joined yet.
+	 */
+	private RoutingStateCache routingStateCache;
+
+	/**
+	 * Decides whether failed inserts, retrievals and removals, and lookups requested by other nodes, are repeated; its retry budget is shared by all of them.
+	 */
+	private final RetryPolicy retryPolicy = new RetryPolicy();
+
+	/**
+	 * Decides whether failed lookups of the maintenance tasks of this node are repeated. Has a retry budget of its own, so that maintenance still repairs
+	 * the references while operations have used up their budget, and does not use up the budget of operations.
 	 */
-	private ScheduledExecutorService maintenanceTasks;
+	private final RetryPolicy maintenanceRetryPolicy = new RetryPolicy();
 
 	/**
-	 * Executor service for asynch requests.
+	 * Executor service for asynch requests; may be shared with other nodes.
 	 */
-	private ExecutorService asyncExecutor;
+	private final ExecutorService asyncExecutor;
+
+	/**
+	 * Determines whether {@link #maintenanceExecutor} has been created for this node only and is shut down on {@link #leave()}.
+	 */
+	private final boolean ownsMaintenanceExecutor;
+
+	/**
+	 * Determines whether {@link #asyncExecutor} has been created for this node only and is shut down on {@link #leave()}.
+	 */
+	private final boolean ownsAsyncExecutor;
+
+	/**
+	 * Holds the shared maintenance executor, which is created when it is needed for the first time. Its threads are daemon threads, as it is never shut down.
+	 */
+	private static class SharedMaintenanceExecutor {
+		static final ScheduledExecutorService INSTANCE = new ScheduledThreadPoolExecutor(SHARED_MAINTENANCE_THREADS, new ChordThreadFactory("SharedMaintenanceTaskExecution", true));
+	}
+
+	/**
+	 * Holds the shared executor for asynchronous requests, which is created when it is needed for the first time. Its threads are daemon threads, as it is
+	 * never shut down.
+	 */
+	private static class SharedAsyncExecutor {
+		static final ExecutorService INSTANCE = ThreadFactories.newExecutor("SharedAsynchronousExecution", ASYNC_CALL_THREADS, true);
+	}
 
 	/**
 	 * ThreadFactory used with Executor services.
@@ -124,13 +185,21 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 
 		private String executorName;
 
+		private boolean daemon;
+
 		ChordThreadFactory(String executorName) {
+			this(executorName, false);
+		}
+
+		ChordThreadFactory(String executorName, boolean daemon) {
 			this.executorName = executorName;
+			this.daemon = daemon;
 		}
 
 		public Thread newThread(Runnable r) {
 			Thread newThread = new Thread(r);
 			newThread.setName(this.executorName + "-" + newThread.getName());
+			newThread.setDaemon(this.daemon);
 			return newThread;
 		}
 
@@ -159,14 +228,46 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 	/* constructor */
 
 	/**
-	 * Creates a new instance of ChordImpl which initially is disconnected. Constructor is hidden. Only constructor.
+	 * Creates a new instance of ChordImpl which initially is disconnected. Depending on the configuration, the instance either creates executors of its own
+	 * or uses the executors shared by all nodes of this JVM.
 	 */
 	public ChordImpl() {
+		this(null, null);
+	}
+
+	/**
+	 * Creates a new instance of ChordImpl which initially is disconnected and which executes its maintenance tasks and asynchronous requests with the given
+	 * executors. This allows many nodes in one JVM to share a small number of threads. Injected executors are not shut down when this node leaves the network.
+	 *
+	 * @param maintenanceExecutor
+	 *            Executor for the periodic maintenance tasks of this node. If <code>null</code>, the executor is determined by the configuration.
+	 * @param asyncExecutor
+	 *            Executor for asynchronous requests to this node. If <code>null</code>, the executor is determined by the configuration.
+	 */
+	public ChordImpl(ScheduledExecutorService maintenanceExecutor, ExecutorService asyncExecutor) {
 		this.logger = Logger.getLogger(ChordImpl.class.getName() + ".unidentified");
 		this.logger.debug("Logger initialized.");
 
-		this.maintenanceTasks = new ScheduledThreadPoolExecutor(3, new ChordThreadFactory("MaintenanceTaskExecution"));
-		this.asyncExecutor = Executors.newFixedThreadPool(ChordImpl.ASYNC_CALL_THREADS, new ChordThreadFactory("AsynchronousExecution"));
+		if (maintenanceExecutor != null) {
+			this.maintenanceExecutor = maintenanceExecutor;
+			this.ownsMaintenanceExecutor = false;
+		} else if (ChordImpl.SHARED_MAINTENANCE_THREADS > 0) {
+			this.maintenanceExecutor = SharedMaintenanceExecutor.INSTANCE;
+			this.ownsMaintenanceExecutor = false;
+		} else {
+			this.maintenanceExecutor = new ScheduledThreadPoolExecutor(3, new ChordThreadFactory("MaintenanceTaskExecution"));
+			this.ownsMaintenanceExecutor = true;
+		}
+		if (asyncExecutor != null) {
+			this.asyncExecutor = asyncExecutor;
+			this.ownsAsyncExecutor = false;
+		} else if (ChordImpl.SHARED_ASYNC_EXECUTOR) {
+			this.asyncExecutor = SharedAsyncExecutor.INSTANCE;
+			this.ownsAsyncExecutor = false;
+		} else {
+			this.asyncExecutor = ThreadFactories.newExecutor("AsynchronousExecution", ChordImpl.ASYNC_CALL_THREADS, false);
+			this.ownsAsyncExecutor = true;
+		}
 		this.hashFunction = HashFunction.getHashFunction();
 		logger.info("ChordImpl initialized!");
 	}
@@ -322,6 +423,10 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		// create NodeImpl instance for communication
 		this.localNode = new NodeImpl(this, this.getID(), this.localURL, this.references, this.entries);
 
+		if (RoutingStateCache.isEnabled()) {
+			this.routingStateCache = new RoutingStateCache(this.localURL, this.references);
+		}
+
 		// create tasks for fixing finger table, checking predecessor and
 		// stabilizing
 		this.createTasks();
@@ -333,21 +438,29 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 
 	/**
 	 * Creates the tasks that must be executed periodically to maintain the Chord overlay network and schedules them with help of a
-	 * {@link ScheduledExecutorService}.
+	 * {@link MaintenanceScheduler}, which adapts their intervals to the observed churn.
 	 */
 	private final void createTasks() {
 
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(this.getID(), this.maintenanceExecutor, this.references);
+		this.maintenanceTasks = scheduler;
+
 		// start thread which periodically stabilizes with successor
-		this.maintenanceTasks.scheduleWithFixedDelay(new StabilizeTask(this.localNode, this.references, this.entries), ChordImpl.STABILIZE_TASK_START, ChordImpl.STABILIZE_TASK_INTERVAL,
-				TimeUnit.SECONDS);
+		scheduler.schedule(new StabilizeTask(this.localNode, this.references, this.entries), ChordImpl.STABILIZE_TASK_START, ChordImpl.STABILIZE_TASK_INTERVAL, TimeUnit.SECONDS);
 
-		// start thread which periodically attempts to fix finger table
-		this.maintenanceTasks.scheduleWithFixedDelay(new FixFingerTask(this.localNode, this.getID(), this.references), ChordImpl.FIX_FINGER_TASK_START, ChordImpl.FIX_FINGER_TASK_INTERVAL,
-				TimeUnit.SECONDS);
+		// start thread which periodically attempts to fix finger table; its
+		// first run repairs all fingers
+		scheduler.schedule(new FixFingerTask(this.localNode, this.getID(), this.references), ChordImpl.FIX_FINGER_TASK_START, ChordImpl.FIX_FINGER_TASK_INTERVAL, TimeUnit.SECONDS);
 
 		// start thread which periodically checks whether predecessor has
 		// failed
-		this.maintenanceTasks.scheduleWithFixedDelay(new CheckPredecessorTask(this.references), ChordImpl.CHECK_PREDECESSOR_TASK_START, ChordImpl.CHECK_PREDECESSOR_TASK_INTERVAL, TimeUnit.SECONDS);
+		scheduler.schedule(new CheckPredecessorTask(this.references, TimeUnit.SECONDS.toMillis(ChordImpl.CHECK_PREDECESSOR_TASK_INTERVAL)), ChordImpl.CHECK_PREDECESSOR_TASK_START, ChordImpl.CHECK_PREDECESSOR_TASK_INTERVAL, TimeUnit.SECONDS);
+
+		// save routing state whenever it has changed, so that it can be used
+		// after a restart
+		if (this.routingStateCache != null) {
+			scheduler.schedule(this.routingStateCache, ChordImpl.FIX_FINGER_TASK_START, ChordImpl.FIX_FINGER_TASK_INTERVAL, TimeUnit.SECONDS);
+		}
 	}
 
 	public final void join(URL bootstrapURL) throws ServiceException, CommunicationException {
@@ -481,15 +594,16 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		this.logger.info(this.localURL + " has successor " + mySuccessor.getUrl());
 		this.references.addReference(mySuccessor);
 
-		// notify successor for the first time and copy keys from successor
-		ReferencesAndEntries copyOfRefsAndEntries;
+		// notify successor for the first time; keys are copied from the actual
+		// successor later on
+		Node entrySource = mySuccessor;
+		List<Node> refs;
 		try {
-			copyOfRefsAndEntries = mySuccessor.notifyAndCopyEntries(this.localNode);
+			refs = mySuccessor.notify(this.localNode);
 		} catch (CommunicationException e2) {
 			throw new ServiceException("An error occured when contacting " + "the successor of this node in order to " + "obtain its references and entries! Join " + "operation failed!", e2);
 		}
 
-		List<Node> refs = copyOfRefsAndEntries.getReferences();
 		/*
 		 * The first list item is the current predecessor of our successor. Now we are the predecessor, so we can assume, that it must be our predecessor.
 		 * 10.06.2007 sven.
@@ -516,8 +630,8 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 					logger.info("Wrong successor found. Going backwards!!!");
 					this.references.addReference(refs.get(0));
 					try {
-						copyOfRefsAndEntries = refs.get(0).notifyAndCopyEntries(this.localNode);
-						refs = copyOfRefsAndEntries.getReferences();
+						entrySource = refs.get(0);
+						refs = entrySource.notify(this.localNode);
 					} catch (CommunicationException e) {
 						throw new ServiceException("An error occured when contacting " + "the successor of this node in order to " + "obtain its references and entries! Join " + "operation failed!",
 								e);
@@ -526,9 +640,28 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 			}
 		}
 
+		// routing is consistent now, so start maintenance right away: its first
+		// run of fix fingers populates the finger table while the successor
+		// list is added and the entries of the successor are copied
+		if (RoutingStateCache.isEnabled()) {
+			this.routingStateCache = new RoutingStateCache(this.localURL, this.references);
+		}
+		this.createTasks();
+
+		// copy entries of successor in chunks, so that neither node has to hold
+		// all of them in one message; a thread of its own is used, as the
+		// asynchronous executor may be shared and busy
+		final Node entrySourceNode = entrySource;
+		FutureTask<Integer> entriesCopied = new FutureTask<Integer>(new Callable<Integer>() {
+			public Integer call() throws CommunicationException {
+				return EntryTransfer.copy(entrySourceNode, entrySourceNode.getId(), ChordImpl.this.getID(), ChordImpl.this.localNode, ChordImpl.this.entries);
+			}
+		});
+		ThreadFactories.create("JoinEntryCopy_" + this.localURL, true).newThread(entriesCopied).start();
+
 		// add new references, if pings are successful //removed ping to new
 		// references. 17.09.2007 sven
-		for (Node newReference : copyOfRefsAndEntries.getReferences()) {
+		for (Node newReference : refs) {
 			if (newReference != null && !newReference.equals(this.localNode) && !this.references.containsReference(newReference)) {
 
 				ChordImpl.this.references.addReference(newReference);
@@ -539,15 +672,38 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 			}
 		}
 
-		// add copied entries of successor
-		this.entries.addAll(copyOfRefsAndEntries.getEntries());
+		// use references from before a restart which are still alive, so that
+		// the finger table need not be rebuilt from scratch
+		if (this.routingStateCache != null) {
+			this.routingStateCache.restore();
+		}
+
+		try {
+			entriesCopied.get();
+		} catch (ExecutionException e) {
+			this.abortJoin();
+			throw new ServiceException("An error occured when contacting " + "the successor of this node in order to " + "obtain its references and entries! Join " + "operation failed!", e.getCause());
+		} catch (InterruptedException e) {
+			entriesCopied.cancel(true);
+			this.abortJoin();
+			Thread.currentThread().interrupt();
+			throw new ServiceException("Join operation was interrupted!", e);
+		}
 
 		// accept content requests from outside
 		this.localNode.acceptEntries();
+	}
 
-		// create tasks for fixing finger table, checking predecessor and
-		// stabilizing
-		this.createTasks();
+	/**
+	 * Leaves the network after a join has failed once this node has notified its successor and started maintenance, so that the other nodes do not keep a
+	 * node which never accepts entries.
+	 */
+	private void abortJoin() {
+		try {
+			this.leave();
+		} catch (CommunicationException e) {
+			this.logger.warn("Could not leave the network after the join has failed.", e);
+		}
 	}
 
 	public final void leave() throws CommunicationException {
@@ -557,12 +713,35 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 			return;
 		}
 
-		this.maintenanceTasks.shutdownNow();
+		// only stop the tasks of this node, as the executor may be shared
+		if (this.maintenanceTasks != null) {
+			this.maintenanceTasks.shutdown();
+		}
+		if (this.ownsMaintenanceExecutor) {
+			this.maintenanceExecutor.shutdownNow();
+		}
+		if (this.routingStateCache != null) {
+			this.routingStateCache.save();
+		}
 
 		try {
 			Node successor = this.references.getSuccessor();
-			if (successor != null && this.references.getPredecessor() != null) {
-				successor.leavesNetwork(this.references.getPredecessor());
+			Node predecessor = this.references.getPredecessor();
+			if (successor != null) {
+				// hand off the entries this node is responsible for before
+				// departing; without a predecessor, this is every entry
+				ID fromID = (predecessor != null ? predecessor.getId() : this.getID());
+				try {
+					int handedOff = EntryTransfer.handOff(this.entries, fromID, this.getID(), successor);
+					if (this.logger.isEnabledFor(INFO)) {
+						this.logger.info("Handed off " + handedOff + " entries to " + successor.getId() + " before leaving.");
+					}
+				} catch (CommunicationException e) {
+					this.logger.warn("Could not hand off entries to " + successor.getId() + "; they survive only as replicas.", e);
+				}
+			}
+			if (successor != null && predecessor != null) {
+				successor.leavesNetwork(predecessor);
 			}
 		} catch (CommunicationException e) {
 			/*
@@ -573,11 +752,30 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		}
 
 		this.localNode.disconnect();
-		this.asyncExecutor.shutdownNow();
+		if (this.ownsAsyncExecutor) {
+			this.asyncExecutor.shutdownNow();
+		}
 		this.localNode = null;
 
 	}
 
+	/**
+	 * Stops the maintenance tasks of this node and the executors created for it, without informing other nodes. Is invoked when the endpoint of this node
+	 * emulates a crash.
+	 */
+	final void crash() {
+		if (this.maintenanceTasks != null) {
+			this.maintenanceTasks.shutdown();
+		}
+		if (this.ownsMaintenanceExecutor) {
+			this.maintenanceExecutor.shutdownNow();
+		}
+		if (this.ownsAsyncExecutor) {
+			// requests of other nodes may be waiting for queued tasks
+			this.asyncExecutor.shutdown();
+		}
+	}
+
 	public final void insert(Key key, Serializable s) throws CommunicationException {
 
 		// check parameters
@@ -593,12 +791,13 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		if (debug) {
 			this.logger.debug("Inserting new entry with id " + id);
 		}
+		RetryPolicy.Call call = this.retryPolicy.begin();
 		boolean inserted = false;
 		while (!inserted) {
 			// find successor of id
 			Node responsibleNode;
 			// try {
-			responsibleNode = this.findSuccessor(id);
+			responsibleNode = this.findSuccessor(id, call);
 
 			if (debug) {
 				this.logger.debug("Invoking insertEntry method on node " + responsibleNode.getId());
@@ -612,10 +811,16 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 				if (debug) {
 					this.logger.debug("An error occured while invoking the insertEntry method " + " on the appropriate node! Insert operation " + "failed!", e1);
 				}
+				if (!call.retry(e1)) {
+					throw new CommunicationException("Insert operation failed after " + call.getAttempts() + " attempts!", e1);
+				}
 				continue;
 			}
 		}
-		this.logger.debug("New entry was inserted!");
+		call.succeeded();
+		if (debug) {
+			this.logger.debug("New entry was inserted after " + call.getAttempts() + " attempts!");
+		}
 	}
 
 	public final Set<Serializable> retrieve(Key key) throws CommunicationException {
@@ -636,12 +841,13 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		}
 		Set<Entry> result = null;
 
+		RetryPolicy.Call call = this.retryPolicy.begin();
 		boolean retrieved = false;
 		while (!retrieved) {
 			// find successor of id
 			Node responsibleNode = null;
 
-			responsibleNode = findSuccessor(id);
+			responsibleNode = this.findSuccessor(id, call);
 
 			// invoke retrieveEntry method
 			try {
@@ -653,9 +859,13 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 				if (debug) {
 					this.logger.debug("An error occured while invoking the retrieveEntry method " + " on the appropriate node! Retrieve operation " + "failed!", e1);
 				}
+				if (!call.retry(e1)) {
+					throw new CommunicationException("Retrieve operation failed after " + call.getAttempts() + " attempts!", e1);
+				}
 				continue;
 			}
 		}
+		call.succeeded();
 		Set<Serializable> values = new HashSet<Serializable>();
 
 		if (result != null) {
@@ -664,7 +874,9 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 			}
 		}
 
-		this.logger.debug("Entries were retrieved!");
+		if (debug) {
+			this.logger.debug("Entries were retrieved after " + call.getAttempts() + " attempts!");
+		}
 
 		return values;
 
@@ -681,17 +893,18 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		ID id = this.hashFunction.getHashKey(key);
 		Entry entryToRemove = new Entry(id, s);
 
+		boolean debug = this.logger.isEnabledFor(DEBUG);
+		RetryPolicy.Call call = this.retryPolicy.begin();
 		boolean removed = false;
 		while (!removed) {
 
-			boolean debug = this.logger.isEnabledFor(DEBUG);
 			if (debug) {
 				this.logger.debug("Removing entry with id " + id + " and value " + s);
 			}
 
 			// find successor of id
 			Node responsibleNode;
-			responsibleNode = findSuccessor(id);
+			responsibleNode = this.findSuccessor(id, call);
 
 			if (debug) {
 				this.logger.debug("Invoking removeEntry method on node " + responsibleNode.getId());
@@ -704,10 +917,16 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 				if (debug) {
 					this.logger.debug("An error occured while invoking the removeEntry method " + " on the appropriate node! Remove operation " + "failed!", e1);
 				}
+				if (!call.retry(e1)) {
+					throw new CommunicationException("Remove operation failed after " + call.getAttempts() + " attempts!", e1);
+				}
 				continue;
 			}
 		}
-		this.logger.debug("Entry was removed!");
+		call.succeeded();
+		if (debug) {
+			this.logger.debug("Entry was removed after " + call.getAttempts() + " attempts!");
+		}
 	}
 
 	/**
@@ -729,8 +948,55 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 	 *             If given ID is <code>null</code>.
 	 * @return Responsible node.
 	 * @throws CommunicationException
+	 *             If the lookup has been given up by the {@link RetryPolicy}.
 	 */
 	final Node findSuccessor(ID key) throws CommunicationException {
+		return this.findSuccessor(key, this.retryPolicy);
+	}
+
+	/**
+	 * Returns the Chord node which is responsible for the given key for a maintenance task. Unlike {@link #findSuccessor(ID)}, which serves lookups
+	 * requested by other nodes, the lookup does not spend the retry budget of operations.
+	 *
+	 * @param key
+	 *            Key for which the successor is searched for.
+	 * @return Responsible node.
+	 * @throws CommunicationException
+	 *             If the lookup has been given up by the {@link RetryPolicy}.
+	 */
+	final Node findSuccessorForMaintenance(ID key) throws CommunicationException {
+		return this.findSuccessor(key, this.maintenanceRetryPolicy);
+	}
+
+	/**
+	 * @param key
+	 * @param policy
+	 *            Policy whose retry budget the lookup spends.
+	 * @return Responsible node.
+	 * @throws CommunicationException
+	 */
+	private Node findSuccessor(ID key, RetryPolicy policy) throws CommunicationException {
+		RetryPolicy.Call call = policy.begin();
+		Node successor = this.findSuccessor(key, call);
+		call.succeeded();
+		return successor;
+	}
+
+	/**
+	 * Returns the Chord node which is responsible for the given key. If the node asked for the successor fails, it is reported and the lookup is repeated
+	 * as long as the given call allows.
+	 *
+	 * @param key
+	 *            Key for which the successor is searched for.
+	 * @param call
+	 *            Call of the operation the lookup is part of, which decides whether and when a failed lookup is repeated.
+	 * @throws NullPointerException
+	 *             If given ID is <code>null</code>.
+	 * @return Responsible node.
+	 * @throws CommunicationException
+	 *             If the lookup has been given up.
+	 */
+	private Node findSuccessor(ID key, RetryPolicy.Call call) throws CommunicationException {
 
 		if (key == null) {
 			NullPointerException e = new NullPointerException("ID to find successor for may not be null!");
@@ -740,54 +1006,60 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 
 		boolean debug = this.logger.isEnabledFor(DEBUG);
 
-		// check if the local node is the only node in the network
-		Node successor = this.references.getSuccessor();
-		if (successor == null) {
+		while (true) {
+			// check if the local node is the only node in the network
+			Node successor = this.references.getSuccessor();
+			if (successor == null) {
 
-			if (this.logger.isEnabledFor(INFO)) {
-				this.logger.info("I appear to be the only node in the network, so I am " + "my own " + "successor; return reference on me: " + this.getID());
-			}
-			return this.localNode;
-		}
-		// check if the key to look up lies between this node and its successor
-		else if (key.isInInterval(this.getID(), successor.getId()) || key.equals(successor.getId())) {
-			if (debug) {
-				this.logger.debug("The requested key lies between my own and my " + "successor's node id; therefore return my successor.");
+				if (this.logger.isEnabledFor(INFO)) {
+					this.logger.info("I appear to be the only node in the network, so I am " + "my own " + "successor; return reference on me: " + this.getID());
+				}
+				return this.localNode;
 			}
+			// check if the key to look up lies between this node and its successor
+			else if (key.isInInterval(this.getID(), successor.getId()) || key.equals(successor.getId())) {
+				if (debug) {
+					this.logger.debug("The requested key lies between my own and my " + "successor's node id; therefore return my successor.");
+				}
 
-			// try to reach successor
-			try {
 				// successor.ping(); // if methods returns, successor is alive.
 				// ping removed on 17.09.2007. sven
 				if (debug) {
 					this.logger.debug("Returning my successor " + successor.getId() + " of type " + successor.getClass());
 				}
 				return successor;
-			} catch (Exception e) {
-				// not successful, delete node from successor list and finger
-				// table, and set new successor, if available
-				this.logger.warn("Successor did not respond! Removing it from all " + "lists and retrying...");
-				this.references.removeReference(successor);
-				return findSuccessor(key);
 			}
-		}
-
-		// ask closest preceding node found in local references for closest
-		// preceding node concerning the key to look up
-		else {
 
+			// ask closest preceding node found in local references for closest
+			// preceding node concerning the key to look up
 			Node closestPrecedingNode = this.references.getClosestPrecedingNode(key);
 
 			try {
 				if (debug) {
 					this.logger.debug("Asking closest preceding node known to this node for closest preceding node " + closestPrecedingNode.getId() + " concerning key " + key + " to look up");
 				}
-				return closestPrecedingNode.findSuccessor(key);
+				long start = System.nanoTime();
+				Node result = closestPrecedingNode.findSuccessor(key);
+				this.references.getPeerStatistics().recordSuccess(closestPrecedingNode, System.nanoTime() - start);
+				return result;
+			} catch (OverloadedException e) {
+				if (debug) {
+					this.logger.debug("Node " + closestPrecedingNode + " is overloaded; retrying after " + e.getRetryAfter() + " ms");
+				}
+				// the rejection proves that the node is alive
+				this.references.getPeerStatistics().recordContact(closestPrecedingNode);
+				if (!call.retry(e)) {
+					throw new CommunicationException("Lookup of successor of " + key + " failed after " + call.getAttempts() + " attempts!", e);
+				}
 			} catch (CommunicationException e) {
 				this.logger.error("Communication failure while requesting successor " + "for key " + key + " from node " + closestPrecedingNode.toString() + " - looking up successor for failed node "
 						+ closestPrecedingNode.toString());
-				this.references.removeReference(closestPrecedingNode);
-				return findSuccessor(key);
+				// the node is avoided while it is suspected, so the retry takes
+				// another route unless it is the only one
+				this.references.reportFailure(closestPrecedingNode);
+				if (!call.retry(e)) {
+					throw new CommunicationException("Lookup of successor of " + key + " failed after " + call.getAttempts() + " attempts!", e);
+				}
 			}
 		}
 	}
@@ -818,6 +1090,10 @@ public final class ChordImpl implements Chord, Report, AsynChord {
 		}
 	}
 
+	public final String printRetryStatistics() {
+		return "Operations: " + this.retryPolicy + "\nMaintenance: " + this.maintenanceRetryPolicy;
+	}
+
 	public void retrieve(final Key key, final ChordCallback callback) {
 		final Chord chord = this;
 		this.asyncExecutor.execute(new Runnable() {
@@ -63,11 +63,7 @@ class ChordRetrievalFutureImpl extends ChordFutureImpl implements ChordRetrieval
 	 * @see ChordRetrievalFuture
 	 */
 	public final Set<Serializable> getResult() throws ServiceException, InterruptedException {
-		synchronized (this) {
-			while (!this.isDone()) {
-				this.wait();
-			}
-		}
+		this.waitForBeingDone();
 		Throwable t = this.getThrowable();
 		if (t != null) {
 			throw new ServiceException(t.getMessage(), t);
@@ -11,12 +11,24 @@
 
 package de.uniba.wiai.lspi.chord.service.impl;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.util.logging.Logger;
@@ -48,11 +60,22 @@ final class Entries {
 	 */
 	private Map<ID, Set<Entry>> entries = null;
 
+	/**
+	 * The sorted map wrapped by {@link #entries}, which must only be accessed while holding the lock on {@link #entries}.
+	 */
+	private NavigableMap<ID, Set<Entry>> sortedEntries = null;
+
+	/**
+	 * Digests of the stored entries, which are calculated once when an entry is added; guarded by {@link #entries}.
+	 */
+	private final Map<Entry, Long> digests = new HashMap<Entry, Long>();
+
 	/**
 	 * Creates an empty repository for entries.
 	 */
 	Entries() {
-		this.entries = Collections.synchronizedMap(new TreeMap<ID, Set<Entry>>());
+		this.sortedEntries = new TreeMap<ID, Set<Entry>>();
+		this.entries = Collections.synchronizedMap(this.sortedEntries);
 	}
 
 	/**
@@ -63,7 +86,7 @@ final class Entries {
 	 * @throws NullPointerException
 	 *             If set reference is <code>null</code>.
 	 */
-	final void addAll(Set<Entry> entriesToAdd) {
+	final void addAll(Collection<Entry> entriesToAdd) {
 
 		if (entriesToAdd == null) {
 			NullPointerException e = new NullPointerException("Set of entries to be added to the local hash table may " + "not be null!");
@@ -96,6 +119,7 @@ final class Entries {
 			throw e;
 		}
 
+		long digest = digest(entryToAdd);
 		Set<Entry> values;
 		synchronized (this.entries) {
 			if (this.entries.containsKey(entryToAdd.getId())) {
@@ -104,7 +128,9 @@ final class Entries {
 				values = new HashSet<Entry>();
 				this.entries.put(entryToAdd.getId(), values);
 			}
-			values.add(entryToAdd);
+			if (values.add(entryToAdd)) {
+				this.digests.put(entryToAdd, digest);
+			}
 		}
 		if (debugEnabled) {
 			Entries.logger.debug("Entry was added: " + entryToAdd);
@@ -130,7 +156,9 @@ final class Entries {
 		synchronized (this.entries) {
 			if (this.entries.containsKey(entryToRemove.getId())) {
 				Set<Entry> values = this.entries.get(entryToRemove.getId());
-				values.remove(entryToRemove);
+				if (values.remove(entryToRemove)) {
+					this.digests.remove(entryToRemove);
+				}
 				if (values.size() == 0) {
 					this.entries.remove(entryToRemove.getId());
 				}
@@ -219,6 +247,129 @@ final class Entries {
 		return result;
 	}
 
+	/**
+	 * Returns a chunk of the entries with IDs between the given IDs in the order of their IDs on the ring. Entries with the same ID are always contained in the
+	 * same chunk.
+	 *
+	 * @param fromID
+	 *            Lower bound of IDs, or cursor of the previous chunk; entries matching this ID are NOT included in result.
+	 * @param toID
+	 *            Upper bound of IDs; entries matching this ID ARE included in result.
+	 * @param maxEntries
+	 *            Number of entries after which the chunk is closed.
+	 * @throws NullPointerException
+	 *             If either or both of the given ID references have value <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If <code>maxEntries</code> is not positive.
+	 * @return Chunk of matching entries, whose cursor is <code>null</code> if no further entries match.
+	 */
+	final EntryChunk getChunk(ID fromID, ID toID, int maxEntries) {
+
+		if (fromID == null || toID == null) {
+			NullPointerException e = new NullPointerException("Neither of the given IDs may have value null!");
+			Entries.logger.error("Null pointer", e);
+			throw e;
+		}
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Chunks must contain at least one entry!");
+		}
+
+		List<Entry> result = new ArrayList<Entry>();
+		ID lastID = null;
+
+		synchronized (this.entries) {
+			for (SortedMap<ID, Set<Entry>> part : this.getParts(fromID, toID)) {
+				for (Map.Entry<ID, Set<Entry>> nextEntries : part.entrySet()) {
+					if (result.size() >= maxEntries) {
+						return new EntryChunk(result, lastID);
+					}
+					result.addAll(nextEntries.getValue());
+					lastID = nextEntries.getKey();
+				}
+			}
+		}
+
+		return new EntryChunk(result, null);
+	}
+
+	/**
+	 * Returns the sub maps of {@link #sortedEntries} with IDs between the given IDs; the interval may wrap around the end of the ring, which takes two sub
+	 * maps. Must be invoked while holding the lock on {@link #entries}.
+	 *
+	 * @param fromID
+	 *            Lower bound of IDs, exclusive.
+	 * @param toID
+	 *            Upper bound of IDs, inclusive.
+	 * @return One or two sub maps in the order of their IDs on the ring.
+	 */
+	private List<SortedMap<ID, Set<Entry>>> getParts(ID fromID, ID toID) {
+		List<SortedMap<ID, Set<Entry>>> parts = new ArrayList<SortedMap<ID, Set<Entry>>>(2);
+		if (fromID.compareTo(toID) < 0) {
+			parts.add(this.sortedEntries.subMap(fromID, false, toID, true));
+		} else {
+			parts.add(this.sortedEntries.tailMap(fromID, false));
+			parts.add(this.sortedEntries.headMap(toID, true));
+		}
+		return parts;
+	}
+
+	/**
+	 * Summarizes the entries with IDs between the given IDs, just like {@link #getEntriesInInterval(ID, ID)}, but without copying them. The digest is the sum
+	 * of the digests of the entries, so that it does not depend on the order of iteration, and equals the digest of the same entries on any other node.
+	 *
+	 * @param fromID
+	 *            Lower bound of IDs; entries matching this ID are NOT included in summary.
+	 * @param toID
+	 *            Upper bound of IDs; entries matching this ID ARE included in summary.
+	 * @throws NullPointerException
+	 *             If either or both of the given ID references have value <code>null</code>.
+	 * @return Summary of matching entries.
+	 */
+	final ReplicaSummary getSummary(ID fromID, ID toID) {
+
+		if (fromID == null || toID == null) {
+			NullPointerException e = new NullPointerException("Neither of the given IDs may have value null!");
+			Entries.logger.error("Null pointer", e);
+			throw e;
+		}
+
+		int count = 0;
+		long digest = 0;
+
+		synchronized (this.entries) {
+			for (SortedMap<ID, Set<Entry>> part : this.getParts(fromID, toID)) {
+				for (Set<Entry> nextEntries : part.values()) {
+					for (Entry nextEntry : nextEntries) {
+						count++;
+						digest += this.digests.get(nextEntry);
+					}
+				}
+			}
+		}
+
+		return new ReplicaSummary(fromID, toID, count, digest);
+	}
+
+	/**
+	 * Calculates a digest of the given entry from its serialized form, which contains the bytes of its ID and its value. Unlike {@link Entry#hashCode()},
+	 * which depends on the hash code of the value, the digest is the same in every JVM.
+	 *
+	 * @param entry
+	 * @return First 64 bits of the MurmurHash3 value of the serialized entry.
+	 */
+	private static long digest(Entry entry) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(entry);
+			out.close();
+		} catch (IOException e) {
+			// cannot be transferred to other nodes either
+			Entries.logger.warn("Could not serialize entry " + entry, e);
+		}
+		return ByteBuffer.wrap(new MurmurHash3Digest().digest(bytes.toByteArray())).getLong();
+	}
+
 	/**
 	 * Removes the given entries from the local hash table.
 	 *
@@ -0,0 +1,175 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Copies the entries of an interval of IDs from a remote node to the local node as a sequence of chunks of at most {@link #CHUNK_SIZE} entries. The next
+ * chunk is only requested after the previous one has been stored, so that neither node holds more than one chunk in transit. If a chunk cannot be
+ * transferred, the transfer is resumed at the cursor of the last stored chunk; it is given up after {@link #RETRIES} consecutive failures, or if an
+ * overloaded node has rejected it for {@link #OVERLOAD_TIMEOUT} milliseconds. The same chunking is used to hand off entries to a remote node and to repair
+ * its replicas.
+ *
+ * @version 1.0.5
+ */
+final class EntryTransfer {
+
+	/**
+	 * Maximum number of entries per chunk.
+	 */
+	private static final int CHUNK_SIZE = Math.max(1, Integer.parseInt(System.getProperty(EntryTransfer.class.getName() + ".chunkSize", "1000")));
+
+	/**
+	 * Number of times a failed chunk is requested again before the transfer is given up. Rejections by an overloaded node are not counted.
+	 */
+	private static final int RETRIES = 2;
+
+	/**
+	 * Time in milliseconds since the last transferred chunk after which a transfer rejected by an overloaded node is given up.
+	 */
+	private static final long OVERLOAD_TIMEOUT = Long.parseLong(System.getProperty(EntryTransfer.class.getName() + ".overloadTimeout", "60000"));
+
+	private static final Logger logger = Logger.getLogger(EntryTransfer.class);
+
+	/**
+	 * No instances of this class.
+	 */
+	private EntryTransfer() {
+	}
+
+	/**
+	 * Copies all entries with IDs from <code>fromID</code> (exclusive) to <code>toID</code> (inclusive) from the given node into the local repository. If the
+	 * protocol of the given node does not support chunked transfers, the entries are copied with {@link Node#notifyAndCopyEntries(Node)} instead, which
+	 * requires <code>fromID</code> to be the ID of <code>source</code> and <code>toID</code> the ID of <code>localNode</code>.
+	 *
+	 * @param source
+	 *            Node to copy entries from.
+	 * @param fromID
+	 *            Lower bound of IDs.
+	 * @param toID
+	 *            Upper bound of IDs.
+	 * @param localNode
+	 *            Local node, which notifies <code>source</code> if chunked transfers are not supported.
+	 * @param entries
+	 *            Local repository for entries.
+	 * @return Number of copied entries.
+	 * @throws CommunicationException
+	 *             If a chunk could not be transferred after {@link #RETRIES} retries or within {@link #OVERLOAD_TIMEOUT}.
+	 */
+	static int copy(Node source, ID fromID, ID toID, Node localNode, Entries entries) throws CommunicationException {
+		ID cursor = fromID;
+		int copied = 0;
+		int chunks = 0;
+		int failures = 0;
+		long lastProgress = System.currentTimeMillis();
+		if (!source.supportsCopyEntries()) {
+			return copyAtOnce(source, localNode, entries);
+		}
+		while (cursor != null) {
+			EntryChunk chunk;
+			try {
+				chunk = source.copyEntries(cursor, toID, CHUNK_SIZE);
+			} catch (CommunicationException e) {
+				if (e instanceof OverloadedException ? System.currentTimeMillis() - lastProgress > OVERLOAD_TIMEOUT : ++failures > RETRIES) {
+					throw e;
+				}
+				if (logger.isEnabledFor(DEBUG)) {
+					logger.debug("Resuming transfer of entries from " + source.getId() + " at " + cursor, e);
+				}
+				RetryPolicy.awaitRetryAfter(e);
+				continue;
+			}
+			entries.addAll(chunk.getEntries());
+			copied += chunk.getEntries().size();
+			chunks++;
+			failures = 0;
+			lastProgress = System.currentTimeMillis();
+			cursor = chunk.getNextCursor();
+		}
+		if (logger.isEnabledFor(DEBUG)) {
+			logger.debug("Copied " + copied + " entries in " + chunks + " chunks from " + source.getId());
+		}
+		return copied;
+	}
+
+	/**
+	 * Hands off all entries with IDs from <code>fromID</code> (exclusive) to <code>toID</code> (inclusive) from the local repository to the given node. Every
+	 * chunk is acknowledged by the target before the next one is sent.
+	 *
+	 * @param entries
+	 *            Local repository for entries.
+	 * @param fromID
+	 *            Lower bound of IDs.
+	 * @param toID
+	 *            Upper bound of IDs.
+	 * @param target
+	 *            Node to hand off entries to.
+	 * @return Number of handed off entries.
+	 * @throws CommunicationException
+	 *             If a chunk could not be transferred after {@link #RETRIES} retries or within {@link #OVERLOAD_TIMEOUT}.
+	 */
+	static int handOff(Entries entries, ID fromID, ID toID, Node target) throws CommunicationException {
+		ID cursor = fromID;
+		int handedOff = 0;
+		int chunks = 0;
+		int failures = 0;
+		long lastProgress = System.currentTimeMillis();
+		while (cursor != null) {
+			EntryChunk chunk = entries.getChunk(cursor, toID, CHUNK_SIZE);
+			if (!chunk.getEntries().isEmpty()) {
+				try {
+					target.insertReplicas(new HashSet<Entry>(chunk.getEntries()));
+				} catch (CommunicationException e) {
+					if (e instanceof OverloadedException ? System.currentTimeMillis() - lastProgress > OVERLOAD_TIMEOUT : ++failures > RETRIES) {
+						throw e;
+					}
+					if (logger.isEnabledFor(DEBUG)) {
+						logger.debug("Resuming hand off of entries to " + target.getId() + " at " + cursor, e);
+					}
+					RetryPolicy.awaitRetryAfter(e);
+					continue;
+				}
+				handedOff += chunk.getEntries().size();
+				chunks++;
+				failures = 0;
+				lastProgress = System.currentTimeMillis();
+			}
+			cursor = chunk.getNextCursor();
+		}
+		if (logger.isEnabledFor(DEBUG)) {
+			logger.debug("Handed off " + handedOff + " entries in " + chunks + " chunks to " + target.getId());
+		}
+		return handedOff;
+	}
+
+	/**
+	 * Copies the entries the local node is responsible for from the given node in a single message.
+	 *
+	 * @param source
+	 * @param localNode
+	 * @param entries
+	 * @return Number of copied entries.
+	 * @throws CommunicationException
+	 */
+	private static int copyAtOnce(Node source, Node localNode, Entries entries) throws CommunicationException {
+		Set<Entry> copiedEntries = source.notifyAndCopyEntries(localNode).getEntries();
+		entries.addAll(copiedEntries);
+		return copiedEntries.size();
+	}
+
+}
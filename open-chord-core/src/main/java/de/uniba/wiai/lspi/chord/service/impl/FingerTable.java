@@ -13,6 +13,7 @@ package de.uniba.wiai.lspi.chord.service.impl;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.INFO;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +33,13 @@ import de.uniba.wiai.lspi.util.logging.Logger;
  */
 final class FingerTable {
 
+	/**
+	 * Base b of the finger table. For every power b^i smaller than the size of the ID space there are b-1 fingers pointing at the IDs j*b^i (j = 1..b-1)
+	 * after the local ID. With b = 2 this is the classic Chord finger table with one finger per bit; greater values trade a larger finger table for fewer
+	 * lookup hops (log_b(N) instead of log_2(N)).
+	 */
+	private static final int BASE = Integer.parseInt(System.getProperty(FingerTable.class.getName() + ".base", "2"));
+
 	/**
 	 * ID of local node.
 	 */
@@ -42,6 +50,11 @@ final class FingerTable {
 	 */
 	private final Node[] remoteNodes;
 
+	/**
+	 * Start IDs of the intervals of all finger table entries, in ascending distance from the local ID.
+	 */
+	private final ID[] startsOfIntervals;
+
 	/**
 	 * Reference on parent object.
 	 */
@@ -53,7 +66,7 @@ final class FingerTable {
 	private Logger logger;
 
 	/**
-	 * Creates an initially empty finger table. The table size is determined by the given ID's length. A reference on the parent object of type References is
+	 * Creates an initially empty finger table. The table size is determined by the given ID's length and the {@link #BASE base} of the table. A reference on the parent object of type References is
 	 * stored for being able to determine and disconnect unused references after removing them from the table.
 	 *
 	 * @param localID
@@ -74,7 +87,61 @@ final class FingerTable {
 
 		this.references = references;
 		this.localID = localID;
-		this.remoteNodes = new Node[localID.getBitLength()];
+		this.startsOfIntervals = createStartsOfIntervals(localID, BASE);
+		this.remoteNodes = new Node[this.startsOfIntervals.length];
+	}
+
+	/**
+	 * Determines the start IDs of the intervals of a finger table with the given base, i.e. localID + j*base^i for all j = 1..base-1 and all i for which the
+	 * offset is smaller than the size of the ID space.
+	 *
+	 * @param localID
+	 *            ID of local node.
+	 * @param base
+	 *            Base of the finger table; must be at least 2.
+	 * @return Start IDs in ascending distance from <code>localID</code>.
+	 * @throws IllegalArgumentException
+	 *             If base is smaller than 2.
+	 */
+	private static ID[] createStartsOfIntervals(ID localID, int base) {
+		if (base < 2) {
+			throw new IllegalArgumentException("Base of finger table must be at least 2! " + base + " is not a valid value!");
+		}
+		BigInteger sizeOfIDSpace = BigInteger.ONE.shiftLeft(localID.getBitLength());
+		BigInteger b = BigInteger.valueOf(base);
+		List<ID> starts = new ArrayList<ID>();
+		for (BigInteger power = BigInteger.ONE; power.compareTo(sizeOfIDSpace) < 0; power = power.multiply(b)) {
+			for (int j = 1; j < base; j++) {
+				BigInteger offset = power.multiply(BigInteger.valueOf(j));
+				if (offset.compareTo(sizeOfIDSpace) >= 0) {
+					break;
+				}
+				starts.add(localID.add(offset));
+			}
+		}
+		return starts.toArray(new ID[starts.size()]);
+	}
+
+	/**
+	 * Returns the number of entries of this finger table.
+	 *
+	 * @return Number of entries.
+	 */
+	final int getSize() {
+		return this.remoteNodes.length;
+	}
+
+	/**
+	 * Returns the start ID of the interval of the finger table entry with the given index, i.e. the ID the entry has to be the successor of.
+	 *
+	 * @param index
+	 *            Index of table entry.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             If given index is not contained in the finger table.
+	 * @return Start ID of the interval of the entry.
+	 */
+	final ID getStartOfInterval(int index) {
+		return this.startsOfIntervals[index];
 	}
 
 	/**
@@ -191,7 +258,7 @@ final class FingerTable {
 
 		for (int i = 0; i < this.remoteNodes.length; i++) {
 
-			ID startOfInterval = this.localID.addPowerOfTwo(i);
+			ID startOfInterval = this.startsOfIntervals[i];
 			if (!startOfInterval.isInInterval(this.localID, proxy.getId())) {
 				break;
 			}
@@ -322,7 +389,7 @@ final class FingerTable {
 		// determine node reference with next larger ID than ID of node
 		// reference to remove
 		Node referenceForReplacement = null;
-		for (int i = this.localID.getBitLength() - 1; i >= 0; i--) {
+		for (int i = this.remoteNodes.length - 1; i >= 0; i--) {
 			Node n = this.getEntry(i);
 			if (node1.equals(n)) {
 				break;
@@ -402,6 +469,31 @@ final class FingerTable {
 		return null;
 	}
 
+	/**
+	 * Returns all distinct references of this finger table that precede the given ID, i.e. that are located in the interval (local ID, key).
+	 *
+	 * @param key
+	 *            ID which the references shall precede.
+	 * @throws NullPointerException
+	 *             If given key is null.
+	 * @return Distinct references preceding <code>key</code>, ordered from the closest preceding one to the farthest one.
+	 */
+	final List<Node> getPrecedingNodes(ID key) {
+		if (key == null) {
+			NullPointerException e = new NullPointerException("ID to determine the preceding nodes may not be null!");
+			this.logger.error("Null pointer", e);
+			throw e;
+		}
+		List<Node> result = new ArrayList<Node>();
+		for (int i = this.remoteNodes.length - 1; i >= 0; i--) {
+			Node next = this.remoteNodes[i];
+			if (next != null && next.getId().isInInterval(this.localID, key) && !result.contains(next)) {
+				result.add(next);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Determines if the given reference is stored somewhere in the finger table.
 	 *
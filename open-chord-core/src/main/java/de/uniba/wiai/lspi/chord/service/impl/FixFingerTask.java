@@ -15,18 +15,26 @@ import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.INFO;
 
 import java.util.Random;
 
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
- * Looks up the node for a certain ID and stores the reference of the responsible node in the local finger table.
+ * Looks up the node for a certain ID and stores the reference of the responsible node in the local finger table. The first run after joining, and every run
+ * if {@link #SWEEP} is set, repairs all fingers with one sweep over the finger intervals: a lookup result is reused for all subsequent fingers whose start
+ * IDs it succeeds, so that only one lookup per distinct finger is needed instead of one per finger table entry.
  *
  * @author Sven Kaffille, Karsten Loesing
  * @version 1.0.5
  */
 final class FixFingerTask implements Runnable {
 
+	/**
+	 * Determines whether every run repairs all fingers with one sweep instead of a randomly picked finger.
+	 */
+	private static final boolean SWEEP = Boolean.parseBoolean(System.getProperty(ChordImpl.class.getName() + ".FixFingerTask.sweep", "false"));
+
 	/**
 	 * Instance of random generator for randomly picking another finger to fix.
 	 */
@@ -52,6 +60,12 @@ final class FixFingerTask implements Runnable {
 	 */
 	private References references;
 
+	/**
+	 * Determines whether the next run repairs all fingers instead of a random one. This is the case for the first run after the local node has joined and,
+	 * if {@link #SWEEP} is set, for every run.
+	 */
+	private boolean fixAllFingers = true;
+
 	/**
 	 * Creates a new instance, but without starting a thread running it.
 	 *
@@ -81,23 +95,11 @@ final class FixFingerTask implements Runnable {
 
 		try {
 
-			int nextFingerToFix = this.random.nextInt(this.localID.getBitLength());
-			if (this.logger.isEnabledFor(DEBUG)) {
-				this.logger.debug("fixFingers tries to get finger for key " + this.localID.addPowerOfTwo(nextFingerToFix).toString());
-			}
-
-			// look up reference
-			ID lookForID = this.localID.addPowerOfTwo(nextFingerToFix);
-			Node newReference;
-			// try {
-			newReference = this.parent.findSuccessor(lookForID);
-
-			// add new reference to finger table, if not yet included
-			if (newReference != null && !this.references.containsReference(newReference)) {
-				if (this.logger.isEnabledFor(INFO)) {
-					this.logger.info("Adding new reference " + newReference.getId().toString());
-				}
-				this.references.addReference(newReference);
+			if (this.fixAllFingers) {
+				this.fixAllFingers = SWEEP;
+				this.fixAllFingers();
+			} else {
+				this.fixFinger(this.random.nextInt(this.references.getNumberOfFingers()));
 			}
 
 			if (this.logger.isEnabledFor(DEBUG)) {
@@ -108,4 +110,62 @@ final class FixFingerTask implements Runnable {
 			this.logger.warn("Unexpected Exception caught in FixFingerTask!", e);
 		}
 	}
+
+	/**
+	 * Repairs all fingers with one sweep over the finger intervals in ascending distance from the local node. Start IDs up to the ID of the direct successor,
+	 * or of the node found by the last lookup, are known to map to that node and are skipped.
+	 *
+	 * @throws CommunicationException
+	 */
+	private void fixAllFingers() throws CommunicationException {
+		int numberOfFingers = this.references.getNumberOfFingers();
+		int lookups = 0;
+		Node coveringNode = this.references.getSuccessor();
+		for (int i = 0; i < numberOfFingers; i++) {
+			ID start = this.references.getStartOfFingerInterval(i);
+			if (coveringNode != null && (start.equals(coveringNode.getId()) || start.isInInterval(this.localID, coveringNode.getId()))) {
+				continue;
+			}
+			Node newReference = this.fixFinger(i);
+			lookups++;
+			if (newReference == null) {
+				continue;
+			}
+			if (newReference.getId().equals(this.localID)) {
+				// remaining fingers wrap around to the local node
+				break;
+			}
+			coveringNode = newReference;
+		}
+		if (this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("Fixed " + numberOfFingers + " fingers with " + lookups + " lookups.");
+		}
+	}
+
+	/**
+	 * Looks up the node responsible for the start of the interval of the finger with the given index and adds it to the references.
+	 *
+	 * @param nextFingerToFix
+	 *            Index of the finger to fix.
+	 * @return Node responsible for the start of the interval, or <code>null</code> if the lookup failed.
+	 * @throws CommunicationException
+	 */
+	private Node fixFinger(int nextFingerToFix) throws CommunicationException {
+		ID lookForID = this.references.getStartOfFingerInterval(nextFingerToFix);
+		if (this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("fixFingers tries to get finger for key " + lookForID.toString());
+		}
+
+		// look up reference
+		Node newReference = this.parent.findSuccessorForMaintenance(lookForID);
+
+		// add new reference to finger table, if not yet included
+		if (newReference != null && !this.references.containsReference(newReference)) {
+			if (this.logger.isEnabledFor(INFO)) {
+				this.logger.info("Adding new reference " + newReference.getId().toString());
+			}
+			this.references.addReference(newReference);
+		}
+		return newReference;
+	}
 }
\ No newline at end of file
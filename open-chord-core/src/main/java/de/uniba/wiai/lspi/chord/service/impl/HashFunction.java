@@ -12,6 +12,7 @@ package de.uniba.wiai.lspi.chord.service.impl;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
@@ -25,48 +26,91 @@ import de.uniba.wiai.lspi.chord.service.Key;
  */
 final class HashFunction {
 
+	/**
+	 * Name of the algorithm used to calculate hash values. Either the name of a {@link MessageDigest} algorithm of the Java API, e.g. SHA-1 or SHA-256, or
+	 * {@value MurmurHash3Digest#ALGORITHM} for a fast, non-cryptographic hash function.
+	 */
+	private static final String ALGORITHM = System.getProperty(HashFunction.class.getName() + ".algorithm", "SHA-1");
+
+	/**
+	 * Length of IDs in bits. Must be a multiple of 8 and must not exceed the length of the values calculated by {@link #ALGORITHM}; hash values are truncated
+	 * to this length. 0 means that the full hash value is used.
+	 */
+	private static final int ID_LENGTH = Integer.parseInt(System.getProperty(HashFunction.class.getName() + ".idLength", "0"));
+
 	/**
 	 * Singleton instance of this class.
 	 */
-	private static HashFunction hashFunction = null;
+	private static final HashFunction hashFunction = new HashFunction();
 
 	/**
 	 * Returns the singleton instance of this class.
 	 *
 	 * @return Singleton instance of HashFunction.
-	 * @throws RuntimeException
-	 *             If there is an internal problem with the specified hash function of the Java API.
 	 */
 	static HashFunction getHashFunction() {
+		return hashFunction;
+	}
 
-		if (hashFunction == null) {
-			try {
-				hashFunction = new HashFunction(MessageDigest.getInstance("SHA-1"));
-			} catch (NoSuchAlgorithmException e) {
-				throw new RuntimeException("No hash function available!", e);
-			}
+	/**
+	 * Message digests for calculating hash values. Every thread uses its own instance, so that concurrent calculations neither interfere nor contend for a
+	 * lock.
+	 */
+	private final ThreadLocal<MessageDigest> messageDigests = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			return createMessageDigest();
 		}
+	};
 
-		return hashFunction;
+	/**
+	 * Length of generated IDs in bytes.
+	 */
+	private final int lengthOfIDs;
 
-	}
+	/**
+	 * Determines whether hash values have to be truncated to {@link #lengthOfIDs}.
+	 */
+	private final boolean truncate;
 
 	/**
-	 * Message digest for calculating hash values.
+	 * Constructor is hidden and only invoked once to create the singleton instance.
+	 *
+	 * @throws RuntimeException
+	 *             If there is an internal problem with the specified hash function of the Java API.
+	 * @throws IllegalArgumentException
+	 *             If the configured ID length is not valid for the configured hash function.
 	 */
-	private MessageDigest messageDigest;
+	private HashFunction() {
+		int digestLength = createMessageDigest().getDigestLength();
+		if (ID_LENGTH == 0) {
+			this.lengthOfIDs = digestLength;
+		} else {
+			if (ID_LENGTH < 0 || ID_LENGTH % Byte.SIZE != 0 || ID_LENGTH > digestLength * Byte.SIZE) {
+				throw new IllegalArgumentException("ID length of " + ID_LENGTH + " bits is not a positive multiple of 8 of at most " + digestLength * Byte.SIZE
+						+ " bits, which is the length of hash values of " + ALGORITHM + "!");
+			}
+			this.lengthOfIDs = ID_LENGTH / Byte.SIZE;
+		}
+		this.truncate = this.lengthOfIDs < digestLength;
+	}
 
 	/**
-	 * Constructor is hidden and only invoked once by {@link #getHashFunction()}.
+	 * Creates a new message digest for calculating hash values.
 	 *
-	 * @param digest1
-	 *            Message digest for calculating hash values.
+	 * @return New message digest.
+	 * @throws RuntimeException
+	 *             If there is an internal problem with the specified hash function of the Java API.
 	 */
-	private HashFunction(MessageDigest digest1) {
-		if (digest1 == null) {
-			throw new NullPointerException("Parameter may not be null!");
+	private static MessageDigest createMessageDigest() {
+		if (MurmurHash3Digest.ALGORITHM.equalsIgnoreCase(ALGORITHM)) {
+			return new MurmurHash3Digest();
+		}
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("No hash function available for algorithm " + ALGORITHM + "!", e);
 		}
-		this.messageDigest = digest1;
 	}
 
 	/**
@@ -75,7 +119,7 @@ final class HashFunction {
 	 * @return Number of bytes of generated IDs.
 	 */
 	final int getLengthOfIDsInBytes() {
-		return this.messageDigest.getDigestLength();
+		return this.lengthOfIDs;
 	}
 
 	/**
@@ -85,27 +129,37 @@ final class HashFunction {
 	 * @return ID for the given Key.
 	 */
 	final ID getHashKey(Key entry) {
+		return this.createID(this.getBytes(entry), this.messageDigests.get());
+	}
 
+	/**
+	 * Returns the byte representation of the given key.
+	 *
+	 * @param entry
+	 * @return Byte representation of <code>entry</code>.
+	 * @throws IllegalArgumentException
+	 *             If <code>entry</code> is null or has no byte representation.
+	 */
+	private byte[] getBytes(Key entry) {
 		if (entry == null) {
 			throw new IllegalArgumentException("Parameter entry must not be null!");
 		}
-		if (entry.getBytes() == null || entry.getBytes().length == 0) {
+		byte[] bytes = entry.getBytes();
+		if (bytes == null || bytes.length == 0) {
 			throw new IllegalArgumentException("Byte representation of Parameter must not be null or have length 0!");
 		}
-
-		byte[] testBytes = entry.getBytes();
-		return this.createID(testBytes);
+		return bytes;
 	}
 
-	private final ID createID(byte[] testBytes) {
+	private final ID createID(byte[] testBytes, MessageDigest messageDigest) {
 		/*
-		 * synchronize access to messageDigest, so that messageDigest cannot be reset by another thread before calculating digest.
+		 * messageDigest is confined to the current thread, so no synchronization is needed; digest() resets it for the next calculation.
 		 */
-		synchronized (this.messageDigest) {
-			this.messageDigest.reset();
-			this.messageDigest.update(testBytes);
-			return new ID(this.messageDigest.digest());
+		byte[] hashValue = messageDigest.digest(testBytes);
+		if (this.truncate) {
+			hashValue = Arrays.copyOf(hashValue, this.lengthOfIDs);
 		}
+		return new ID(hashValue);
 	}
 
 	/**
@@ -122,8 +176,8 @@ final class HashFunction {
 			throw new IllegalArgumentException("URL must not be null!");
 		}
 		String id = incomingURL.toString();
-		ID resultKey = this.createID(id.getBytes());
+		ID resultKey = this.createID(id.getBytes(), this.messageDigests.get());
 		return resultKey;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,203 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Schedules the maintenance tasks of one node with intervals that adapt to the observed churn. As soon as a change of the predecessor or successor, or the
+ * failure of a reference, is observed (see {@link References#getChurnCount()}), the interval of every task drops to its configured interval divided by
+ * {@link #ADAPTATION_FACTOR}. While no changes are observed, the interval of a task is doubled after each run until it reaches its configured interval
+ * multiplied by {@link #ADAPTATION_FACTOR}. Every delay is randomly varied by {@link #JITTER} so that the maintenance of different nodes does not happen in
+ * lockstep.
+ *
+ * @version 1.0.5
+ */
+final class MaintenanceScheduler {
+
+	/**
+	 * Factor by which intervals are shortened after churn and lengthened while the ring is stable. A value of 1 results in fixed intervals.
+	 */
+	private static final int ADAPTATION_FACTOR = Math.max(1, Integer.parseInt(System.getProperty(ChordImpl.class.getName() + ".maintenance.adaptationFactor", "4")));
+
+	/**
+	 * Fraction by which every delay is randomly increased or decreased.
+	 */
+	private static final double JITTER = Math.min(1.0, Math.max(0.0, Double.parseDouble(System.getProperty(ChordImpl.class.getName() + ".maintenance.jitter", "0.2"))));
+
+	/**
+	 * Object logger.
+	 */
+	private final Logger logger;
+
+	/**
+	 * Executor running the maintenance tasks.
+	 */
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Reference on routing table, which reports churn.
+	 */
+	private final References references;
+
+	/**
+	 * Scheduled tasks.
+	 */
+	private final List<AdaptiveTask> tasks = new LinkedList<AdaptiveTask>();
+
+	/**
+	 * Churn count of {@link #references} when it was checked for the last time.
+	 */
+	private long lastChurnCount;
+
+	private final Random random = new Random();
+
+	/**
+	 * Determines whether this scheduler has been shut down, so that no further executions are scheduled.
+	 */
+	private boolean shutdown = false;
+
+	/**
+	 * Creates a new scheduler without any tasks.
+	 *
+	 * @param localID
+	 *            ID of local node.
+	 * @param executor
+	 *            Executor running the maintenance tasks.
+	 * @param references
+	 *            Reference on routing table.
+	 * @throws NullPointerException
+	 *             If either of the parameters is <code>null</code>.
+	 */
+	MaintenanceScheduler(ID localID, ScheduledExecutorService executor, References references) {
+		if (localID == null || executor == null || references == null) {
+			throw new NullPointerException("No argument to constructor may be null!");
+		}
+		this.logger = Logger.getLogger(MaintenanceScheduler.class.getName() + "." + localID);
+		this.executor = executor;
+		this.references = references;
+		this.lastChurnCount = references.getChurnCount();
+	}
+
+	/**
+	 * Schedules the given task for periodic execution.
+	 *
+	 * @param task
+	 *            Task to execute.
+	 * @param initialDelay
+	 *            Delay before the first execution.
+	 * @param interval
+	 *            Interval between two executions of the task, before adaptation.
+	 * @param unit
+	 *            Unit of <code>initialDelay</code> and <code>interval</code>.
+	 */
+	final synchronized void schedule(Runnable task, long initialDelay, long interval, TimeUnit unit) {
+		AdaptiveTask adaptiveTask = new AdaptiveTask(task, unit.toMillis(interval));
+		this.tasks.add(adaptiveTask);
+		this.scheduleNext(adaptiveTask, unit.toMillis(initialDelay));
+	}
+
+	/**
+	 * Cancels all tasks of this scheduler, interrupting running executions, without shutting down the executor, which may be shared with other nodes.
+	 */
+	final synchronized void shutdown() {
+		this.shutdown = true;
+		for (AdaptiveTask task : this.tasks) {
+			if (task.future != null) {
+				task.future.cancel(true);
+				task.future = null;
+			}
+		}
+	}
+
+	/**
+	 * Adapts the interval of the given task after it has run and schedules its next execution.
+	 *
+	 * @param task
+	 */
+	private synchronized void afterRun(AdaptiveTask task) {
+		long churnCount = this.references.getChurnCount();
+		if (churnCount != this.lastChurnCount) {
+			this.lastChurnCount = churnCount;
+			if (this.logger.isEnabledFor(DEBUG)) {
+				this.logger.debug("Churn observed; shortening maintenance intervals.");
+			}
+			for (AdaptiveTask other : this.tasks) {
+				other.currentInterval = other.minInterval;
+				// pull forward tasks which would otherwise run much later
+				if (other != task && other.future != null && other.future.getDelay(TimeUnit.MILLISECONDS) > other.currentInterval && other.future.cancel(false)) {
+					this.scheduleNext(other, other.currentInterval);
+				}
+			}
+		} else {
+			task.currentInterval = Math.min(2 * task.currentInterval, task.maxInterval);
+		}
+		this.scheduleNext(task, task.currentInterval);
+	}
+
+	/**
+	 * Schedules the next execution of the given task after the given delay, varied by {@link #JITTER}.
+	 *
+	 * @param task
+	 * @param delay
+	 *            Delay in milliseconds.
+	 */
+	private void scheduleNext(AdaptiveTask task, long delay) {
+		if (this.shutdown) {
+			return;
+		}
+		long jitteredDelay = Math.max(0, Math.round(delay * (1.0 + JITTER * (2 * this.random.nextDouble() - 1))));
+		try {
+			task.future = this.executor.schedule(task, jitteredDelay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// executor has been shut down; node has left or crashed
+			task.future = null;
+		}
+	}
+
+	/**
+	 * Wraps a maintenance task and keeps track of its current interval.
+	 */
+	private final class AdaptiveTask implements Runnable {
+
+		private final Runnable task;
+
+		private final long minInterval;
+
+		private final long maxInterval;
+
+		private long currentInterval;
+
+		private ScheduledFuture<?> future;
+
+		AdaptiveTask(Runnable task, long interval) {
+			this.task = task;
+			this.minInterval = Math.max(1, interval / ADAPTATION_FACTOR);
+			this.maxInterval = interval * ADAPTATION_FACTOR;
+			this.currentInterval = interval;
+		}
+
+		public void run() {
+			try {
+				this.task.run();
+			} finally {
+				afterRun(this);
+			}
+		}
+	}
+
+}
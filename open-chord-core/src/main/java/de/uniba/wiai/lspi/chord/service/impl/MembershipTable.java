@@ -0,0 +1,327 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Stores references on all nodes of the network the local node has learned about, in order to resolve lookups in one hop. Changes of the membership are
+ * recorded as {@link MembershipEvent}s which are piggybacked on stabilization and exchanged with a random member in every stabilization round, so that they
+ * spread by gossip in a logarithmic number of rounds. Every event is passed on {@link #RETRANSMISSION_FACTOR} times the logarithm of the network size; the
+ * events sent least often are sent first, so that no event is starved by newer ones.<br/>
+ * Of two events concerning the same node the one with the greater incarnation number wins, and at equal incarnation a
+ * {@link MembershipEvent.Type#LEFT} event wins. Every node announces itself with an incarnation taken from its own clock and increments it whenever it
+ * learns that it is believed to have left, so that clocks of different nodes are never compared. The table may be stale; the next hop taken from it is
+ * therefore validated by the regular Chord protocol.
+ *
+ * @version 1.0.5
+ */
+final class MembershipTable {
+
+	/**
+	 * Time in milliseconds for which events concerning nodes that have left are kept in order to ignore outdated events still being passed around.
+	 */
+	private static final long EVENT_LIFETIME = Long.parseLong(System.getProperty(MembershipTable.class.getName() + ".eventLifetime", "120000"));
+
+	/**
+	 * Number of times an event is passed on, multiplied by the logarithm of the number of members.
+	 */
+	private static final int RETRANSMISSION_FACTOR = Integer.parseInt(System.getProperty(MembershipTable.class.getName() + ".retransmissionFactor", "4"));
+
+	/**
+	 * Maximum number of recent events piggybacked on a single message.
+	 */
+	private static final int MAX_EVENTS_PER_MESSAGE = 64;
+
+	/**
+	 * Object logger.
+	 */
+	private final Logger logger;
+
+	/**
+	 * ID of local node, which is never stored as member.
+	 */
+	private final ID localID;
+
+	/**
+	 * Known members of the network ordered by ID.
+	 */
+	private final TreeMap<ID, Node> members = new TreeMap<ID, Node>();
+
+	/**
+	 * Most recent event per node, including the local node; events concerning nodes that have left are kept for the {@link #EVENT_LIFETIME}.
+	 */
+	private final Map<ID, MembershipEvent> latestEvents = new HashMap<ID, MembershipEvent>();
+
+	/**
+	 * Time in milliseconds at which the events in {@link #latestEvents} have been received or observed.
+	 */
+	private final Map<ID, Long> receptionTimes = new HashMap<ID, Long>();
+
+	/**
+	 * Number of times the events in {@link #latestEvents} which are still to be passed on have been sent.
+	 */
+	private final Map<ID, Integer> transmissions = new HashMap<ID, Integer>();
+
+	/**
+	 * Incarnation of the local node.
+	 */
+	private long incarnation = 0;
+
+	private final Random random = new Random();
+
+	/**
+	 * Creates an empty membership table.
+	 *
+	 * @param localID
+	 *            ID of local node. Must not be <code>null</code>.
+	 * @throws NullPointerException
+	 *             If local ID is <code>null</code>.
+	 */
+	MembershipTable(ID localID) {
+		if (localID == null) {
+			throw new NullPointerException("Local ID may not be null!");
+		}
+		this.localID = localID;
+		this.logger = Logger.getLogger(MembershipTable.class.getName() + "." + localID);
+	}
+
+	/**
+	 * Records a {@link MembershipEvent.Type#JOINED} event for the local node with a new incarnation, which is passed on to other nodes.
+	 *
+	 * @param localNode
+	 *            Local node.
+	 */
+	final synchronized void announce(Node localNode) {
+		this.incarnation = Math.max(this.incarnation + 1, System.currentTimeMillis());
+		this.record(new MembershipEvent(localNode, MembershipEvent.Type.JOINED, this.incarnation));
+	}
+
+	/**
+	 * Adds the given node as member, unless it is known to have left. Nothing is passed on to other nodes, as only the node itself announces that it has
+	 * joined.
+	 *
+	 * @param node
+	 *            Node that has been observed to be alive.
+	 */
+	final synchronized void addMember(Node node) {
+		ID id = node.getId();
+		if (id.equals(this.localID) || this.members.containsKey(id)) {
+			return;
+		}
+		MembershipEvent latest = this.latestEvents.get(id);
+		if (latest != null && latest.getType() == MembershipEvent.Type.LEFT) {
+			return;
+		}
+		this.members.put(id, node);
+	}
+
+	/**
+	 * Removes the given node from the members. Only if the node has left the network, a {@link MembershipEvent.Type#LEFT} event for its latest known
+	 * incarnation is passed on; a node which has only failed to respond to the local node is removed locally, as other nodes may still reach it.
+	 *
+	 * @param node
+	 *            Node that has left or is suspected to have failed.
+	 * @param left
+	 *            <code>true</code> if the node has announced to leave the network.
+	 */
+	final synchronized void removeMember(Node node, boolean left) {
+		ID id = node.getId();
+		if (this.members.remove(id) == null || !left) {
+			return;
+		}
+		MembershipEvent latest = this.latestEvents.get(id);
+		this.record(new MembershipEvent(node, MembershipEvent.Type.LEFT, latest != null ? latest.getIncarnation() : 0));
+	}
+
+	/**
+	 * Applies the given events received from another node. Events which do not supersede the ones known for the same node are ignored. An event claiming that
+	 * the local node has left is refuted by announcing a greater incarnation.
+	 *
+	 * @param events
+	 *            Received events.
+	 * @return Nodes that have been removed from the table.
+	 */
+	final synchronized List<Node> applyEvents(List<MembershipEvent> events) {
+		List<Node> removed = new LinkedList<Node>();
+		for (MembershipEvent event : events) {
+			ID id = event.getNode().getId();
+			MembershipEvent latest = this.latestEvents.get(id);
+			if (latest != null && !supersedes(event, latest)) {
+				continue;
+			}
+			if (id.equals(this.localID)) {
+				if (latest != null) {
+					this.incarnation = Math.max(this.incarnation, event.getIncarnation());
+					this.announce(latest.getNode());
+				}
+				continue;
+			}
+			Node formerMember = this.members.get(id);
+			this.record(event);
+			if (formerMember != null && event.getType() == MembershipEvent.Type.LEFT) {
+				removed.add(formerMember);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the events to be passed on to another node.
+	 *
+	 * @param fullMembership
+	 *            If <code>true</code>, the latest event for every member and the local node is returned, otherwise at most {@link #MAX_EVENTS_PER_MESSAGE}
+	 *            events which are still to be passed on, those sent least often first.
+	 * @return List of events.
+	 */
+	final synchronized List<MembershipEvent> getEvents(boolean fullMembership) {
+		this.discardOldEvents();
+		List<MembershipEvent> result = new ArrayList<MembershipEvent>();
+		if (fullMembership) {
+			for (Node member : this.members.values()) {
+				MembershipEvent latest = this.latestEvents.get(member.getId());
+				result.add(latest != null ? latest : new MembershipEvent(member, MembershipEvent.Type.JOINED, 0));
+			}
+			MembershipEvent self = this.latestEvents.get(this.localID);
+			if (self != null) {
+				result.add(self);
+			}
+			return result;
+		}
+		List<Map.Entry<ID, Integer>> pending = new ArrayList<Map.Entry<ID, Integer>>(this.transmissions.entrySet());
+		Collections.sort(pending, new Comparator<Map.Entry<ID, Integer>>() {
+			public int compare(Map.Entry<ID, Integer> e1, Map.Entry<ID, Integer> e2) {
+				return e1.getValue().compareTo(e2.getValue());
+			}
+		});
+		int limit = RETRANSMISSION_FACTOR * (32 - Integer.numberOfLeadingZeros(this.members.size() + 1));
+		for (Map.Entry<ID, Integer> entry : pending.subList(0, Math.min(pending.size(), MAX_EVENTS_PER_MESSAGE))) {
+			result.add(this.latestEvents.get(entry.getKey()));
+			if (entry.getValue() + 1 >= limit) {
+				this.transmissions.remove(entry.getKey());
+			} else {
+				this.transmissions.put(entry.getKey(), entry.getValue() + 1);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determines the member with the closest ID preceding the given ID.
+	 *
+	 * @param key
+	 *            ID to find closest preceding member for.
+	 * @return Closest preceding member, or <code>null</code> if no member is known.
+	 */
+	final synchronized Node getClosestPrecedingMember(ID key) {
+		Map.Entry<ID, Node> entry = this.members.lowerEntry(key);
+		if (entry == null) {
+			entry = this.members.lastEntry();
+		}
+		if (entry == null || entry.getKey().equals(key)) {
+			return null;
+		}
+		return entry.getValue();
+	}
+
+	/**
+	 * Chooses a member to exchange events with, each with a probability proportional to the part of the ring it is responsible for.
+	 *
+	 * @return A member, or <code>null</code> if no member is known.
+	 */
+	final synchronized Node getRandomMember() {
+		byte[] bytes = new byte[this.localID.getBitLength() / 8];
+		this.random.nextBytes(bytes);
+		Map.Entry<ID, Node> entry = this.members.ceilingEntry(new ID(bytes));
+		if (entry == null) {
+			entry = this.members.firstEntry();
+		}
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Determines if the given node is a member.
+	 *
+	 * @param node
+	 * @return <code>true</code> if the node is contained in this table.
+	 */
+	final synchronized boolean containsMember(Node node) {
+		return this.members.containsKey(node.getId());
+	}
+
+	/**
+	 * @return Number of members known to the local node.
+	 */
+	final synchronized int getSize() {
+		return this.members.size();
+	}
+
+	/**
+	 * @param event
+	 * @param latest
+	 *            Latest event known about the same node.
+	 * @return <code>true</code> if the given event is more recent than the latest one.
+	 */
+	private static boolean supersedes(MembershipEvent event, MembershipEvent latest) {
+		return event.getIncarnation() > latest.getIncarnation()
+				|| (event.getIncarnation() == latest.getIncarnation() && event.getType() == MembershipEvent.Type.LEFT && latest.getType() == MembershipEvent.Type.JOINED);
+	}
+
+	/**
+	 * Stores the given event, schedules it to be passed on, and applies it to the members.
+	 *
+	 * @param event
+	 */
+	private void record(MembershipEvent event) {
+		ID id = event.getNode().getId();
+		this.latestEvents.put(id, event);
+		this.receptionTimes.put(id, System.currentTimeMillis());
+		this.transmissions.put(id, 0);
+		if (id.equals(this.localID)) {
+			return;
+		}
+		if (event.getType() == MembershipEvent.Type.JOINED) {
+			this.members.put(id, event.getNode());
+		} else {
+			this.members.remove(id);
+		}
+		if (this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("Recorded membership event " + event + "; " + this.members.size() + " members are known.");
+		}
+	}
+
+	/**
+	 * Discards events concerning nodes that have left, which have been passed on and are older than the {@link #EVENT_LIFETIME}.
+	 */
+	private void discardOldEvents() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Map.Entry<ID, MembershipEvent>> it = this.latestEvents.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<ID, MembershipEvent> entry = it.next();
+			if (entry.getValue().getType() == MembershipEvent.Type.LEFT && !this.transmissions.containsKey(entry.getKey())
+					&& now - this.receptionTimes.get(entry.getKey()) > EVENT_LIFETIME) {
+				it.remove();
+				this.receptionTimes.remove(entry.getKey());
+			}
+		}
+	}
+
+}
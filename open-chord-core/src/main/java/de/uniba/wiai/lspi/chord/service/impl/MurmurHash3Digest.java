@@ -0,0 +1,190 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Message digest calculating the 128 bit variant of MurmurHash3 for x64 platforms. The hash function is not cryptographically secure, but considerably faster
+ * than SHA-1 and distributes keys just as evenly. It should only be used in networks whose nodes trust each other, as IDs can be chosen deliberately.
+ *
+ * @version 1.0.5
+ */
+final class MurmurHash3Digest extends MessageDigest {
+
+	/**
+	 * Name of this algorithm.
+	 */
+	static final String ALGORITHM = "MurmurHash3";
+
+	/**
+	 * Length of calculated hash values in bytes.
+	 */
+	private static final int DIGEST_LENGTH = 16;
+
+	private static final long C1 = 0x87c37b91114253d5L;
+
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	/**
+	 * Bytes passed to this digest since the last reset.
+	 */
+	private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+
+	MurmurHash3Digest() {
+		super(ALGORITHM);
+	}
+
+	@Override
+	protected int engineGetDigestLength() {
+		return DIGEST_LENGTH;
+	}
+
+	@Override
+	protected void engineUpdate(byte input1) {
+		this.input.write(input1);
+	}
+
+	@Override
+	protected void engineUpdate(byte[] input1, int offset, int len) {
+		this.input.write(input1, offset, len);
+	}
+
+	@Override
+	protected byte[] engineDigest() {
+		byte[] data = this.input.toByteArray();
+		this.input.reset();
+		return hash(data);
+	}
+
+	@Override
+	protected void engineReset() {
+		this.input.reset();
+	}
+
+	/**
+	 * Calculates the hash value of the given data with seed 0. The bytes of the tail are mixed in by falling through the cases of a switch.
+	 *
+	 * @param data
+	 * @return Hash value of 16 bytes, in big-endian order.
+	 */
+	@SuppressWarnings("fallthrough")
+	private static byte[] hash(byte[] data) {
+		int length = data.length;
+		int numberOfBlocks = length / 16;
+		long h1 = 0;
+		long h2 = 0;
+
+		for (int i = 0; i < numberOfBlocks; i++) {
+			long k1 = getLong(data, i * 16);
+			long k2 = getLong(data, i * 16 + 8);
+
+			h1 ^= mixK1(k1);
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(k2);
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		// tail
+		long k1 = 0;
+		long k2 = 0;
+		int tail = numberOfBlocks * 16;
+		switch (length & 15) {
+		case 15:
+			k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+		case 14:
+			k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+		case 13:
+			k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+		case 12:
+			k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+		case 11:
+			k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+		case 10:
+			k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+		case 9:
+			k2 ^= (long) (data[tail + 8] & 0xff);
+			h2 ^= mixK2(k2);
+		case 8:
+			k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+		case 7:
+			k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+		case 6:
+			k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+		case 5:
+			k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+		case 4:
+			k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+		case 3:
+			k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+		case 2:
+			k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+		case 1:
+			k1 ^= (long) (data[tail] & 0xff);
+			h1 ^= mixK1(k1);
+		default:
+			break;
+		}
+
+		// finalization
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+
+		byte[] result = new byte[DIGEST_LENGTH];
+		for (int i = 0; i < 8; i++) {
+			result[i] = (byte) (h1 >>> (56 - 8 * i));
+			result[i + 8] = (byte) (h2 >>> (56 - 8 * i));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads eight bytes in little-endian order.
+	 */
+	private static long getLong(byte[] data, int offset) {
+		long result = 0;
+		for (int i = 7; i >= 0; i--) {
+			result = (result << 8) | (data[offset + i] & 0xff);
+		}
+		return result;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		k1 *= C2;
+		return k1;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		k2 *= C1;
+		return k2;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+}
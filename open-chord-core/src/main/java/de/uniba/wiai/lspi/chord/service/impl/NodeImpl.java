@@ -23,9 +23,14 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
 import de.uniba.wiai.lspi.chord.com.Endpoint;
+import de.uniba.wiai.lspi.chord.com.EndpointListener;
 import de.uniba.wiai.lspi.chord.com.Endpoints;
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
 import de.uniba.wiai.lspi.chord.data.URL;
@@ -108,7 +113,16 @@ public final class NodeImpl extends Node {
 
 		// create endpoint for incoming connections
 		this.myEndpoint = Endpoints.createEndpoint(this, nodeURL);
+		this.myEndpoint.register(new EndpointListener() {
+			@Override
+			public void onStateChanged(Endpoint.State state) {
+				if (state == Endpoint.State.CRASHED) {
+					NodeImpl.this.impl.crash();
+				}
+			}
+		});
 		this.myEndpoint.listen();
+		this.references.announce(this);
 	}
 
 	/**
@@ -138,6 +152,17 @@ public final class NodeImpl extends Node {
 		return this.impl.findSuccessor(key);
 	}
 
+	/**
+	 * Looks up the successor of the given key for a maintenance task of this node; see {@link ChordImpl#findSuccessorForMaintenance(ID)}.
+	 *
+	 * @param key
+	 * @return Responsible node.
+	 * @throws CommunicationException
+	 */
+	final Node findSuccessorForMaintenance(ID key) throws CommunicationException {
+		return this.impl.findSuccessorForMaintenance(key);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -194,6 +219,67 @@ public final class NodeImpl extends Node {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final List<MembershipEvent> exchangeEvents(List<MembershipEvent> events) throws CommunicationException {
+		if (!this.references.isOneHopRouting()) {
+			return new LinkedList<MembershipEvent>();
+		}
+		this.references.applyMembershipEvents(events);
+		return this.references.getMembershipEvents(false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final StabilizationResult stabilize(Node potentialPredecessor, List<MembershipEvent> events, boolean fullMembership, ReplicaSummary replicaSummary)
+			throws CommunicationException {
+		/*
+		 * Mutual exclusion with notify and notifyAndCopyEntries.
+		 */
+		this.notifyLock.lock();
+		try {
+			// the invocation proves that the potential predecessor is alive
+			this.references.getPeerStatistics().recordContact(potentialPredecessor);
+
+			List<MembershipEvent> eventsToReturn;
+			if (this.references.isOneHopRouting()) {
+				this.references.applyMembershipEvents(events);
+				eventsToReturn = this.references.getMembershipEvents(fullMembership);
+			} else {
+				eventsToReturn = new LinkedList<MembershipEvent>();
+			}
+
+			ReplicaSummary summaryToReturn = null;
+			if (replicaSummary != null) {
+				summaryToReturn = this.entries.getSummary(replicaSummary.getFrom(), replicaSummary.getTo());
+			}
+
+			return new StabilizationResult(this.notify(potentialPredecessor), eventsToReturn, summaryToReturn);
+		} finally {
+			this.notifyLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final boolean supportsCopyEntries() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final EntryChunk copyEntries(ID fromID, ID toID, int maxEntries) {
+		return this.entries.getChunk(fromID, toID, maxEntries);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -361,7 +447,12 @@ public final class NodeImpl extends Node {
 		if (this.logger.isEnabledFor(DEBUG)) {
 			this.logger.debug("References before update: " + this.references.toString());
 		}
-		this.references.removeReference(this.references.getPredecessor());
+		// the leaving node has handed off its entries before and is the current
+		// predecessor, unless it has been replaced in the meantime
+		Node leavingNode = this.references.getPredecessor();
+		if (leavingNode != null) {
+			this.references.removeLeavingReference(leavingNode);
+		}
 		if (this.logger.isEnabledFor(DEBUG)) {
 			this.logger.debug("References after update: " + this.references.toString());
 		}
@@ -0,0 +1,311 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.data.ID;
+
+/**
+ * Keeps track of the observed round-trip times and failure rates of remote nodes. The values are exponentially weighted moving averages, so that recent
+ * observations dominate. Is used by {@link References} to prefer fast and reliable nodes when selecting the next hop of a lookup.<br/>
+ * Also serves as phi accrual failure detector: the times between successful contacts with a node are assumed to be normally distributed, and after a failed
+ * invocation the suspicion level phi = -log10(P(no contact for the elapsed time)) is derived from the time since the last contact. A node is regarded as
+ * failed if phi exceeds {@link #PHI_THRESHOLD} or if {@link #MAX_FAILURES} consecutive invocations have failed. As long as fewer than two contacts with a
+ * node have been observed, phi is 0, so that only the latter rule applies. Rejections of overloaded nodes are contacts, not failures.
+ *
+ * @version 1.0.5
+ */
+final class PeerStatistics {
+
+	/**
+	 * Weight of a new observation in the moving averages.
+	 */
+	private static final double SMOOTHING_FACTOR = 0.2;
+
+	/**
+	 * Number of records above which records that have not been updated for {@link #MAX_RECORD_AGE} milliseconds are discarded.
+	 */
+	private static final int MAX_RECORDS = 1024;
+
+	/**
+	 * Time in milliseconds after which an unused record may be discarded.
+	 */
+	private static final long MAX_RECORD_AGE = 10 * 60 * 1000;
+
+	/**
+	 * Suspicion level above which a node that failed to respond is regarded as failed.
+	 */
+	private static final double PHI_THRESHOLD = Double.parseDouble(System.getProperty(PeerStatistics.class.getName() + ".phiThreshold", "8"));
+
+	/**
+	 * Number of consecutive failed invocations after which a node is regarded as failed regardless of its suspicion level.
+	 */
+	private static final int MAX_FAILURES = Math.max(1, Integer.parseInt(System.getProperty(PeerStatistics.class.getName() + ".maxFailures", "3")));
+
+	/**
+	 * Lower bound of the standard deviation of times between contacts in milliseconds, so that nodes contacted at very regular intervals are not suspected
+	 * after a minor delay.
+	 */
+	private static final double MIN_STANDARD_DEVIATION = 100.0;
+
+	/**
+	 * Observations per remote node. Key: ID of remote node.
+	 */
+	private final ConcurrentHashMap<ID, Record> records = new ConcurrentHashMap<ID, Record>();
+
+	/**
+	 * Moving average of the round-trip times of all nodes in nanoseconds, stored as bits of a <code>double</code>; negative until a round-trip time has been
+	 * observed.
+	 */
+	private final AtomicLong meanRoundTripTime = new AtomicLong(Double.doubleToLongBits(-1.0));
+
+	/**
+	 * Records a successful invocation on the given node.
+	 *
+	 * @param node
+	 *            Node that has been invoked.
+	 * @param roundTripTime
+	 *            Time in nanoseconds the invocation took.
+	 */
+	final void recordSuccess(Node node, long roundTripTime) {
+		Record record = this.getRecord(node);
+		record.update(roundTripTime, false);
+		record.contact();
+		while (true) {
+			long current = this.meanRoundTripTime.get();
+			double mean = Double.longBitsToDouble(current);
+			double updated = mean < 0 ? roundTripTime : (1 - SMOOTHING_FACTOR) * mean + SMOOTHING_FACTOR * roundTripTime;
+			if (this.meanRoundTripTime.compareAndSet(current, Double.doubleToLongBits(updated))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Records a failed invocation on the given node.
+	 *
+	 * @param node
+	 *            Node that could not be reached.
+	 */
+	final void recordFailure(Node node) {
+		this.getRecord(node).update(-1, true);
+	}
+
+	/**
+	 * Records that the given node has contacted the local node, which proves that it is alive.
+	 *
+	 * @param node
+	 *            Node that has contacted the local node.
+	 */
+	final void recordContact(Node node) {
+		this.getRecord(node).contact();
+	}
+
+	/**
+	 * Returns the time of the last successful invocation on or by the given node.
+	 *
+	 * @param node
+	 * @return Time in milliseconds, or <code>-1</code> if no contact has been observed yet.
+	 */
+	final long getLastContact(Node node) {
+		Record record = this.records.get(node.getId());
+		return record == null ? -1 : record.getLastContact();
+	}
+
+	/**
+	 * Determines whether an invocation on the given node has failed since the last successful contact, so that the node should be avoided if possible.
+	 *
+	 * @param node
+	 * @return <code>true</code> if the node is suspected to have failed.
+	 */
+	final boolean isSuspected(Node node) {
+		Record record = this.records.get(node.getId());
+		return record != null && record.getConsecutiveFailures() > 0;
+	}
+
+	/**
+	 * Returns the suspicion level of the given node. The level is 0 unless an invocation on the node has failed since the last successful contact. Afterwards
+	 * it grows with the time since the last contact relative to the usual times between contacts, and remains 0 if these times are not known yet.
+	 *
+	 * @param node
+	 * @return Suspicion level phi.
+	 */
+	final double getSuspicion(Node node) {
+		Record record = this.records.get(node.getId());
+		return record == null ? 0.0 : record.getSuspicion();
+	}
+
+	/**
+	 * Determines whether the given node is regarded as failed, i.e. whether its suspicion level exceeds {@link #PHI_THRESHOLD} or {@link #MAX_FAILURES}
+	 * consecutive invocations have failed.
+	 *
+	 * @param node
+	 * @return <code>true</code> if the node should be removed from the references.
+	 */
+	final boolean isFailed(Node node) {
+		Record record = this.records.get(node.getId());
+		return record != null && (record.getConsecutiveFailures() >= MAX_FAILURES || record.getSuspicion() >= PHI_THRESHOLD);
+	}
+
+	/**
+	 * Returns the smoothed round-trip time observed for the given node.
+	 *
+	 * @param node
+	 * @return Round-trip time in nanoseconds, or <code>-1</code> if no successful invocation has been observed yet.
+	 */
+	final double getRoundTripTime(Node node) {
+		Record record = this.records.get(node.getId());
+		return record == null ? -1 : record.getRoundTripTime();
+	}
+
+	/**
+	 * Returns the smoothed failure rate observed for the given node.
+	 *
+	 * @param node
+	 * @return Failure rate between 0 and 1; 0 if no invocation has been observed yet.
+	 */
+	final double getFailureRate(Node node) {
+		Record record = this.records.get(node.getId());
+		return record == null ? 0.0 : record.getFailureRate();
+	}
+
+	/**
+	 * Returns the moving average of the round-trip times of all invocations, which is updated with every successful invocation, so that it is not computed
+	 * from all records for every lookup.
+	 *
+	 * @return Mean round-trip time in nanoseconds, or <code>-1</code> if no round-trip time is known.
+	 */
+	final double getMeanRoundTripTime() {
+		return Double.longBitsToDouble(this.meanRoundTripTime.get());
+	}
+
+	/**
+	 * Returns the record for the given node, creating it if necessary.
+	 *
+	 * @param node
+	 * @return Record of observations for <code>node</code>.
+	 */
+	private Record getRecord(Node node) {
+		ID id = node.getId();
+		Record record = this.records.get(id);
+		if (record == null) {
+			if (this.records.size() >= MAX_RECORDS) {
+				this.discardOldRecords();
+			}
+			record = new Record();
+			Record existing = this.records.putIfAbsent(id, record);
+			if (existing != null) {
+				record = existing;
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * Removes records that have not been updated for {@link #MAX_RECORD_AGE} milliseconds.
+	 */
+	private void discardOldRecords() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Record> it = this.records.values().iterator(); it.hasNext();) {
+			if (now - it.next().lastUpdate > MAX_RECORD_AGE) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Observations for a single remote node.
+	 */
+	private static final class Record {
+
+		private double roundTripTime = -1;
+
+		private double failureRate = 0.0;
+
+		private volatile long lastUpdate = System.currentTimeMillis();
+
+		private long lastContact = -1;
+
+		/**
+		 * Moving average of the times between contacts in milliseconds; negative until two contacts have been observed.
+		 */
+		private double meanInterval = -1;
+
+		/**
+		 * Moving variance of the times between contacts.
+		 */
+		private double intervalVariance = 0.0;
+
+		private int consecutiveFailures = 0;
+
+		synchronized void update(long rtt, boolean failed) {
+			this.failureRate = (1 - SMOOTHING_FACTOR) * this.failureRate + (failed ? SMOOTHING_FACTOR : 0.0);
+			if (!failed) {
+				this.roundTripTime = this.roundTripTime < 0 ? rtt : (1 - SMOOTHING_FACTOR) * this.roundTripTime + SMOOTHING_FACTOR * rtt;
+			} else {
+				this.consecutiveFailures++;
+			}
+			this.lastUpdate = System.currentTimeMillis();
+		}
+
+		synchronized void contact() {
+			long now = System.currentTimeMillis();
+			if (this.lastContact >= 0) {
+				double interval = now - this.lastContact;
+				if (this.meanInterval < 0) {
+					this.meanInterval = interval;
+				} else {
+					double difference = interval - this.meanInterval;
+					this.meanInterval += SMOOTHING_FACTOR * difference;
+					this.intervalVariance = (1 - SMOOTHING_FACTOR) * (this.intervalVariance + SMOOTHING_FACTOR * difference * difference);
+				}
+			}
+			this.lastContact = now;
+			this.lastUpdate = now;
+			this.consecutiveFailures = 0;
+		}
+
+		synchronized long getLastContact() {
+			return this.lastContact;
+		}
+
+		synchronized int getConsecutiveFailures() {
+			return this.consecutiveFailures;
+		}
+
+		synchronized double getSuspicion() {
+			if (this.consecutiveFailures == 0) {
+				return 0.0;
+			}
+			if (this.meanInterval < 0) {
+				// unknown intervals; only the number of failures counts
+				return 0.0;
+			}
+			double elapsed = System.currentTimeMillis() - this.lastContact;
+			double standardDeviation = Math.max(Math.sqrt(this.intervalVariance), Math.max(this.meanInterval / 4, MIN_STANDARD_DEVIATION));
+			// logistic approximation of the cumulative normal distribution
+			double y = (elapsed - this.meanInterval) / standardDeviation;
+			double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+			if (elapsed > this.meanInterval) {
+				return -Math.log10(e / (1.0 + e));
+			}
+			return -Math.log10(1.0 - 1.0 / (1.0 + e));
+		}
+
+		synchronized double getRoundTripTime() {
+			return this.roundTripTime;
+		}
+
+		synchronized double getFailureRate() {
+			return this.failureRate;
+		}
+	}
+
+}
@@ -13,6 +13,7 @@ package de.uniba.wiai.lspi.chord.service.impl;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.INFO;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -20,8 +21,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
 import de.uniba.wiai.lspi.chord.data.Entry;
 import de.uniba.wiai.lspi.chord.data.ID;
@@ -37,11 +41,34 @@ import de.uniba.wiai.lspi.util.logging.Logger;
  */
 final class References {
 
+	/**
+	 * Determines whether the next hop of a lookup is selected with respect to the observed round-trip times and failure rates of the candidates (proximity
+	 * route selection) instead of only by ID. Disabled by default, so that routing is unchanged unless configured.
+	 */
+	private static final boolean PROXIMITY_ROUTING = Boolean.parseBoolean(System.getProperty(References.class.getName() + ".proximityRouting", "false"));
+
+	/**
+	 * Factor by which the cost of a candidate next hop is increased per unit of its failure rate during proximity route selection.
+	 */
+	private static final double FAILURE_PENALTY = 10.0;
+
+	/**
+	 * Determines whether a table of all members of the network is maintained in addition to finger table and successor list, so that lookups can be resolved
+	 * in one hop.
+	 */
+	private static final boolean ONE_HOP_ROUTING = Boolean.parseBoolean(System.getProperty(References.class.getName() + ".oneHopRouting", "false"));
+
 	/**
 	 * Object logger.
 	 */
 	private Logger logger;
 
+	/**
+	 * Lock guarding all references. Remote nodes are contacted while holding it, e.g. to move replicas, so a lock is used instead of a monitor: virtual
+	 * threads blocked on a remote invocation do not pin their carrier thread.
+	 */
+	private final Lock lock = new ReentrantLock();
+
 	/**
 	 * This node's finger table.
 	 */
@@ -66,6 +93,22 @@ final class References {
 
 	private Entries entries;
 
+	/**
+	 * Observed round-trip times and failure rates of remote nodes.
+	 */
+	private final PeerStatistics peerStatistics = new PeerStatistics();
+
+	/**
+	 * This node's table of all members of the network; <code>null</code> if one-hop routing is disabled.
+	 */
+	private MembershipTable membershipTable = null;
+
+	/**
+	 * Number of changes of the direct successor or the predecessor and of removed or suspected references so far. Is written only while holding the lock on
+	 * this object.
+	 */
+	private volatile long churnCount = 0;
+
 	/**
 	 * Creates an References object which contains no references.
 	 *
@@ -101,10 +144,14 @@ final class References {
 		// create empty finger table and successor list
 		this.fingerTable = new FingerTable(locID, this);
 		this.successorList = new SuccessorList(locID, numberOfEntriesInSuccessorList, this, entries);
+		if (ONE_HOP_ROUTING) {
+			this.membershipTable = new MembershipTable(locID);
+		}
 	}
 
 	/**
-	 * Determines the closest preceding node for the given ID based on finger table, successor list, and predecessor, but without testing the node's liveliness.
+	 * Determines the closest preceding node for the given ID based on finger table, successor list, predecessor, and membership table (if one-hop routing is
+	 * enabled), but without testing the node's liveliness.
 	 *
 	 * @param key
 	 *            ID to find closest preceding node for.
@@ -112,148 +159,302 @@ final class References {
 	 *             If ID is <code>null</code>.
 	 * @return Reference on closest preceding node.
 	 */
-	final synchronized Node getClosestPrecedingNode(ID key) {
+	final Node getClosestPrecedingNode(ID key) {
+		this.lock.lock();
+		try {
+
+			if (key == null) {
+				NullPointerException e = new NullPointerException("ID may not be null!");
+				this.logger.error("Null pointer", e);
+				throw e;
+			}
 
-		if (key == null) {
-			NullPointerException e = new NullPointerException("ID may not be null!");
-			this.logger.error("Null pointer", e);
-			throw e;
+			Map<ID, Node> foundNodes = new HashMap<ID, Node>();
+			// determine closest preceding reference of finger table
+			Node closestNodeFT = this.fingerTable.getClosestPrecedingNode(key);
+			if (closestNodeFT != null) {
+				foundNodes.put(closestNodeFT.getId(), closestNodeFT);
+			}
+
+			// determine closest preceding reference of successor list
+			Node closestNodeSL = this.successorList.getClosestPrecedingNode(key);
+			if (closestNodeSL != null) {
+				foundNodes.put(closestNodeSL.getId(), closestNodeSL);
+			}
+
+			// predecessor is appropriate only if it precedes the given id
+			Node predecessorIfAppropriate = null;
+			if (this.predecessor != null && key.isInInterval(this.predecessor.getId(), this.localID)) {
+				predecessorIfAppropriate = this.predecessor;
+				foundNodes.put(this.predecessor.getId(), predecessor);
+			}
+
+			// determine closest preceding member, which is the predecessor of the
+			// node responsible for the given id unless the membership table is
+			// stale
+			Node closestMember = null;
+			if (this.membershipTable != null) {
+				closestMember = this.membershipTable.getClosestPrecedingMember(key);
+				if (closestMember != null && !foundNodes.containsKey(closestMember.getId())) {
+					foundNodes.put(closestMember.getId(), closestMember);
+				}
+			}
+
+			// with three references which may be null, there are eight (8) cases we
+			// have to enumerate...
+			Node closestNode = null;
+			List<ID> orderedIDList = new ArrayList<ID>(foundNodes.keySet());
+			orderedIDList.add(key);
+			int sizeOfList = orderedIDList.size();
+			// size of list must be greater than one to not only contain the key.
+			// if (sizeOfList > 1) {
+
+			/*
+			 * Sort list in ascending order
+			 */
+			Collections.sort(orderedIDList);
+			/*
+			 * The list item with one index lower than that of the key must be the id of the closest predecessor or the key.
+			 */
+			int keyIndex = orderedIDList.indexOf(key);
+			/*
+			 * As all ids are located on a ring if the key is the first item in the list we have to select the last item as predecessor with help of this
+			 * calculation.
+			 */
+			int index = (sizeOfList + (keyIndex - 1)) % sizeOfList;
+			/*
+			 * Get the references to the node from the map of collected nodes.
+			 */
+			ID idOfclosestNode = orderedIDList.get(index);
+			closestNode = foundNodes.get(idOfclosestNode);
+			if (closestNode == null) {
+				throw new NullPointerException("closestNode must not be null!");
+			}
+
+			// avoid nodes suspected to have failed, unless no other node precedes
+			// the key
+			if (this.peerStatistics.isSuspected(closestNode)) {
+				closestNode = this.selectUnsuspected(key, closestNode);
+			}
+
+			// a hop taken from the membership table already resolves the lookup
+			if (PROXIMITY_ROUTING && !closestNode.equals(closestMember)) {
+				closestNode = this.selectByProximity(key, closestNode);
+			}
+
+			/*
+			 * Following code is too complicated.
+			 */
+			// if (closestNodeFT == null) {
+			// if (closestNodeSL == null) {
+			// if (predecessorIfAppropriate == null) {
+			// // no reference is appropriate
+			// closestNode = null;
+			// } else {
+			// // only predecessor is appropriate (case should not occur,
+			// // but anyway...
+			// closestNode = predecessorIfAppropriate;
+			// }
+			// } else {
+			// if (predecessorIfAppropriate == null) {
+			// // only reference of successor list is appropriate
+			// closestNode = closestNodeSL;
+			// } else {
+			// // either predecessor or reference of successor list is
+			// // appropriate; determine one of both
+			// if (predecessorIfAppropriate.nodeID.isInInterval(
+			// closestNodeSL.nodeID, key)) {
+			// closestNode = predecessorIfAppropriate;
+			// } else {
+			// closestNode = closestNodeSL;
+			// }
+			// }
+			// }
+			// } else {
+			// if (closestNodeSL == null) {
+			// if (predecessorIfAppropriate == null) {
+			// // only reference of finger table is appropriate
+			// closestNode = closestNodeFT;
+			// } else {
+			// // either predecessor or reference of finger table is
+			// // appropriate; determine one of both
+			// if (predecessorIfAppropriate.nodeID.isInInterval(
+			// closestNodeFT.nodeID, key)) {
+			// closestNode = predecessorIfAppropriate;
+			// } else {
+			// closestNode = closestNodeFT;
+			// }
+			// }
+			// } else {
+			// if (predecessorIfAppropriate == null) {
+			// // either reference of successor list or reference of finger
+			// // table is appropriate; determine one of both
+			// if (closestNodeSL.nodeID.isInInterval(closestNodeFT.nodeID,
+			// key)) {
+			// closestNode = closestNodeSL;
+			// } else {
+			// closestNode = closestNodeFT;
+			// }
+			// } else {
+			// // either of the three reference is appropriate; determine
+			// // first one of the references of successor list and finger
+			// // table is more appropriate and afterwards compare with
+			// // predecessor
+			// if (closestNodeSL.nodeID.isInInterval(closestNodeFT.nodeID,
+			// key)) {
+			// if (predecessorIfAppropriate.nodeID.isInInterval(
+			// closestNodeSL.nodeID, key)) {
+			// closestNode = predecessorIfAppropriate;
+			// } else {
+			// closestNode = closestNodeSL;
+			// }
+			// } else {
+			// if (predecessorIfAppropriate.nodeID.isInInterval(
+			// closestNodeFT.nodeID, key)) {
+			// closestNode = predecessorIfAppropriate;
+			// } else {
+			// closestNode = closestNodeFT;
+			// }
+			// }
+			// }
+			// }
+			// }
+			if (this.logger.isEnabledFor(DEBUG)) {
+				this.logger.debug("Closest preceding node of ID " + key + " at node " + this.localID.toString() + " is " + closestNode.getId() + " with closestNodeFT="
+						+ (closestNodeFT == null ? "null" : "" + closestNodeFT.getId()) + " and closestNodeSL=" + (closestNodeSL == null ? "null" : "" + closestNodeSL.getId())
+						+ " and predecessor (only if it precedes given ID)=" + (predecessorIfAppropriate == null ? "null" : "" + predecessorIfAppropriate.getId()));
+			}
+			return closestNode;
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
-		Map<ID, Node> foundNodes = new HashMap<ID, Node>();
-		// determine closest preceding reference of finger table
-		Node closestNodeFT = this.fingerTable.getClosestPrecedingNode(key);
-		if (closestNodeFT != null) {
-			foundNodes.put(closestNodeFT.getId(), closestNodeFT);
-		}
-
-		// determine closest preceding reference of successor list
-		Node closestNodeSL = this.successorList.getClosestPrecedingNode(key);
-		if (closestNodeSL != null) {
-			foundNodes.put(closestNodeSL.getId(), closestNodeSL);
-		}
-
-		// predecessor is appropriate only if it precedes the given id
-		Node predecessorIfAppropriate = null;
-		if (this.predecessor != null && key.isInInterval(this.predecessor.getId(), this.localID)) {
-			predecessorIfAppropriate = this.predecessor;
-			foundNodes.put(this.predecessor.getId(), predecessor);
-		}
-
-		// with three references which may be null, there are eight (8) cases we
-		// have to enumerate...
-		Node closestNode = null;
-		List<ID> orderedIDList = new ArrayList<ID>(foundNodes.keySet());
-		orderedIDList.add(key);
-		int sizeOfList = orderedIDList.size();
-		// size of list must be greater than one to not only contain the key.
-		// if (sizeOfList > 1) {
-
-		/*
-		 * Sort list in ascending order
-		 */
-		Collections.sort(orderedIDList);
-		/*
-		 * The list item with one index lower than that of the key must be the id of the closest predecessor or the key.
-		 */
-		int keyIndex = orderedIDList.indexOf(key);
-		/*
-		 * As all ids are located on a ring if the key is the first item in the list we have to select the last item as predecessor with help of this
-		 * calculation.
-		 */
-		int index = (sizeOfList + (keyIndex - 1)) % sizeOfList;
-		/*
-		 * Get the references to the node from the map of collected nodes.
-		 */
-		ID idOfclosestNode = orderedIDList.get(index);
-		closestNode = foundNodes.get(idOfclosestNode);
-		if (closestNode == null) {
-			throw new NullPointerException("closestNode must not be null!");
-		}
-
-		/*
-		 * Following code is too complicated.
-		 */
-		// if (closestNodeFT == null) {
-		// if (closestNodeSL == null) {
-		// if (predecessorIfAppropriate == null) {
-		// // no reference is appropriate
-		// closestNode = null;
-		// } else {
-		// // only predecessor is appropriate (case should not occur,
-		// // but anyway...
-		// closestNode = predecessorIfAppropriate;
-		// }
-		// } else {
-		// if (predecessorIfAppropriate == null) {
-		// // only reference of successor list is appropriate
-		// closestNode = closestNodeSL;
-		// } else {
-		// // either predecessor or reference of successor list is
-		// // appropriate; determine one of both
-		// if (predecessorIfAppropriate.nodeID.isInInterval(
-		// closestNodeSL.nodeID, key)) {
-		// closestNode = predecessorIfAppropriate;
-		// } else {
-		// closestNode = closestNodeSL;
-		// }
-		// }
-		// }
-		// } else {
-		// if (closestNodeSL == null) {
-		// if (predecessorIfAppropriate == null) {
-		// // only reference of finger table is appropriate
-		// closestNode = closestNodeFT;
-		// } else {
-		// // either predecessor or reference of finger table is
-		// // appropriate; determine one of both
-		// if (predecessorIfAppropriate.nodeID.isInInterval(
-		// closestNodeFT.nodeID, key)) {
-		// closestNode = predecessorIfAppropriate;
-		// } else {
-		// closestNode = closestNodeFT;
-		// }
-		// }
-		// } else {
-		// if (predecessorIfAppropriate == null) {
-		// // either reference of successor list or reference of finger
-		// // table is appropriate; determine one of both
-		// if (closestNodeSL.nodeID.isInInterval(closestNodeFT.nodeID,
-		// key)) {
-		// closestNode = closestNodeSL;
-		// } else {
-		// closestNode = closestNodeFT;
-		// }
-		// } else {
-		// // either of the three reference is appropriate; determine
-		// // first one of the references of successor list and finger
-		// // table is more appropriate and afterwards compare with
-		// // predecessor
-		// if (closestNodeSL.nodeID.isInInterval(closestNodeFT.nodeID,
-		// key)) {
-		// if (predecessorIfAppropriate.nodeID.isInInterval(
-		// closestNodeSL.nodeID, key)) {
-		// closestNode = predecessorIfAppropriate;
-		// } else {
-		// closestNode = closestNodeSL;
-		// }
-		// } else {
-		// if (predecessorIfAppropriate.nodeID.isInInterval(
-		// closestNodeFT.nodeID, key)) {
-		// closestNode = predecessorIfAppropriate;
-		// } else {
-		// closestNode = closestNodeFT;
-		// }
-		// }
-		// }
-		// }
-		// }
-		if (this.logger.isEnabledFor(DEBUG)) {
-			this.logger.debug("Closest preceding node of ID " + key + " at node " + this.localID.toString() + " is " + closestNode.getId() + " with closestNodeFT="
-					+ (closestNodeFT == null ? "null" : "" + closestNodeFT.getId()) + " and closestNodeSL=" + (closestNodeSL == null ? "null" : "" + closestNodeSL.getId())
-					+ " and predecessor (only if it precedes given ID)=" + (predecessorIfAppropriate == null ? "null" : "" + predecessorIfAppropriate.getId()));
+	/**
+	 * Selects the next hop for a lookup of the given ID among all references preceding that ID. Each candidate is scored by the number of bits of ID distance
+	 * to the key it covers, divided by its expected cost, which is derived from its observed round-trip time and failure rate. If nothing has been observed yet
+	 * the numerically closest preceding node is returned.
+	 *
+	 * @param key
+	 *            ID to look up.
+	 * @param closestNode
+	 *            Numerically closest preceding node of <code>key</code>.
+	 * @return The candidate with the best score.
+	 */
+	private Node selectByProximity(ID key, Node closestNode) {
+		double meanRoundTripTime = this.peerStatistics.getMeanRoundTripTime();
+		if (meanRoundTripTime < 0) {
+			return closestNode;
+		}
+
+		double distanceToKey = log2Distance(this.localID, key);
+		Node bestNode = closestNode;
+		double bestScore = this.getProximityScore(closestNode, key, distanceToKey, meanRoundTripTime);
+		for (Node candidate : this.getPrecedingCandidates(key)) {
+			if (this.peerStatistics.isSuspected(candidate)) {
+				continue;
+			}
+			double score = this.getProximityScore(candidate, key, distanceToKey, meanRoundTripTime);
+			if (score > bestScore) {
+				bestScore = score;
+				bestNode = candidate;
+			}
+		}
+		if (!bestNode.equals(closestNode) && this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("Proximity route selection preferred " + bestNode.getId() + " over " + closestNode.getId() + " for ID " + key);
 		}
-		return closestNode;
+		return bestNode;
+	}
+
+	/**
+	 * Selects the closest preceding node of the given ID among all references preceding that ID which are not suspected to have failed.
+	 *
+	 * @param key
+	 *            ID to look up.
+	 * @param closestNode
+	 *            Numerically closest preceding node of <code>key</code>, which is suspected to have failed.
+	 * @return The closest preceding node that is not suspected, or <code>closestNode</code> if all candidates are suspected.
+	 */
+	private Node selectUnsuspected(ID key, Node closestNode) {
+		Node bestNode = closestNode;
+		BigInteger bestDistance = null;
+		for (Node candidate : this.getPrecedingCandidates(key)) {
+			if (!this.peerStatistics.isSuspected(candidate)) {
+				BigInteger distance = candidate.getId().distanceTo(key);
+				if (bestDistance == null || distance.compareTo(bestDistance) < 0) {
+					bestDistance = distance;
+					bestNode = candidate;
+				}
+			}
+		}
+		if (!bestNode.equals(closestNode) && this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("Avoiding suspected node " + closestNode.getId() + " in favor of " + bestNode.getId() + " for ID " + key);
+		}
+		return bestNode;
+	}
+
+	/**
+	 * Returns all distinct references of finger table, successor list, and the predecessor which precede the given ID.
+	 *
+	 * @param key
+	 * @return Candidate next hops for a lookup of <code>key</code>.
+	 */
+	private List<Node> getPrecedingCandidates(ID key) {
+		List<Node> candidates = this.fingerTable.getPrecedingNodes(key);
+		for (Node next : this.successorList.getPrecedingNodes(key)) {
+			if (!candidates.contains(next)) {
+				candidates.add(next);
+			}
+		}
+		if (this.predecessor != null && key.isInInterval(this.predecessor.getId(), this.localID) && !candidates.contains(this.predecessor)) {
+			candidates.add(this.predecessor);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Calculates the score of a candidate next hop for proximity route selection.
+	 *
+	 * @param candidate
+	 * @param key
+	 * @param distanceToKey
+	 *            Binary logarithm of the distance between the local node and the key.
+	 * @param meanRoundTripTime
+	 *            Round-trip time assumed for candidates without observations.
+	 * @return Covered bits of ID distance per expected unit of cost.
+	 */
+	private double getProximityScore(Node candidate, ID key, double distanceToKey, double meanRoundTripTime) {
+		double progress = distanceToKey - log2Distance(candidate.getId(), key);
+		double roundTripTime = this.peerStatistics.getRoundTripTime(candidate);
+		if (roundTripTime < 0) {
+			roundTripTime = meanRoundTripTime;
+		}
+		double cost = Math.max(roundTripTime, 1.0) * (1.0 + FAILURE_PENALTY * this.peerStatistics.getFailureRate(candidate));
+		return progress / cost;
+	}
+
+	/**
+	 * Returns the binary logarithm of the clockwise distance between the given IDs. Equal IDs are regarded as being one full ring apart.
+	 *
+	 * @param from
+	 * @param to
+	 * @return Binary logarithm of distance.
+	 */
+	private static double log2Distance(ID from, ID to) {
+		BigInteger distance = from.distanceTo(to);
+		if (distance.signum() == 0) {
+			return from.getBitLength();
+		}
+		return Math.log(distance.doubleValue()) / Math.log(2);
+	}
+
+	/**
+	 * Returns the statistics about remote nodes which are considered when selecting the next hop of a lookup.
+	 *
+	 * @return Statistics about remote nodes.
+	 */
+	final PeerStatistics getPeerStatistics() {
+		return this.peerStatistics;
 	}
 
 	/**
@@ -266,37 +467,87 @@ final class References {
 	 * @throws NullPointerException
 	 *             If the given reference is null.
 	 */
-	final synchronized void addReference(Node newReference) throws CommunicationException {
+	final void addReference(Node newReference) throws CommunicationException {
+		this.lock.lock();
+		try {
+
+			if (newReference == null) {
+				NullPointerException e = new NullPointerException("Node reference to be added must not be null!");
+				this.logger.error("Null pointer", e);
+				throw e;
+			}
 
-		if (newReference == null) {
-			NullPointerException e = new NullPointerException("Node reference to be added must not be null!");
-			this.logger.error("Null pointer", e);
-			throw e;
-		}
+			boolean debug = this.logger.isEnabledFor(DEBUG);
+			// June 21, 2006. Moved here by sven to avoid failing of checkIfProxy()
+			if (newReference.getId().equals(this.localID)) {
+				if (debug) {
+					this.logger.debug("Reference on myself was not added");
+				}
+				return;
+			}
+
+			// check parameters
+			this.checkIfProxy(newReference);
+
+			Node formerSuccessor = this.successorList.getDirectSuccessor();
+			this.fingerTable.addReference(newReference);
+			this.successorList.addSuccessor(newReference);
+			if (formerSuccessor == null || !formerSuccessor.equals(this.successorList.getDirectSuccessor())) {
+				this.churnCount++;
+			}
+			if (this.membershipTable != null) {
+				this.membershipTable.addMember(newReference);
+			}
 
-		boolean debug = this.logger.isEnabledFor(DEBUG);
-		// June 21, 2006. Moved here by sven to avoid failing of checkIfProxy()
-		if (newReference.getId().equals(this.localID)) {
 			if (debug) {
-				this.logger.debug("Reference on myself was not added");
+				this.logger.debug("Attempted to add reference " + newReference.getId().toString() + " to finger table and successor list. Whether it fit " + "or not depends on those data structures.");
 			}
-			return;
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
-		// check parameters
-		this.checkIfProxy(newReference);
-
-		this.fingerTable.addReference(newReference);
-		this.successorList.addSuccessor(newReference);
-
-		if (debug) {
-			this.logger.debug("Attempted to add reference " + newReference.getId().toString() + " to finger table and successor list. Whether it fit " + "or not depends on those data structures.");
+	/**
+	 * Reports that an invocation on the given node has failed. The node is removed from all data structures (see {@link #removeReference(Node)}) only if the
+	 * failure detector of {@link PeerStatistics} regards it as failed. Otherwise it is only suspected, which makes lookups avoid it and maintenance check on it
+	 * soon.
+	 *
+	 * @param node
+	 *            Node that could not be reached.
+	 * @return <code>true</code> if the node has been removed.
+	 * @throws CommunicationException
+	 * @throws NullPointerException
+	 *             If node is <code>null</code>.
+	 */
+	final boolean reportFailure(Node node) throws CommunicationException {
+		if (node == null) {
+			NullPointerException e = new NullPointerException("Failed node must not be null!");
+			this.logger.error("Null pointer", e);
+			throw e;
+		}
+		this.peerStatistics.recordFailure(node);
+		if (this.peerStatistics.isFailed(node)) {
+			this.removeReference(node);
+			return true;
 		}
+		this.lock.lock();
+		try {
+			// shortens maintenance intervals, so that the suspicion is confirmed
+			// or refuted soon
+			this.churnCount++;
+		} finally {
+			this.lock.unlock();
+		}
+		if (this.logger.isEnabledFor(DEBUG)) {
+			this.logger.debug("Node " + node.getId() + " is suspected to have failed with phi=" + this.peerStatistics.getSuspicion(node) + ", but is kept for now.");
+		}
+		return false;
 	}
 
 	/**
-	 * Removes the given node reference from the finger table and the successor list. If the given reference is the current predecessor, the predecessor
-	 * reference will be <code>null</code> afterwards.
+	 * Removes the given node reference from the finger table, the successor list and the membership table. If the given reference is the current predecessor,
+	 * the predecessor reference will be <code>null</code> afterwards. Other members are not told, as the node may only have failed to respond to the local
+	 * node.
 	 *
 	 * @param oldReference
 	 *            Reference to remove from ALL data structures.
@@ -304,30 +555,66 @@ final class References {
 	 * @throws NullPointerException
 	 *             If reference to remove is <code>null</code>.
 	 */
-	final synchronized void removeReference(Node oldReference) throws CommunicationException {
+	final void removeReference(Node oldReference) throws CommunicationException {
+		this.removeReference(oldReference, false);
+	}
 
-		if (oldReference == null) {
-			NullPointerException e = new NullPointerException("Reference to remove must not be null!");
-			this.logger.error("Null pointer", e);
-			throw e;
-		}
+	/**
+	 * Removes a node which has left the network gracefully from all data structures, and lets the other members know that it has left.
+	 *
+	 * @param leavingNode
+	 *            Node that has left.
+	 * @throws CommunicationException
+	 * @throws NullPointerException
+	 *             If reference to remove is <code>null</code>.
+	 */
+	final void removeLeavingReference(Node leavingNode) throws CommunicationException {
+		this.removeReference(leavingNode, true);
+	}
 
-		this.fingerTable.removeReference(oldReference);
-		this.successorList.removeReference(oldReference);
+	/**
+	 * @param oldReference
+	 * @param left
+	 *            <code>true</code> if the node has left the network gracefully.
+	 * @throws CommunicationException
+	 */
+	private void removeReference(Node oldReference, boolean left) throws CommunicationException {
+		this.lock.lock();
+		try {
+
+			if (oldReference == null) {
+				NullPointerException e = new NullPointerException("Reference to remove must not be null!");
+				this.logger.error("Null pointer", e);
+				throw e;
+			}
 
-		if (oldReference.equals(this.getPredecessor())) {
-			this.predecessor = null;
-		}
+			if (this.containsReference(oldReference)) {
+				this.churnCount++;
+			}
+			this.fingerTable.removeReference(oldReference);
+			this.successorList.removeReference(oldReference);
 
-		disconnectIfUnreferenced(oldReference);
+			if (oldReference.equals(this.getPredecessor())) {
+				this.predecessor = null;
+			}
 
-		if (this.logger.isEnabledFor(DEBUG)) {
-			this.logger.debug("Attempted to remove reference " + oldReference + " from all data structures including predecessor reference.");
+			if (this.membershipTable != null) {
+				this.membershipTable.removeMember(oldReference, left);
+			}
+
+			disconnectIfUnreferenced(oldReference);
+
+			if (this.logger.isEnabledFor(DEBUG)) {
+				this.logger.debug("Attempted to remove reference " + oldReference + " from all data structures including predecessor reference.");
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
 	/**
-	 * Closes the connection to the given reference, if it is not kept in any data structure (ie. finger table, successor list, predecessor) any more.
+	 * Closes the connection to the given reference, if it is not kept in any data structure (ie. finger table, successor list, predecessor, membership table)
+	 * any more.
 	 *
 	 * @param removedReference
 	 *            Node to which the connection shall be closed, if there exists no reference any more.
@@ -342,7 +629,7 @@ final class References {
 			throw e;
 		}
 
-		if (!this.containsReference(removedReference)) {
+		if (!this.containsReference(removedReference) && !this.isMember(removedReference)) {
 			if (!(removedReference instanceof Node)) {
 				this.logger.error("Attempt to disconnect unused reference failed");
 				throw new RuntimeException("Reference should be of type Proxy");
@@ -357,9 +644,14 @@ final class References {
 	 *
 	 * @return The local node's direct successor, or <code>null</code> if no successor is known.
 	 */
-	final synchronized Node getSuccessor() {
-		// direct successor is the first entry in my successor list
-		return this.successorList.getDirectSuccessor();
+	final Node getSuccessor() {
+		this.lock.lock();
+		try {
+			// direct successor is the first entry in my successor list
+			return this.successorList.getDirectSuccessor();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -369,13 +661,18 @@ final class References {
 	 * @return Formatted string of references.
 	 */
 	@Override
-	public synchronized String toString() {
-		StringBuilder result = new StringBuilder("Node: " + this.localID.toString() + ", " + this.localURL + "\n");
-		result.append(this.fingerTable.toString());
-
-		result.append(this.successorList.toString());
-		result.append("Predecessor: " + (this.predecessor == null ? "null" : "" + this.predecessor.getId() + ", " + this.predecessor.getUrl()));
-		return result.toString();
+	public String toString() {
+		this.lock.lock();
+		try {
+			StringBuilder result = new StringBuilder("Node: " + this.localID.toString() + ", " + this.localURL + "\n");
+			result.append(this.fingerTable.toString());
+
+			result.append(this.successorList.toString());
+			result.append("Predecessor: " + (this.predecessor == null ? "null" : "" + this.predecessor.getId() + ", " + this.predecessor.getUrl()));
+			return result.toString();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -383,8 +680,13 @@ final class References {
 	 *
 	 * @return Reference on this node's predecessor, if available. If no predecessor exists for this node, <code>null</code> is returned.
 	 */
-	final synchronized Node getPredecessor() {
-		return this.predecessor;
+	final Node getPredecessor() {
+		this.lock.lock();
+		try {
+			return this.predecessor;
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -397,51 +699,57 @@ final class References {
 	 * @throws NullPointerException
 	 *             If potential predecessor is null.
 	 */
-	final synchronized void setPredecessor(Node potentialPredecessor) throws CommunicationException {
-
-		if (potentialPredecessor == null) {
-			NullPointerException e = new NullPointerException("Potential predecessor of method setPredecessor may not be " + "null!");
-			this.logger.error("Null pointer", e);
-			throw e;
-		}
-		this.checkIfProxy(potentialPredecessor);
-
-		boolean info = this.logger.isEnabledFor(INFO);
-		if (!(potentialPredecessor.equals(this.predecessor))) {
-			Node formerPredecessor = this.predecessor;
-			this.predecessor = potentialPredecessor;
-			if (formerPredecessor != null) {
-				this.disconnectIfUnreferenced(formerPredecessor);
-				/*
-				 * The replicas, which are in the range between the old and the new predecessor, on the last successor of this node have to be removed if the
-				 * successor list is full. => capacity of sl == length of sl.
-				 */
-				int sLSize = this.successorList.getSize();
-				if (this.successorList.getCapacity() == sLSize) {
-					Node lastSuccessor = this.successorList.getReferences().get(sLSize - 1);
-					try {
-						lastSuccessor.removeReplicas(this.predecessor.getId(), new HashSet<Entry>());
-					} catch (CommunicationException e) {
-						logger.warn("Could not remove replicas on last predecessor", e);
+	final void setPredecessor(Node potentialPredecessor) throws CommunicationException {
+		this.lock.lock();
+		try {
+
+			if (potentialPredecessor == null) {
+				NullPointerException e = new NullPointerException("Potential predecessor of method setPredecessor may not be " + "null!");
+				this.logger.error("Null pointer", e);
+				throw e;
+			}
+			this.checkIfProxy(potentialPredecessor);
+
+			boolean info = this.logger.isEnabledFor(INFO);
+			if (!(potentialPredecessor.equals(this.predecessor))) {
+				Node formerPredecessor = this.predecessor;
+				this.predecessor = potentialPredecessor;
+				this.churnCount++;
+				if (formerPredecessor != null) {
+					this.disconnectIfUnreferenced(formerPredecessor);
+					/*
+					 * The replicas, which are in the range between the old and the new predecessor, on the last successor of this node have to be removed if the
+					 * successor list is full. => capacity of sl == length of sl.
+					 */
+					int sLSize = this.successorList.getSize();
+					if (this.successorList.getCapacity() == sLSize) {
+						Node lastSuccessor = this.successorList.getReferences().get(sLSize - 1);
+						try {
+							lastSuccessor.removeReplicas(this.predecessor.getId(), new HashSet<Entry>());
+						} catch (CommunicationException e) {
+							logger.warn("Could not remove replicas on last predecessor", e);
+						}
 					}
-				}
-				if (this.logger.isEnabledFor(DEBUG)) {
-					this.logger.debug("Old predecessor " + formerPredecessor + " was replaced by " + potentialPredecessor);
-				}
-			} else {
-				if (info) {
-					this.logger.info("Predecessor reference set to " + potentialPredecessor + "; was null before.");
-				}
-				Set<Entry> entriesToRep = this.entries.getEntriesInInterval(this.predecessor.getId(), this.localID);
-				List<Node> successors = this.successorList.getReferences();
-				for (Node successor : successors) {
-					try {
-						successor.insertReplicas(entriesToRep);
-					} catch (CommunicationException e) {
-						this.logger.warn("Damn. Could not replicate to successor " + successor.getId(), e);
+					if (this.logger.isEnabledFor(DEBUG)) {
+						this.logger.debug("Old predecessor " + formerPredecessor + " was replaced by " + potentialPredecessor);
+					}
+				} else {
+					if (info) {
+						this.logger.info("Predecessor reference set to " + potentialPredecessor + "; was null before.");
+					}
+					Set<Entry> entriesToRep = this.entries.getEntriesInInterval(this.predecessor.getId(), this.localID);
+					List<Node> successors = this.successorList.getReferences();
+					for (Node successor : successors) {
+						try {
+							successor.insertReplicas(entriesToRep);
+						} catch (CommunicationException e) {
+							this.logger.warn("Damn. Could not replicate to successor " + successor.getId(), e);
+						}
 					}
 				}
 			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -450,8 +758,41 @@ final class References {
 	 *
 	 * @return Unmodifiable successor list.
 	 */
-	final synchronized List<Node> getSuccessors() {
-		return this.successorList.getReferences();
+	final List<Node> getSuccessors() {
+		this.lock.lock();
+		try {
+			return this.successorList.getReferences();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the distinct nodes referenced by the predecessor reference, the successor list, and the finger table, in this order.
+	 *
+	 * @return List of all referenced nodes.
+	 */
+	final List<Node> getAllReferences() {
+		this.lock.lock();
+		try {
+			List<Node> result = new ArrayList<Node>();
+			if (this.predecessor != null) {
+				result.add(this.predecessor);
+			}
+			for (Node next : this.successorList.getReferences()) {
+				if (!result.contains(next)) {
+					result.add(next);
+				}
+			}
+			for (Node next : this.fingerTable.getCopyOfReferences()) {
+				if (next != null && !result.contains(next)) {
+					result.add(next);
+				}
+			}
+			return result;
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	/**
@@ -463,13 +804,18 @@ final class References {
 	 *             If given reference is <code>null</code>.
 	 * @return <code>true</code> if the reference is contained and <code>false</code> if not.
 	 */
-	final synchronized boolean containsReference(Node newReference) {
-		if (newReference == null) {
-			NullPointerException e = new NullPointerException("Reference to look up must not be null!");
-			this.logger.error("Null pointer", e);
-			throw e;
+	final boolean containsReference(Node newReference) {
+		this.lock.lock();
+		try {
+			if (newReference == null) {
+				NullPointerException e = new NullPointerException("Reference to look up must not be null!");
+				this.logger.error("Null pointer", e);
+				throw e;
+			}
+			return (this.fingerTable.containsReference(newReference) || this.successorList.containsReference(newReference) || newReference.equals(this.predecessor));
+		} finally {
+			this.lock.unlock();
 		}
-		return (this.fingerTable.containsReference(newReference) || this.successorList.containsReference(newReference) || newReference.equals(this.predecessor));
 	}
 
 	/**
@@ -545,6 +891,110 @@ final class References {
 
 	}
 
+	/**
+	 * Returns the number of changes of the direct successor or the predecessor and of removed references observed so far. Is used to adapt the frequency of
+	 * maintenance to the churn in the network.
+	 *
+	 * @return Number of observed changes.
+	 */
+	final long getChurnCount() {
+		return this.churnCount;
+	}
+
+	/**
+	 * Determines whether a membership table is maintained for one-hop routing.
+	 *
+	 * @return <code>true</code> if one-hop routing is enabled.
+	 */
+	final boolean isOneHopRouting() {
+		return this.membershipTable != null;
+	}
+
+	/**
+	 * Announces the local node to the other nodes with a new incarnation, if one-hop routing is enabled.
+	 *
+	 * @param localNode
+	 *            Local node.
+	 */
+	final void announce(Node localNode) {
+		if (this.membershipTable != null) {
+			this.membershipTable.announce(localNode);
+		}
+	}
+
+	/**
+	 * @return A randomly chosen member to exchange membership events with; <code>null</code> if one-hop routing is disabled or no member is known.
+	 */
+	final Node getRandomMember() {
+		return this.membershipTable == null ? null : this.membershipTable.getRandomMember();
+	}
+
+	/**
+	 * Returns the membership events to be piggybacked on a message to another node.
+	 *
+	 * @param fullMembership
+	 *            If <code>true</code>, events describing all known members are returned instead of only recent events.
+	 * @return List of events; empty if one-hop routing is disabled.
+	 */
+	final List<MembershipEvent> getMembershipEvents(boolean fullMembership) {
+		if (this.membershipTable == null) {
+			return new ArrayList<MembershipEvent>();
+		}
+		return this.membershipTable.getEvents(fullMembership);
+	}
+
+	/**
+	 * Applies the membership events received from another node to the membership table and closes the connections to nodes that have left, if they are not
+	 * referenced any more.
+	 *
+	 * @param events
+	 *            Received events.
+	 * @throws CommunicationException
+	 */
+	final void applyMembershipEvents(List<MembershipEvent> events) throws CommunicationException {
+		this.lock.lock();
+		try {
+			if (this.membershipTable == null || events == null) {
+				return;
+			}
+			for (Node removedMember : this.membershipTable.applyEvents(events)) {
+				this.disconnectIfUnreferenced(removedMember);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Determines if the given node is contained in the membership table.
+	 *
+	 * @param node
+	 * @return <code>true</code> if one-hop routing is enabled and the node is a known member.
+	 */
+	final boolean isMember(Node node) {
+		return this.membershipTable != null && this.membershipTable.containsMember(node);
+	}
+
+	/**
+	 * Returns the number of entries of the finger table.
+	 *
+	 * @return Number of finger table entries.
+	 */
+	final int getNumberOfFingers() {
+		return this.fingerTable.getSize();
+	}
+
+	/**
+	 * Returns the ID the finger table entry with the given index has to be the successor of.
+	 *
+	 * @param index
+	 *            Index of finger table entry.
+	 * @return Start ID of the interval of the finger table entry.
+	 */
+	final ID getStartOfFingerInterval(int index) {
+		return this.fingerTable.getStartOfInterval(index);
+	}
+
 	/**
 	 * Determines the first i entries in the finger table.
 	 *
@@ -0,0 +1,219 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+
+/**
+ * Decides whether and when a failed invocation of an application operation (insert, retrieve, remove) or of a lookup is repeated; the lookups of an
+ * operation are part of its call. A call is given up after
+ * {@link #MAX_ATTEMPTS} attempts or when {@link #DEADLINE} milliseconds have passed since its first attempt. Before every retry, the calling thread waits for
+ * a random time up to an exponentially growing backoff, or at least as long as an overloaded node has asked for.<br/>
+ * All calls made with one policy share a retry budget: every call earns {@link #BUDGET_RATIO} retries, up to {@link #BUDGET_CAPACITY}, and every retry spends one.
+ * So, while most attempts fail, e.g. during a partition, the node sends at most <code>1 + BUDGET_RATIO</code> invocations per call instead of flooding its
+ * peers. A node spends one budget on its operations and on the lookups other nodes request from it, and another one on the lookups of its maintenance
+ * tasks.
+ *
+ * @version 1.0.5
+ */
+final class RetryPolicy {
+
+	/**
+	 * Maximum number of attempts of a call.
+	 */
+	private static final int MAX_ATTEMPTS = Math.max(1, Integer.parseInt(System.getProperty(RetryPolicy.class.getName() + ".maxAttempts", "8")));
+
+	/**
+	 * Backoff in milliseconds before the second attempt; doubled for every further attempt.
+	 */
+	private static final long INITIAL_BACKOFF = Long.parseLong(System.getProperty(RetryPolicy.class.getName() + ".initialBackoff", "10"));
+
+	/**
+	 * Upper bound of backoff in milliseconds.
+	 */
+	private static final long MAX_BACKOFF = Long.parseLong(System.getProperty(RetryPolicy.class.getName() + ".maxBackoff", "2000"));
+
+	/**
+	 * Time in milliseconds after the first attempt of a call after which no further attempt is made.
+	 */
+	private static final long DEADLINE = Long.parseLong(System.getProperty(RetryPolicy.class.getName() + ".deadline", "30000"));
+
+	/**
+	 * Number of retries earned by every call.
+	 */
+	private static final double BUDGET_RATIO = Double.parseDouble(System.getProperty(RetryPolicy.class.getName() + ".budgetRatio", "0.2"));
+
+	/**
+	 * Maximum number of retries that can be saved up.
+	 */
+	private static final double BUDGET_CAPACITY = Double.parseDouble(System.getProperty(RetryPolicy.class.getName() + ".budgetCapacity", "100"));
+
+	private final Random random = new Random();
+
+	/**
+	 * Backoff in milliseconds before the second attempt of a call.
+	 */
+	private final long initialBackoff;
+
+	/**
+	 * Retries currently available to all calls. Guarded by this.
+	 */
+	private double budget = BUDGET_CAPACITY;
+
+	/**
+	 * Number of successful calls by the number of attempts they took; index 0 is unused.
+	 */
+	private final AtomicLongArray succeededByAttempts = new AtomicLongArray(MAX_ATTEMPTS + 1);
+
+	/**
+	 * Number of calls which have been given up.
+	 */
+	private final AtomicLong givenUp = new AtomicLong();
+
+	/**
+	 * Creates a policy with the configured settings.
+	 */
+	RetryPolicy() {
+		this(INITIAL_BACKOFF);
+	}
+
+	/**
+	 * Creates a policy with the configured settings, except for the backoff.
+	 *
+	 * @param initialBackoff1
+	 *            Backoff in milliseconds before the second attempt of a call; 0 to retry without waiting.
+	 */
+	RetryPolicy(long initialBackoff1) {
+		this.initialBackoff = initialBackoff1;
+	}
+
+	/**
+	 * Starts a new call and credits the retry budget.
+	 *
+	 * @return The new call.
+	 */
+	final Call begin() {
+		synchronized (this) {
+			this.budget = Math.min(BUDGET_CAPACITY, this.budget + BUDGET_RATIO);
+		}
+		return new Call();
+	}
+
+	/**
+	 * @return <code>true</code> if a retry could be taken from the budget.
+	 */
+	private synchronized boolean withdraw() {
+		if (this.budget < 1.0) {
+			return false;
+		}
+		this.budget -= 1.0;
+		return true;
+	}
+
+	/**
+	 * If the given exception tells that the invoked node is overloaded, waits as long as the node has asked for.
+	 *
+	 * @param e
+	 *            Exception thrown by the invocation.
+	 * @throws CommunicationException
+	 *             The given exception, if waiting has been interrupted.
+	 */
+	static void awaitRetryAfter(CommunicationException e) throws CommunicationException {
+		if (e instanceof OverloadedException) {
+			sleep(((OverloadedException) e).getRetryAfter(), e);
+		}
+	}
+
+	/**
+	 * @param millis
+	 * @param e
+	 *            Exception to throw if sleeping is interrupted.
+	 * @throws CommunicationException
+	 */
+	private static void sleep(long millis, CommunicationException e) throws CommunicationException {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e1) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return Formatted String containing the number of calls by the number of attempts they took.
+	 */
+	@Override
+	public final String toString() {
+		StringBuilder result = new StringBuilder("Successful calls by attempts:");
+		for (int i = 1; i < this.succeededByAttempts.length(); i++) {
+			result.append(" ").append(i).append("=").append(this.succeededByAttempts.get(i));
+		}
+		result.append("\nCalls given up: ").append(this.givenUp.get());
+		synchronized (this) {
+			result.append("\nRetry budget: ").append((int) this.budget);
+		}
+		result.append("\n");
+		return result.toString();
+	}
+
+	/**
+	 * One invocation of an application operation, which may take several attempts.
+	 */
+	final class Call {
+
+		private final long deadline = System.currentTimeMillis() + DEADLINE;
+
+		private int attempts = 1;
+
+		/**
+		 * @return Number of attempts made so far.
+		 */
+		final int getAttempts() {
+			return this.attempts;
+		}
+
+		/**
+		 * Decides whether the call is repeated after its last attempt has failed and, if so, waits before the next attempt.
+		 *
+		 * @param e
+		 *            Exception thrown by the last attempt.
+		 * @return <code>true</code> if another attempt is to be made; <code>false</code> if the call has been given up.
+		 * @throws CommunicationException
+		 *             The given exception, if waiting has been interrupted.
+		 */
+		final boolean retry(CommunicationException e) throws CommunicationException {
+			long remaining = this.deadline - System.currentTimeMillis();
+			if (this.attempts >= MAX_ATTEMPTS || remaining <= 0 || !withdraw()) {
+				RetryPolicy.this.givenUp.incrementAndGet();
+				return false;
+			}
+			long backoff = Math.min(MAX_BACKOFF, RetryPolicy.this.initialBackoff << Math.min(this.attempts - 1, 30));
+			long wait = (long) (RetryPolicy.this.random.nextDouble() * backoff);
+			if (e instanceof OverloadedException) {
+				wait = Math.max(wait, ((OverloadedException) e).getRetryAfter());
+			}
+			sleep(Math.min(wait, remaining), e);
+			this.attempts++;
+			return true;
+		}
+
+		/**
+		 * Records that the last attempt of this call has succeeded.
+		 */
+		final void succeeded() {
+			RetryPolicy.this.succeededByAttempts.incrementAndGet(this.attempts);
+		}
+	}
+
+}
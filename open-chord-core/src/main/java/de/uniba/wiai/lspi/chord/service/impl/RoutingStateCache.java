@@ -0,0 +1,240 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.Nodes;
+import de.uniba.wiai.lspi.chord.data.URL;
+import de.uniba.wiai.lspi.util.concurrent.ThreadFactories;
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Persists the URLs of the nodes referenced by the local node, so that a node which restarts with the same URL can use its former references right away
+ * instead of rebuilding its finger table one lookup after another. The file is written periodically while the references change and when the node leaves
+ * the network. On join, all cached nodes are contacted in parallel in the background and those which are still alive are added to the references.<br/>
+ * The cache is only used if the system property de.uniba.wiai.lspi.chord.service.impl.RoutingStateCache.directory names a directory.
+ *
+ * @version 1.0.5
+ */
+final class RoutingStateCache implements Runnable {
+
+	/**
+	 * Directory containing one cache file per local URL; empty if no routing state is cached.
+	 */
+	private static final String DIRECTORY = System.getProperty(RoutingStateCache.class.getName() + ".directory", "");
+
+	/**
+	 * Time in milliseconds to wait for cached nodes to respond on join.
+	 */
+	private static final long TIMEOUT = Long.parseLong(System.getProperty(RoutingStateCache.class.getName() + ".timeout", "2000"));
+
+	/**
+	 * Maximum number of cached nodes contacted concurrently.
+	 */
+	private static final int THREADS = Math.max(1, Integer.parseInt(System.getProperty(RoutingStateCache.class.getName() + ".threads", "8")));
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * Object logger.
+	 */
+	private final Logger logger;
+
+	/**
+	 * URL of local node.
+	 */
+	private final URL localURL;
+
+	/**
+	 * Reference on routing table.
+	 */
+	private final References references;
+
+	/**
+	 * File containing the cached routing state of the local node.
+	 */
+	private final File file;
+
+	/**
+	 * Churn count of {@link #references} when the routing state was saved for the last time; -1 if it has not been saved yet.
+	 */
+	private long savedChurnCount = -1;
+
+	/**
+	 * Creates a cache for the routing state of the local node.
+	 *
+	 * @param localURL
+	 *            URL of local node.
+	 * @param references
+	 *            Reference on routing table.
+	 * @throws NullPointerException
+	 *             If either of the parameters is <code>null</code>.
+	 */
+	RoutingStateCache(URL localURL, References references) {
+		if (localURL == null || references == null) {
+			throw new NullPointerException("No argument to constructor may be null!");
+		}
+		this.logger = Logger.getLogger(RoutingStateCache.class.getName() + "." + localURL);
+		this.localURL = localURL;
+		this.references = references;
+		this.file = new File(DIRECTORY, localURL.toString().replaceAll("[^A-Za-z0-9.-]", "_") + ".refs");
+	}
+
+	/**
+	 * @return <code>true</code> if a directory for caching routing state has been configured.
+	 */
+	static boolean isEnabled() {
+		return DIRECTORY.length() > 0;
+	}
+
+	/**
+	 * Saves the routing state if it has changed since it has been saved for the last time.
+	 */
+	public void run() {
+		long churnCount = this.references.getChurnCount();
+		if (churnCount != this.savedChurnCount) {
+			this.save();
+			this.savedChurnCount = churnCount;
+		}
+	}
+
+	/**
+	 * Writes the URLs of all referenced nodes to the cache file, replacing its previous content. Failures are logged, but do not affect the local node.
+	 */
+	final void save() {
+		File tempFile = new File(this.file.getPath() + ".tmp");
+		try {
+			this.file.getAbsoluteFile().getParentFile().mkdirs();
+			BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), CHARSET);
+			try {
+				for (Node next : this.references.getAllReferences()) {
+					writer.write(next.getUrl().toString());
+					writer.newLine();
+				}
+			} finally {
+				writer.close();
+			}
+			Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if (this.logger.isEnabledFor(DEBUG)) {
+				this.logger.debug("Routing state saved to " + this.file);
+			}
+		} catch (IOException e) {
+			this.logger.warn("Could not save routing state to " + this.file + "!", e);
+		}
+	}
+
+	/**
+	 * Reads the cache file and contacts the cached nodes in the background, so that joining the network is not delayed. Nodes that respond within
+	 * {@link #TIMEOUT} milliseconds are added to the references.
+	 */
+	final void restore() {
+		if (!this.file.exists()) {
+			return;
+		}
+		final List<URL> urls = new ArrayList<URL>();
+		try {
+			BufferedReader reader = Files.newBufferedReader(this.file.toPath(), CHARSET);
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0) {
+						URL url = new URL(line);
+						if (!url.equals(this.localURL)) {
+							urls.add(url);
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			this.logger.warn("Could not read routing state from " + this.file + "!", e);
+			return;
+		}
+		if (urls.isEmpty()) {
+			return;
+		}
+		ThreadFactories.create("RoutingStateCache_" + this.localURL, true).newThread(new Runnable() {
+			public void run() {
+				validate(urls);
+			}
+		}).start();
+	}
+
+	/**
+	 * Creates proxies for the given nodes in parallel with at most {@link #THREADS} threads of an executor of its own and adds those nodes to the references
+	 * that are reached within {@link #TIMEOUT} milliseconds.
+	 *
+	 * @param urls
+	 *            URLs of cached nodes.
+	 */
+	private void validate(List<URL> urls) {
+		List<Callable<Boolean>> validations = new ArrayList<Callable<Boolean>>();
+		for (final URL url : urls) {
+			validations.add(new Callable<Boolean>() {
+				public Boolean call() {
+					try {
+						// creating the proxy contacts the node already
+						Node node = Nodes.create(RoutingStateCache.this.localURL, url);
+						RoutingStateCache.this.references.getPeerStatistics().recordContact(node);
+						RoutingStateCache.this.references.addReference(node);
+						return true;
+					} catch (CommunicationException e) {
+						if (RoutingStateCache.this.logger.isEnabledFor(DEBUG)) {
+							RoutingStateCache.this.logger.debug("Cached node " + url + " is not reachable.");
+						}
+						return false;
+					}
+				}
+			});
+		}
+
+		ExecutorService executor = ThreadFactories.newExecutor("RoutingStateCache_" + this.localURL, Math.min(urls.size(), THREADS), true);
+		int restored = 0;
+		int timedOut = 0;
+		try {
+			for (Future<Boolean> result : executor.invokeAll(validations, TIMEOUT, TimeUnit.MILLISECONDS)) {
+				try {
+					if (result.isCancelled()) {
+						timedOut++;
+					} else if (result.get()) {
+						restored++;
+					}
+				} catch (ExecutionException e) {
+					this.logger.warn("Unexpected exception while validating cached routing state!", e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		if (timedOut > 0) {
+			this.logger.info(timedOut + " cached nodes did not respond within " + TIMEOUT + " ms.");
+		}
+		this.logger.info(restored + " of " + urls.size() + " cached references restored from " + this.file);
+	}
+
+}
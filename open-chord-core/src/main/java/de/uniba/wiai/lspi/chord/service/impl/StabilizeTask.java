@@ -13,15 +13,20 @@ package de.uniba.wiai.lspi.chord.service.impl;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.DEBUG;
 import static de.uniba.wiai.lspi.util.logging.Logger.LogLevel.INFO;
 
+import java.util.LinkedList;
 import java.util.List;
 
 import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
 import de.uniba.wiai.lspi.chord.com.Node;
-import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+import de.uniba.wiai.lspi.chord.com.ReplicaSummary;
+import de.uniba.wiai.lspi.chord.com.StabilizationResult;
 import de.uniba.wiai.lspi.util.logging.Logger;
 
 /**
- * Invokes notify method on successor.
+ * Invokes stabilize method on successor, which combines notification of the successor with the exchange of references, entries, membership events, and a
+ * summary of the replicas stored at the successor in a single invocation.
  *
  * @author Karsten Loesing, Sven Kaffille
  * @version 1.0.5
@@ -40,6 +45,11 @@ final class StabilizeTask implements Runnable {
 
 	private Entries entries;
 
+	/**
+	 * Determines whether the complete membership has already been received from a successor (only used if one-hop routing is enabled).
+	 */
+	private boolean membershipReceived = false;
+
 	/**
 	 * Object logger.
 	 */
@@ -92,37 +102,76 @@ final class StabilizeTask implements Runnable {
 				// notify successor and obtain its predecessor reference and
 				// successor list
 				List<Node> mySuccessorsPredecessorAndSuccessorList;
+				ReplicaSummary ownSummary = null;
+				StabilizationResult stabilization;
 				try {
 					/*
-					 * NOTIFYING successor.
+					 * NOTIFYING successor. Membership events are piggybacked if one-hop routing is enabled; the complete membership is requested until it has
+					 * been received once.
 					 */
-					mySuccessorsPredecessorAndSuccessorList = successor.notify(this.parent);
+					boolean oneHopRouting = this.references.isOneHopRouting();
+					List<MembershipEvent> events = oneHopRouting ? this.references.getMembershipEvents(false) : new LinkedList<MembershipEvent>();
+					Node predecessor = this.references.getPredecessor();
+					if (predecessor != null) {
+						ownSummary = this.entries.getSummary(predecessor.getId(), this.parent.getId());
+					}
+					long start = System.nanoTime();
+					stabilization = successor.stabilize(this.parent, events, oneHopRouting && !this.membershipReceived, ownSummary);
+					this.references.getPeerStatistics().recordSuccess(successor, System.nanoTime() - start);
+					mySuccessorsPredecessorAndSuccessorList = stabilization.getReferences();
+					if (oneHopRouting) {
+						this.references.applyMembershipEvents(stabilization.getEvents());
+						this.membershipReceived = true;
+					}
 					if (infoEnabled) {
 						StabilizeTask.logger.info("Received response to notify request from " + "successor" + successor.getId());
 					}
+				} catch (OverloadedException e) {
+					if (debugEnabled) {
+						StabilizeTask.logger.debug("Successor " + successor.getId() + " is overloaded; stabilizing in the next round.");
+					}
+					// the rejection proves that the successor is alive
+					this.references.getPeerStatistics().recordContact(successor);
+					return;
 				} catch (CommunicationException e) {
 					if (debugEnabled) {
 						StabilizeTask.logger.debug("Invocation of notify on node " + successor.getId() + " was not successful due to a " + "communication failure! Successor has "
-								+ "failed during stabilization! " + "Removing successor!", e);
+								+ "failed during stabilization! " + "Removing successor if it is regarded as failed!", e);
 					}
-					this.references.removeReference(successor);
+					this.references.reportFailure(successor);
 					return;
 				}
 
 				/*
-				 * 19.06.2007. sven Test if our successor has a different predecessor than this node.
+				 * 19.06.2007. sven If our successor had a different predecessor than this node, we have to fetch all entries relevant for us and store them
+				 * locally.
+				 */
+				if ((mySuccessorsPredecessorAndSuccessorList.size() > 0) && (mySuccessorsPredecessorAndSuccessorList.get(0) != null)
+						&& !this.parent.getId().equals(mySuccessorsPredecessorAndSuccessorList.get(0).getId())) {
+					try {
+						EntryTransfer.copy(successor, successor.getId(), this.parent.getId(), this.parent, this.entries);
+					} catch (CommunicationException e) {
+						if (debugEnabled) {
+							StabilizeTask.logger.debug("Could not copy entries from successor " + successor.getId(), e);
+						}
+					}
+				}
+
+				/*
+				 * If the successor lacks replicas of our entries, replicate them again. A successor storing more entries than we do may still be waiting for
+				 * entries to be handed over to us, so we leave it alone.
 				 */
-				if ((mySuccessorsPredecessorAndSuccessorList.size() > 0) && (mySuccessorsPredecessorAndSuccessorList.get(0) != null)) {
-					if (!this.parent.getId().equals(mySuccessorsPredecessorAndSuccessorList.get(0).getId())) {
-						/*
-						 * If it does not know us, we have to fetch all entries relevant for us.
-						 */
-						ReferencesAndEntries refsAndEntries = successor.notifyAndCopyEntries(this.parent);
-						mySuccessorsPredecessorAndSuccessorList = refsAndEntries.getReferences();
-						/*
-						 * and have to store them locally
-						 */
-						this.entries.addAll(refsAndEntries.getEntries());
+				ReplicaSummary theirSummary = stabilization.getReplicaSummary();
+				if (ownSummary != null && theirSummary != null && !ownSummary.matches(theirSummary) && theirSummary.getCount() <= ownSummary.getCount()) {
+					if (debugEnabled) {
+						StabilizeTask.logger.debug("Replicas at successor " + successor.getId() + " differ: " + theirSummary + " instead of " + ownSummary);
+					}
+					try {
+						EntryTransfer.handOff(this.entries, ownSummary.getFrom(), ownSummary.getTo(), successor);
+					} catch (CommunicationException e) {
+						if (debugEnabled) {
+							StabilizeTask.logger.debug("Could not replicate entries to successor " + successor.getId(), e);
+						}
 					}
 				}
 
@@ -133,6 +182,21 @@ final class StabilizeTask implements Runnable {
 						logger.debug("Added new reference: " + newReference);
 					}
 				}
+
+				/*
+				 * Membership events travel along the ring only one hop per round; exchanging them with a random member as well spreads them in a
+				 * logarithmic number of rounds.
+				 */
+				Node member = this.references.getRandomMember();
+				if (member != null && !member.getId().equals(successor.getId())) {
+					try {
+						this.references.applyMembershipEvents(member.exchangeEvents(this.references.getMembershipEvents(false)));
+					} catch (CommunicationException e) {
+						if (debugEnabled) {
+							StabilizeTask.logger.debug("Could not exchange membership events with " + member.getId(), e);
+						}
+					}
+				}
 				if (infoEnabled) {
 					StabilizeTask.logger.info("Invocation of notify on node " + successor.getId() + " was successful");
 				}
@@ -294,6 +294,31 @@ final class SuccessorList {
 		return null;
 	}
 
+	/**
+	 * Returns all references of this successor list that precede the given ID, i.e. that are located in the interval (local ID, idToLookup).
+	 *
+	 * @param idToLookup
+	 *            ID which the references shall precede.
+	 * @throws NullPointerException
+	 *             If ID to look up is <code>null</code>.
+	 * @return References preceding <code>idToLookup</code>, ordered from the closest preceding one to the farthest one.
+	 */
+	final List<Node> getPrecedingNodes(ID idToLookup) {
+		if (idToLookup == null) {
+			NullPointerException e = new NullPointerException("ID to look up may not be null!");
+			this.logger.error("Null pointer", e);
+			throw e;
+		}
+		List<Node> result = new LinkedList<Node>();
+		for (int i = this.successors.size() - 1; i >= 0; i--) {
+			Node nextNode = this.successors.get(i);
+			if (nextNode.getId().isInInterval(this.localID, idToLookup)) {
+				result.add(nextNode);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Determines if the given reference is contained in this successor list.
 	 *
@@ -0,0 +1,109 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+
+package de.uniba.wiai.lspi.util.concurrent;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the tasks of an executor that creates a thread per task, like the executors for virtual threads created by {@link ThreadFactories}, as a
+ * ThreadPoolExecutor with a bounded queue would do: at most a given number of tasks run at the same time, the other ones wait for a permit, and tasks beyond
+ * a given number of waiting ones are rejected.
+ *
+ * @version 1.0.5
+ */
+public final class BoundedExecutor extends AbstractExecutorService {
+
+	/**
+	 * Number of waiting tasks that stands for no limit.
+	 */
+	public static final int UNBOUNDED = -1;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Permits of the tasks that run at the same time.
+	 */
+	private final Semaphore running;
+
+	/**
+	 * Permits of the tasks that have been accepted and have not finished yet; <code>null</code> if any number of tasks is accepted.
+	 */
+	private final Semaphore accepted;
+
+	/**
+	 * @param executor1
+	 *            Executor which executes the tasks.
+	 * @param threads
+	 *            Maximum number of tasks that run at the same time.
+	 * @param waiting
+	 *            Maximum number of tasks that wait for one of the running ones to finish, or {@link #UNBOUNDED}.
+	 */
+	public BoundedExecutor(ExecutorService executor1, int threads, int waiting) {
+		this.executor = executor1;
+		this.running = new Semaphore(threads, true);
+		this.accepted = waiting == UNBOUNDED ? null : new Semaphore(threads + waiting);
+	}
+
+	public void execute(final Runnable task) {
+		if (this.accepted != null && !this.accepted.tryAcquire()) {
+			throw new RejectedExecutionException("Too many tasks waiting!");
+		}
+		try {
+			this.executor.execute(new Runnable() {
+				public void run() {
+					try {
+						BoundedExecutor.this.running.acquire();
+						try {
+							task.run();
+						} finally {
+							BoundedExecutor.this.running.release();
+						}
+					} catch (InterruptedException e) {
+						// shut down while waiting
+					} finally {
+						BoundedExecutor.this.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.release();
+			throw e;
+		}
+	}
+
+	private void release() {
+		if (this.accepted != null) {
+			this.accepted.release();
+		}
+	}
+
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public List<Runnable> shutdownNow() {
+		return this.executor.shutdownNow();
+	}
+
+	public boolean isShutdown() {
+		return this.executor.isShutdown();
+	}
+
+	public boolean isTerminated() {
+		return this.executor.isTerminated();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+}
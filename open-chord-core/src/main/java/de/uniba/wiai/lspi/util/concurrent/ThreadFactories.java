@@ -0,0 +1,162 @@
+/***************************************************************************
+ * * This program is free software; you can redistribute it and/or modify * it under the terms of the GNU General Public License as published by * the Free
+ * Software Foundation; either version 2 of the License, or * (at your option) any later version. * * A copy of the license can be found in the license.txt file
+ * supplied * with this software or at: http://www.gnu.org/copyleft/gpl.html * *
+ ***************************************************************************/
+
+package de.uniba.wiai.lspi.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import de.uniba.wiai.lspi.util.logging.Logger;
+
+/**
+ * Creates the threads that execute blocking work, like waiting for remote method invocations. <br/>
+ * If the system property de.uniba.wiai.lspi.util.concurrent.ThreadFactories.virtual is set to true and the Java runtime supports virtual threads (Java 21 or
+ * later), this work is executed by virtual threads, so that a very large number of invocations can block concurrently. Otherwise, or if virtual threads are
+ * not available, platform threads are used. Virtual threads are created by reflection, as this code is compiled for older versions of Java.
+ *
+ * @version 1.0.5
+ */
+public final class ThreadFactories {
+
+	/**
+	 * Name of property that defines if virtual threads are used.
+	 */
+	public final static String VIRTUAL_THREADS_PROPERTY_NAME = ThreadFactories.class.getName() + ".virtual";
+
+	private static final Logger logger = Logger.getLogger(ThreadFactories.class);
+
+	/**
+	 * Method Thread.ofVirtual(), or <code>null</code> if virtual threads are not used.
+	 */
+	private static final Method OF_VIRTUAL;
+
+	/**
+	 * Method Thread.Builder.factory(), or <code>null</code> if virtual threads are not used.
+	 */
+	private static final Method FACTORY;
+
+	/**
+	 * Method Executors.newThreadPerTaskExecutor(ThreadFactory), or <code>null</code> if virtual threads are not used.
+	 */
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method factory = null;
+		Method newThreadPerTaskExecutor = null;
+		if (Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY_NAME, "false"))) {
+			try {
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+				newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+				logger.info("Using virtual threads.");
+			} catch (Exception e) {
+				logger.warn("Virtual threads are not supported by this Java runtime. Using platform threads.");
+				ofVirtual = null;
+				factory = null;
+				newThreadPerTaskExecutor = null;
+			}
+		}
+		OF_VIRTUAL = ofVirtual;
+		FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	/**
+	 * No instances of this class.
+	 */
+	private ThreadFactories() {
+	}
+
+	/**
+	 * @return <code>true</code> if threads created by this class are virtual threads.
+	 */
+	public static boolean isVirtual() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Creates a factory for threads whose names start with the given name. Virtual threads are always daemon threads.
+	 *
+	 * @param name
+	 *            Prefix of names of created threads.
+	 * @param daemon
+	 *            Determines whether created platform threads are daemon threads.
+	 * @return Factory for threads.
+	 */
+	public static ThreadFactory create(final String name, final boolean daemon) {
+		final ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+		return new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread newThread;
+				if (virtualThreadFactory != null) {
+					newThread = virtualThreadFactory.newThread(r);
+				} else {
+					newThread = new Thread(r);
+					newThread.setDaemon(daemon);
+				}
+				newThread.setName(name + "-" + newThread.getName());
+				return newThread;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new, not yet started thread with the given name.
+	 *
+	 * @param r
+	 *            Task executed by the thread.
+	 * @param name
+	 *            Name of the thread.
+	 * @return The new thread.
+	 */
+	public static Thread newThread(Runnable r, String name) {
+		Thread newThread = create(name, false).newThread(r);
+		newThread.setName(name);
+		return newThread;
+	}
+
+	/**
+	 * Creates an executor for blocking tasks. With platform threads, at most <code>threads</code> tasks are executed concurrently. With virtual threads, every
+	 * task is executed by a new virtual thread, as virtual threads must not be pooled.
+	 *
+	 * @param name
+	 *            Prefix of names of threads of the executor.
+	 * @param threads
+	 *            Number of platform threads.
+	 * @param daemon
+	 *            Determines whether platform threads are daemon threads.
+	 * @return The new executor.
+	 */
+	public static ExecutorService newExecutor(String name, int threads, boolean daemon) {
+		ThreadFactory threadFactory = create(name, daemon);
+		if (isVirtual()) {
+			try {
+				return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+			} catch (Exception e) {
+				throw new RuntimeException("Could not create executor for virtual threads!", e);
+			}
+		}
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
+
+	/**
+	 * @return Factory for virtual threads, or <code>null</code> if virtual threads are not used.
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		if (!isVirtual()) {
+			return null;
+		}
+		try {
+			return (ThreadFactory) FACTORY.invoke(OF_VIRTUAL.invoke(null));
+		} catch (Exception e) {
+			throw new RuntimeException("Could not create factory for virtual threads!", e);
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+
+/**
+ * Tests that a {@link SocketEndpoint} rejects invocations of data methods beyond its limit with an overload response. The endpoint is limited to two
+ * invocations in flight.
+ */
+public class AdmissionControlTest {
+
+	private static final int MAX_IN_FLIGHT = 2;
+
+	private static final int MAX_CONNECTIONS = 16;
+
+	/**
+	 * Node whose {@link #insertEntry(Entry)} blocks until it is released.
+	 */
+	private static final class BlockingNode extends Node {
+
+		final CountDownLatch entered = new CountDownLatch(MAX_IN_FLIGHT);
+
+		final CountDownLatch released = new CountDownLatch(1);
+
+		BlockingNode(URL url1) {
+			this.url = url1;
+			this.id = new ID(new byte[] { 1 });
+		}
+
+		@Override
+		public void insertEntry(Entry entry) throws CommunicationException {
+			this.entered.countDown();
+			try {
+				this.released.await();
+			} catch (InterruptedException e) {
+				throw new CommunicationException(e);
+			}
+		}
+
+		@Override
+		public void ping() {
+			// answered at once
+		}
+
+		@Override
+		public Node findSuccessor(ID key) {
+			return this;
+		}
+
+		@Override
+		public List<Node> notify(Node potentialPredecessor) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) {
+			return null;
+		}
+
+		@Override
+		public void insertReplicas(Set<Entry> entries) {
+			// not needed
+		}
+
+		@Override
+		public void removeEntry(Entry entry) {
+			// not needed
+		}
+
+		@Override
+		public void removeReplicas(ID sendingNode, Set<Entry> replicasToRemove) {
+			// not needed
+		}
+
+		@Override
+		public Set<Entry> retrieveEntries(ID key) {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public void leavesNetwork(Node predecessor) {
+			// not needed
+		}
+
+		@Override
+		public void disconnect() {
+			// not needed
+		}
+	}
+
+	private BlockingNode node;
+
+	private SocketEndpoint endpoint;
+
+	private ExecutorService executor;
+
+	@Before
+	public void startEndpoint() throws IOException, CommunicationException {
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		URL url = new URL(URL.KNOWN_PROTOCOLS.get(URL.SOCKET_PROTOCOL) + "://localhost:" + port + "/");
+		this.node = new BlockingNode(url);
+		this.endpoint = new SocketEndpoint(this.node, url, MAX_IN_FLIGHT, MAX_CONNECTIONS);
+		this.endpoint.listen();
+		this.endpoint.acceptEntries();
+		this.executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void stopEndpoint() throws CommunicationException {
+		this.node.released.countDown();
+		this.executor.shutdownNow();
+		this.endpoint.disconnect();
+	}
+
+	private static Request request(int type, Serializable... parameters) {
+		Request request = new Request(type, Integer.toString(type));
+		request.setParameters(parameters);
+		return request;
+	}
+
+	private Response insert() {
+		return this.endpoint.invokeLocally(request(MethodConstants.INSERT_ENTRY, new Entry(new ID(new byte[] { 2 }), "value")));
+	}
+
+	@Test
+	public void rejectsDataInvocationsBeyondLimit() throws Exception {
+		List<Future<Response>> admitted = new ArrayList<Future<Response>>();
+		for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+			admitted.add(this.executor.submit(new Callable<Response>() {
+				public Response call() {
+					return insert();
+				}
+			}));
+		}
+		assertTrue("Invocations have not been admitted", this.node.entered.await(10, TimeUnit.SECONDS));
+
+		Response rejected = this.insert();
+		assertTrue(rejected.isOverloadedResponse());
+		assertFalse(rejected.isFailureResponse());
+		assertEquals(100, rejected.getRetryAfter());
+
+		// maintenance methods are admitted anyway
+		Response ping = this.endpoint.invokeLocally(request(MethodConstants.PING));
+		assertEquals(Response.REQUEST_SUCCESSFUL, ping.getStatus());
+
+		this.node.released.countDown();
+		for (Future<Response> response : admitted) {
+			assertEquals(Response.REQUEST_SUCCESSFUL, response.get(10, TimeUnit.SECONDS).getStatus());
+		}
+		// permits have been given back
+		assertEquals(Response.REQUEST_SUCCESSFUL, this.insert().getStatus());
+	}
+
+}
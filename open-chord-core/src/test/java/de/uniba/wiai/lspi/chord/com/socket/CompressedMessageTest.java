@@ -0,0 +1,105 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+
+/**
+ * Tests that {@link CompressedMessage}s survive the way over a connection.
+ */
+public class CompressedMessageTest {
+
+	private static Request insertReplicas(int numberOfEntries) {
+		HashSet<Entry> entries = new HashSet<Entry>();
+		for (int i = 0; i < numberOfEntries; i++) {
+			entries.add(new Entry(new ID(new byte[] { (byte) (i >> 8), (byte) i }), "value of entry " + i));
+		}
+		Request request = new Request(MethodConstants.INSERT_REPLICAS, "1");
+		request.setParameters(new Serializable[] { entries });
+		return request;
+	}
+
+	private static byte[] serialize(Object message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(message);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void largeMessageRoundTrip() throws IOException, ClassNotFoundException {
+		Request request = insertReplicas(1000);
+		Serializable compressed = CompressedMessage.compress(request);
+		assertTrue(compressed instanceof CompressedMessage);
+		byte[] sent = serialize(compressed);
+		assertTrue(sent.length < serialize(request).length);
+
+		Request received = (Request) CompressedMessage.decompress(deserialize(sent));
+		assertEquals(request.getRequestType(), received.getRequestType());
+		assertEquals(request.getReplyWith(), received.getReplyWith());
+		@SuppressWarnings("unchecked")
+		Set<Entry> entries = (Set<Entry>) received.getParameters()[0];
+		assertEquals(request.getParameters()[0], entries);
+	}
+
+	@Test
+	public void responseRoundTrip() throws IOException, ClassNotFoundException {
+		Response response = new Response(Response.REQUEST_SUCCESSFUL, MethodConstants.RETRIEVE_ENTRIES, "2");
+		response.setResult((Serializable) insertReplicas(1000).getParameters()[0]);
+		Serializable compressed = CompressedMessage.compress(response);
+		assertTrue(compressed instanceof CompressedMessage);
+
+		Response received = (Response) CompressedMessage.decompress(deserialize(serialize(compressed)));
+		assertEquals(response.getInReplyTo(), received.getInReplyTo());
+		assertEquals(response.getResult(), received.getResult());
+	}
+
+	@Test
+	public void smallMessageIsSentUncompressed() throws IOException, ClassNotFoundException {
+		Request request = insertReplicas(1);
+		Serializable uncompressed = CompressedMessage.compress(request);
+		assertTrue(uncompressed instanceof CompressedMessage);
+
+		Request received = (Request) CompressedMessage.decompress(deserialize(serialize(uncompressed)));
+		assertEquals(request.getReplyWith(), received.getReplyWith());
+		assertEquals(request.getParameters()[0], received.getParameters()[0]);
+	}
+
+	@Test
+	public void messageWithoutEntriesIsNotCompressed() throws IOException {
+		Request request = new Request(MethodConstants.PING, "3");
+		request.setParameters(new Serializable[] { new byte[4 * CompressedMessage.THRESHOLD] });
+		assertSame(request, CompressedMessage.compress(request));
+	}
+
+	@Test
+	public void uncompressedMessageIsPassedThrough() throws IOException, ClassNotFoundException {
+		Request request = insertReplicas(1);
+		assertSame(request, CompressedMessage.decompress(request));
+	}
+
+}
@@ -0,0 +1,240 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+
+/**
+ * Tests how a {@link ConnectionPool} shares {@link Connection}s to an endpoint, which handles two connections at a time.
+ */
+public class ConnectionPoolTest {
+
+	private static final int MAX_CONNECTIONS = 2;
+
+	/**
+	 * Node whose {@link #ping()} blocks until it is released.
+	 */
+	private static final class SlowNode extends Node {
+
+		final CountDownLatch pinged = new CountDownLatch(1);
+
+		final CountDownLatch released = new CountDownLatch(1);
+
+		SlowNode(URL url1) {
+			this.url = url1;
+			this.id = new ID(new byte[] { 1 });
+		}
+
+		@Override
+		public void ping() throws CommunicationException {
+			this.pinged.countDown();
+			try {
+				this.released.await();
+			} catch (InterruptedException e) {
+				throw new CommunicationException(e);
+			}
+		}
+
+		@Override
+		public Node findSuccessor(ID key) {
+			return this;
+		}
+
+		@Override
+		public List<Node> notify(Node potentialPredecessor) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) {
+			return null;
+		}
+
+		@Override
+		public void insertEntry(Entry entry) {
+			// not needed
+		}
+
+		@Override
+		public void insertReplicas(Set<Entry> entries) {
+			// not needed
+		}
+
+		@Override
+		public void removeEntry(Entry entry) {
+			// not needed
+		}
+
+		@Override
+		public void removeReplicas(ID sendingNode, Set<Entry> replicasToRemove) {
+			// not needed
+		}
+
+		@Override
+		public Set<Entry> retrieveEntries(ID key) {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public void leavesNetwork(Node predecessor) {
+			// not needed
+		}
+
+		@Override
+		public void disconnect() {
+			// not needed
+		}
+	}
+
+	private URL url;
+
+	private SlowNode node;
+
+	private SocketEndpoint endpoint;
+
+	private final ConnectionPool pool = new ConnectionPool();
+
+	@Before
+	public void startEndpoint() throws IOException, CommunicationException {
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		this.url = new URL(URL.KNOWN_PROTOCOLS.get(URL.SOCKET_PROTOCOL) + "://localhost:" + port + "/");
+		this.node = new SlowNode(this.url);
+		this.endpoint = new SocketEndpoint(this.node, this.url, 10, MAX_CONNECTIONS);
+		this.endpoint.listen();
+		this.endpoint.acceptEntries();
+	}
+
+	@After
+	public void stopEndpoint() throws CommunicationException {
+		this.node.released.countDown();
+		this.pool.closeAll();
+		this.endpoint.disconnect();
+	}
+
+	@Test
+	public void connectionIsSharedUntilBusy() throws CommunicationException {
+		List<Connection> acquired = new ArrayList<Connection>();
+		try {
+			for (int i = 0; i < ConnectionPool.BUSY_THRESHOLD; i++) {
+				acquired.add(this.pool.acquire(this.url));
+				assertSame(acquired.get(0), acquired.get(i));
+			}
+			assertNotNull(acquired.get(0).awaitHello());
+			// all invocations are using the connection, so a further one is opened
+			Connection further = this.pool.acquire(this.url);
+			acquired.add(further);
+			assertNotSame(acquired.get(0), further);
+		} finally {
+			for (Connection connection : acquired) {
+				this.pool.release(connection);
+			}
+		}
+		assertEquals(0, acquired.get(0).getInFlight());
+	}
+
+	@Test
+	public void closedConnectionIsReplaced() throws CommunicationException {
+		Connection first = this.pool.acquire(this.url);
+		this.pool.release(first);
+		first.close();
+		Connection second = this.pool.acquire(this.url);
+		try {
+			assertNotSame(first, second);
+			assertFalse(second.isClosed());
+			assertNotNull(second.awaitHello());
+		} finally {
+			this.pool.release(second);
+		}
+	}
+
+	@Test
+	public void connectionOverLimitIsRefusedAsOverloaded() throws CommunicationException {
+		// every pool opens a connection of its own
+		List<ConnectionPool> pools = new ArrayList<ConnectionPool>();
+		List<Connection> accepted = new ArrayList<Connection>();
+		try {
+			for (int i = 0; i < MAX_CONNECTIONS; i++) {
+				pools.add(new ConnectionPool());
+				accepted.add(pools.get(i).acquire(this.url));
+				assertNotNull(accepted.get(i).awaitHello());
+			}
+			Connection refused = this.pool.acquire(this.url);
+			try {
+				refused.awaitHello();
+				fail("Connection over the limit has been accepted");
+			} catch (OverloadedException e) {
+				assertEquals(100, e.getRetryAfter());
+			} finally {
+				this.pool.release(refused);
+			}
+			assertTrue(refused.isClosed());
+		} finally {
+			for (int i = 0; i < accepted.size(); i++) {
+				pools.get(i).release(accepted.get(i));
+			}
+			for (ConnectionPool next : pools) {
+				next.closeAll();
+			}
+		}
+	}
+
+	@Test
+	public void waitingForResponseCanBeInterrupted() throws Exception {
+		final Connection connection = this.pool.acquire(this.url);
+		try {
+			final Request ping = new Request(MethodConstants.PING, "ping");
+			ping.setParameters(new Serializable[0]);
+			connection.send(ping);
+			final AtomicReference<CommunicationException> failure = new AtomicReference<CommunicationException>();
+			Thread waiting = new Thread(new Runnable() {
+				public void run() {
+					try {
+						connection.waitForResponse(ping);
+					} catch (CommunicationException e) {
+						failure.set(e);
+					}
+				}
+			});
+			waiting.start();
+			assertTrue("Ping has not been received", this.node.pinged.await(10, TimeUnit.SECONDS));
+			waiting.interrupt();
+			waiting.join(10000);
+			assertFalse("Waiting has not been interrupted", waiting.isAlive());
+			assertNotNull(failure.get());
+			// the connection can still be used
+			assertFalse(connection.isClosed());
+		} finally {
+			this.pool.release(connection);
+		}
+	}
+
+}
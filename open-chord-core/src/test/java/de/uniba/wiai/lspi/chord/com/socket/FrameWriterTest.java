@@ -0,0 +1,82 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests that messages written to a {@link FrameWriter} by concurrent threads arrive complete and in the order of each thread.
+ */
+public class FrameWriterTest {
+
+	private static final int THREADS = 8;
+
+	private static final int MESSAGES_PER_THREAD = 500;
+
+	@Test
+	public void concurrentWrites() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final FrameWriter writer = new FrameWriter(stream);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < THREADS; i++) {
+				final int thread = i;
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						start.await();
+						for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+							writer.write(new int[] { thread, j });
+						}
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		int[] next = new int[THREADS];
+		int received = 0;
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stream.toByteArray()));
+		try {
+			while (true) {
+				int[] message = (int[]) in.readObject();
+				assertEquals("Message of thread " + message[0], next[message[0]]++, message[1]);
+				received++;
+			}
+		} catch (EOFException e) {
+			// all messages read
+		} finally {
+			in.close();
+		}
+		assertEquals(THREADS * MESSAGES_PER_THREAD, received);
+	}
+
+	@Test(expected = IOException.class)
+	public void writeAfterCloseFails() throws IOException {
+		FrameWriter writer = new FrameWriter(new ByteArrayOutputStream());
+		writer.write("before");
+		writer.close();
+		writer.write("after");
+	}
+
+}
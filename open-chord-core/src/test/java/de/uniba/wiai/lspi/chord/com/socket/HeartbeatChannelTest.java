@@ -0,0 +1,65 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+
+/**
+ * Tests which probes a {@link HeartbeatChannel} acknowledges.
+ */
+public class HeartbeatChannelTest {
+
+	private static final ID NODE = new ID(new byte[] { 0x12, 0x34 });
+
+	private static final ID OTHER_NODE = new ID(new byte[] { 0x12, 0x35 });
+
+	private static URL freeURL() throws IOException {
+		DatagramSocket socket = new DatagramSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		return new URL(URL.KNOWN_PROTOCOLS.get(URL.SOCKET_PROTOCOL) + "://localhost:" + port + "/");
+	}
+
+	@Test
+	public void probesOfItsNodeAreAcknowledged() throws IOException {
+		URL url = freeURL();
+		HeartbeatChannel channel = HeartbeatChannel.open(url, NODE);
+		assertNotNull(channel);
+		try {
+			assertTrue(HeartbeatChannel.probe(url, NODE));
+			// another node which has taken over the port
+			assertFalse(HeartbeatChannel.probe(url, OTHER_NODE));
+			assertFalse(HeartbeatChannel.probe(url, null));
+		} finally {
+			channel.close();
+		}
+		assertFalse(HeartbeatChannel.probe(url, NODE));
+	}
+
+	@Test
+	public void probesAreSentAfterLastChannelHasBeenClosed() throws IOException {
+		URL url = freeURL();
+		HeartbeatChannel channel = HeartbeatChannel.open(url, NODE);
+		assertTrue(HeartbeatChannel.probe(url, NODE));
+		channel.close();
+		// closing again has no effect
+		channel.close();
+
+		url = freeURL();
+		channel = HeartbeatChannel.open(url, NODE);
+		try {
+			assertTrue(HeartbeatChannel.probe(url, NODE));
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+import org.junit.Test;
+
+/**
+ * Tests that the {@link Hello} of a proxy can be read by nodes that do not know it.
+ */
+public class HelloTest {
+
+	/**
+	 * Stream which only resolves the classes known to nodes that do not know {@link Hello}.
+	 */
+	private static final class BaselineInputStream extends ObjectInputStream {
+
+		BaselineInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			String name = desc.getName();
+			if (!name.startsWith("java.") && !name.startsWith("[Ljava.") && !name.equals(Request.class.getName()) && !name.equals(Message.class.getName())) {
+				throw new ClassNotFoundException(name);
+			}
+			return super.resolveClass(desc);
+		}
+	}
+
+	@Test
+	public void connectRequestIsReadableWithoutHello() throws IOException, ClassNotFoundException {
+		Request connect = new Request(MethodConstants.CONNECT, "Initial Connection");
+		connect.setParameters(Hello.toParameters());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(connect);
+		out.close();
+
+		ObjectInputStream in = new BaselineInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			Request received = (Request) in.readObject();
+			assertEquals(MethodConstants.CONNECT, received.getRequestType());
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void helloOfProxyRoundTrip() {
+		Hello hello = Hello.fromParameters(Hello.toParameters());
+		assertNull(hello.getNodeID());
+		assertEquals(Hello.VERSION, hello.getVersion());
+		assertTrue(hello.supports(Hello.CAPABILITIES));
+	}
+
+	@Test
+	public void connectWithoutHello() {
+		assertNull(Hello.fromParameters(null));
+		assertNull(Hello.fromParameters(new Serializable[0]));
+		assertNull(Hello.fromParameters(new Serializable[] { "1", "2" }));
+	}
+
+}
@@ -0,0 +1,151 @@
+package de.uniba.wiai.lspi.chord.com.socket;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+
+/**
+ * Tests that invocations of a {@link SocketEndpoint} by proxies in the same JVM do not share entries with the node.
+ */
+public class InProcessInvocationTest {
+
+	private static final ID KEY = new ID(new byte[] { 2 });
+
+	/**
+	 * Node which stores the entries inserted into it as they are.
+	 */
+	private static final class StoringNode extends Node {
+
+		final Set<Entry> entries = Collections.synchronizedSet(new HashSet<Entry>());
+
+		StoringNode(URL url1) {
+			this.url = url1;
+			this.id = new ID(new byte[] { 1 });
+		}
+
+		@Override
+		public void insertEntry(Entry entry) {
+			this.entries.add(entry);
+		}
+
+		@Override
+		public Set<Entry> retrieveEntries(ID key) {
+			return this.entries;
+		}
+
+		@Override
+		public void ping() {
+			// answered at once
+		}
+
+		@Override
+		public Node findSuccessor(ID key) {
+			return this;
+		}
+
+		@Override
+		public List<Node> notify(Node potentialPredecessor) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) {
+			return null;
+		}
+
+		@Override
+		public void insertReplicas(Set<Entry> replicas) {
+			// not needed
+		}
+
+		@Override
+		public void removeEntry(Entry entry) {
+			// not needed
+		}
+
+		@Override
+		public void removeReplicas(ID sendingNode, Set<Entry> replicasToRemove) {
+			// not needed
+		}
+
+		@Override
+		public void leavesNetwork(Node predecessor) {
+			// not needed
+		}
+
+		@Override
+		public void disconnect() {
+			// not needed
+		}
+	}
+
+	private StoringNode node;
+
+	private SocketEndpoint endpoint;
+
+	@Before
+	public void startEndpoint() throws IOException, CommunicationException {
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		URL url = new URL(URL.KNOWN_PROTOCOLS.get(URL.SOCKET_PROTOCOL) + "://localhost:" + port + "/");
+		this.node = new StoringNode(url);
+		this.endpoint = new SocketEndpoint(this.node, url);
+		this.endpoint.listen();
+		this.endpoint.acceptEntries();
+	}
+
+	@After
+	public void stopEndpoint() throws CommunicationException {
+		this.endpoint.disconnect();
+	}
+
+	private static Request request(int type, Serializable... parameters) {
+		Request request = new Request(type, Integer.toString(type));
+		request.setParameters(parameters);
+		return request;
+	}
+
+	private static ArrayList<String> value(String... elements) {
+		return new ArrayList<String>(Arrays.asList(elements));
+	}
+
+	@Test
+	public void insertedValueIsCopied() {
+		ArrayList<String> value = value("stored");
+		this.endpoint.invokeLocally(request(MethodConstants.INSERT_ENTRY, new Entry(KEY, value)));
+		value.add("changed by caller");
+		assertEquals(value("stored"), this.node.entries.iterator().next().getValue());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void retrievedValueIsCopied() {
+		this.node.entries.add(new Entry(KEY, value("stored")));
+		Response response = this.endpoint.invokeLocally(request(MethodConstants.RETRIEVE_ENTRIES, KEY));
+		Entry retrieved = ((Set<Entry>) response.getResult()).iterator().next();
+		((List<String>) retrieved.getValue()).add("changed by caller");
+		retrieved.setValue("replaced by caller");
+		assertEquals(value("stored"), this.node.entries.iterator().next().getValue());
+	}
+
+}
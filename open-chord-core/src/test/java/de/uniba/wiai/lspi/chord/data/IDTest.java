@@ -0,0 +1,96 @@
+package de.uniba.wiai.lspi.chord.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the arithmetic of {@link ID}s on the identifier ring.
+ */
+public class IDTest {
+
+	private static ID id(int... bytes) {
+		byte[] payload = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			payload[i] = (byte) bytes[i];
+		}
+		return new ID(payload);
+	}
+
+	@Test
+	public void addCarriesOver() {
+		assertEquals(id(0x01, 0x00), id(0x00, 0xff).add(BigInteger.ONE));
+		assertEquals(id(0x12, 0x34), id(0x12, 0x34).add(BigInteger.ZERO));
+	}
+
+	@Test
+	public void addWrapsAroundRing() {
+		assertEquals(id(0x00, 0x00), id(0xff, 0xff).add(BigInteger.ONE));
+		assertEquals(id(0x00, 0x05), id(0x00, 0x00).add(BigInteger.valueOf(0x10005)));
+		assertEquals(id(0x7f, 0xff), id(0x80, 0x00).add(BigInteger.valueOf(0xffff)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addRejectsNegativeValue() {
+		id(0x00, 0x00).add(BigInteger.ONE.negate());
+	}
+
+	@Test
+	public void addAgreesWithAddPowerOfTwo() {
+		ID id = id(0xf0, 0x0f);
+		for (int i = 0; i < id.getBitLength(); i++) {
+			assertEquals(id.addPowerOfTwo(i), id.add(BigInteger.ONE.shiftLeft(i)));
+		}
+	}
+
+	@Test
+	public void distanceIsClockwise() {
+		assertEquals(BigInteger.valueOf(0x10), id(0x00, 0x10).distanceTo(id(0x00, 0x20)));
+		assertEquals(BigInteger.valueOf(0x10000 - 0x10), id(0x00, 0x20).distanceTo(id(0x00, 0x10)));
+		assertEquals(BigInteger.valueOf(2), id(0xff, 0xff).distanceTo(id(0x00, 0x01)));
+		assertEquals(BigInteger.ZERO, id(0xab, 0xcd).distanceTo(id(0xab, 0xcd)));
+	}
+
+	@Test
+	public void distanceIsInverseOfAdd() {
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			ID from = id(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+			ID to = id(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+			assertEquals(to, from.add(from.distanceTo(to)));
+		}
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void distanceRejectsDifferentLength() {
+		id(0x00).distanceTo(id(0x00, 0x00));
+	}
+
+	@Test
+	public void compareToIsUnsigned() {
+		assertTrue(id(0x80).compareTo(id(0x7f)) > 0);
+		assertTrue(id(0xff).compareTo(id(0x00)) > 0);
+		assertTrue(id(0x00, 0xff).compareTo(id(0x01, 0x00)) < 0);
+		assertEquals(0, id(0x9a, 0xbc).compareTo(id(0x9a, 0xbc)));
+	}
+
+	@Test
+	public void compareToAgreesWithBigInteger() {
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			ID a = id(random.nextInt(256), random.nextInt(256));
+			ID b = id(random.nextInt(256), random.nextInt(256));
+			assertEquals(Integer.signum(a.toBigInteger().compareTo(b.toBigInteger())), Integer.signum(a.compareTo(b)));
+		}
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void compareToRejectsDifferentLength() {
+		id(0x00).compareTo(id(0x00, 0x00));
+	}
+
+}
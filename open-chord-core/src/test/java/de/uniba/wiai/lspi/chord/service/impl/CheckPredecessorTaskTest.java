@@ -0,0 +1,51 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.OverloadedException;
+
+/**
+ * Tests that a {@link CheckPredecessorTask} removes a predecessor which does not respond, but keeps one which is overloaded.
+ */
+public class CheckPredecessorTaskTest {
+
+	private final TestNode local = new TestNode(0x00);
+
+	private final TestNode predecessor = new TestNode(0x80);
+
+	private References references;
+
+	private CheckPredecessorTask task;
+
+	@Before
+	public void setPredecessor() throws CommunicationException {
+		this.references = new References(this.local.getId(), this.local.getUrl(), 2, new Entries());
+		this.references.setPredecessor(this.predecessor);
+		// every run probes the predecessor
+		this.task = new CheckPredecessorTask(this.references, -1);
+	}
+
+	@Test
+	public void overloadedPredecessorIsKept() {
+		this.predecessor.failure = new OverloadedException("Overloaded", 0);
+		for (int i = 0; i < 10; i++) {
+			this.task.run();
+		}
+		assertEquals(this.predecessor, this.references.getPredecessor());
+	}
+
+	@Test
+	public void unreachablePredecessorIsRemoved() {
+		this.predecessor.failure = new CommunicationException("Unreachable");
+		for (int i = 0; i < 10; i++) {
+			this.task.run();
+		}
+		assertNull(this.references.getPredecessor());
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.EntryChunk;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+
+/**
+ * Tests reading the entries of an interval of IDs in chunks with {@link Entries#getChunk(ID, ID, int)}.
+ */
+public class EntriesTest {
+
+	private final Entries entries = new Entries();
+
+	private static ID id(int value) {
+		return new ID(new byte[] { (byte) value });
+	}
+
+	private static Entry entry(int id, String value) {
+		return new Entry(id(id), value);
+	}
+
+	@Before
+	public void addEntries() {
+		for (Entry entry : Arrays.asList(entry(0x10, "a"), entry(0x20, "b"), entry(0xd0, "c"), entry(0xe0, "d"), entry(0xf0, "e"), entry(0xf0, "f"))) {
+			this.entries.add(entry);
+		}
+	}
+
+	/**
+	 * Reads all chunks of the given interval, following their cursors.
+	 */
+	private List<EntryChunk> getChunks(ID fromID, ID toID, int maxEntries) {
+		List<EntryChunk> chunks = new ArrayList<EntryChunk>();
+		ID cursor = fromID;
+		do {
+			EntryChunk chunk = this.entries.getChunk(cursor, toID, maxEntries);
+			chunks.add(chunk);
+			cursor = chunk.getNextCursor();
+			assertTrue("Too many chunks", chunks.size() <= 10);
+		} while (cursor != null);
+		return chunks;
+	}
+
+	@Test
+	public void chunksWrapAroundRing() {
+		List<EntryChunk> chunks = this.getChunks(id(0xd0), id(0x18), 1);
+		assertEquals(3, chunks.size());
+		assertEquals(Arrays.asList(entry(0xe0, "d")), chunks.get(0).getEntries());
+		assertEquals(id(0xe0), chunks.get(0).getNextCursor());
+		// entries with the same ID are kept in one chunk
+		assertEquals(new HashSet<Entry>(Arrays.asList(entry(0xf0, "e"), entry(0xf0, "f"))), new HashSet<Entry>(chunks.get(1).getEntries()));
+		assertEquals(id(0xf0), chunks.get(1).getNextCursor());
+		// the cursor of the last entry before the end of the ring continues at its beginning
+		assertEquals(Arrays.asList(entry(0x10, "a")), chunks.get(2).getEntries());
+		assertTrue(chunks.get(2).isLast());
+	}
+
+	@Test
+	public void singleChunkIsInRingOrder() {
+		EntryChunk chunk = this.entries.getChunk(id(0xd0), id(0x18), 100);
+		assertNull(chunk.getNextCursor());
+		assertEquals(4, chunk.getEntries().size());
+		assertEquals(entry(0xe0, "d"), chunk.getEntries().get(0));
+		assertEquals(entry(0x10, "a"), chunk.getEntries().get(3));
+	}
+
+	@Test
+	public void equalBoundsSpanWholeRing() {
+		List<Entry> result = new ArrayList<Entry>();
+		for (EntryChunk chunk : this.getChunks(id(0x20), id(0x20), 2)) {
+			result.addAll(chunk.getEntries());
+		}
+		assertEquals(6, result.size());
+		assertEquals(entry(0xd0, "c"), result.get(0));
+		assertEquals(entry(0x20, "b"), result.get(5));
+	}
+
+	@Test
+	public void emptyIntervalIsLastChunk() {
+		EntryChunk chunk = this.entries.getChunk(id(0x20), id(0xc0), 1);
+		assertTrue(chunk.getEntries().isEmpty());
+		assertTrue(chunk.isLast());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void chunkMustHoldAnEntry() {
+		this.entries.getChunk(id(0x00), id(0x10), 0);
+	}
+
+}
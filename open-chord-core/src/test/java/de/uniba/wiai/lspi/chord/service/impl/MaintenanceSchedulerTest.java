@@ -0,0 +1,116 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+
+/**
+ * Tests how a {@link MaintenanceScheduler} adapts the intervals of its tasks to churn. Executions are not run by the executor, but by the test, and every
+ * delay may be varied by the default jitter of 20 percent.
+ */
+public class MaintenanceSchedulerTest {
+
+	private static final long INTERVAL = 1000;
+
+	/**
+	 * Executor which records the scheduled executions instead of running them.
+	 */
+	private static final class RecordingExecutor extends ScheduledThreadPoolExecutor {
+
+		final List<Runnable> commands = new ArrayList<Runnable>();
+
+		final List<Long> delays = new ArrayList<Long>();
+
+		RecordingExecutor() {
+			super(1);
+		}
+
+		@Override
+		public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			this.commands.add(command);
+			this.delays.add(unit.toMillis(delay));
+			return super.schedule(command, 1, TimeUnit.DAYS);
+		}
+
+		synchronized Runnable lastCommand() {
+			return this.commands.get(this.commands.size() - 1);
+		}
+
+		synchronized long lastDelay() {
+			return this.delays.get(this.delays.size() - 1);
+		}
+	}
+
+	private final TestNode local = new TestNode(0x00);
+
+	private final References references = new References(this.local.getId(), this.local.getUrl(), 2, new Entries());
+
+	private final RecordingExecutor executor = new RecordingExecutor();
+
+	private final MaintenanceScheduler scheduler = new MaintenanceScheduler(this.local.getId(), this.executor, this.references);
+
+	private static final Runnable NOTHING = new Runnable() {
+		public void run() {
+			// maintenance without effect
+		}
+	};
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+	private static void assertAbout(long expected, long delay) {
+		assertTrue("Delay " + delay + " instead of about " + expected, delay >= 0.8 * expected - 1 && delay <= 1.2 * expected + 1);
+	}
+
+	@Test
+	public void intervalGrowsWhileStable() {
+		this.scheduler.schedule(NOTHING, 0, INTERVAL, TimeUnit.MILLISECONDS);
+		assertEquals(0, this.executor.lastDelay());
+
+		this.executor.lastCommand().run();
+		assertAbout(2 * INTERVAL, this.executor.lastDelay());
+		this.executor.lastCommand().run();
+		assertAbout(4 * INTERVAL, this.executor.lastDelay());
+		// adaptation factor of 4
+		this.executor.lastCommand().run();
+		assertAbout(4 * INTERVAL, this.executor.lastDelay());
+	}
+
+	@Test
+	public void churnShortensAllIntervals() throws CommunicationException {
+		this.scheduler.schedule(NOTHING, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+		Runnable other = this.executor.lastCommand();
+		this.scheduler.schedule(NOTHING, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+		Runnable task = this.executor.lastCommand();
+
+		this.references.setPredecessor(new TestNode(0x80));
+		task.run();
+		int scheduled = this.executor.commands.size();
+		// the other task is pulled forward before the task itself is rescheduled
+		assertEquals(other, this.executor.commands.get(scheduled - 2));
+		assertAbout(INTERVAL / 4, this.executor.delays.get(scheduled - 2));
+		assertEquals(task, this.executor.lastCommand());
+		assertAbout(INTERVAL / 4, this.executor.lastDelay());
+	}
+
+	@Test
+	public void noExecutionIsScheduledAfterShutdown() {
+		this.scheduler.schedule(NOTHING, 0, INTERVAL, TimeUnit.MILLISECONDS);
+		this.scheduler.shutdown();
+		this.executor.lastCommand().run();
+		assertEquals(1, this.executor.commands.size());
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.MembershipEvent;
+import de.uniba.wiai.lspi.chord.com.MembershipEvent.Type;
+
+/**
+ * Tests which {@link MembershipEvent}s a {@link MembershipTable} applies and passes on.
+ */
+public class MembershipTableTest {
+
+	private final TestNode local = new TestNode(0x00);
+
+	private final TestNode member = new TestNode(0x40);
+
+	private final MembershipTable table = new MembershipTable(this.local.getId());
+
+	private static MembershipEvent event(TestNode node, Type type, long incarnation) {
+		return new MembershipEvent(node, type, incarnation);
+	}
+
+	/**
+	 * @return Latest event passed on about the given node, or <code>null</code> if there is none.
+	 */
+	private MembershipEvent sentAbout(TestNode node) {
+		MembershipEvent result = null;
+		for (MembershipEvent event : this.table.getEvents(false)) {
+			if (event.getNode().getId().equals(node.getId())) {
+				result = event;
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void observedNodeIsNotAnnounced() {
+		this.table.addMember(this.member);
+		assertTrue(this.table.containsMember(this.member));
+		assertTrue(this.table.getEvents(false).isEmpty());
+	}
+
+	@Test
+	public void suspectedNodeIsRemovedLocally() {
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 5)));
+		// pass the announcement on until it is not sent anymore
+		for (int i = 0; i < 100; i++) {
+			this.table.getEvents(false);
+		}
+		this.table.removeMember(this.member, false);
+		assertFalse(this.table.containsMember(this.member));
+		assertNull(this.sentAbout(this.member));
+		// it is added again once it is observed to be alive
+		this.table.addMember(this.member);
+		assertTrue(this.table.containsMember(this.member));
+	}
+
+	@Test
+	public void leavingNodeIsAnnounced() {
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 5)));
+		this.table.removeMember(this.member, true);
+		assertFalse(this.table.containsMember(this.member));
+		MembershipEvent sent = this.sentAbout(this.member);
+		assertEquals(Type.LEFT, sent.getType());
+		assertEquals(5, sent.getIncarnation());
+		// a node known to have left is not added again by observations
+		this.table.addMember(this.member);
+		assertFalse(this.table.containsMember(this.member));
+	}
+
+	@Test
+	public void greaterIncarnationWins() {
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 5)));
+		List<?> removed = this.table.applyEvents(Arrays.asList(event(this.member, Type.LEFT, 4)));
+		assertTrue(removed.isEmpty());
+		assertTrue(this.table.containsMember(this.member));
+
+		removed = this.table.applyEvents(Arrays.asList(event(this.member, Type.LEFT, 5)));
+		assertEquals(Arrays.asList(this.member), removed);
+		assertFalse(this.table.containsMember(this.member));
+
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 5)));
+		assertFalse(this.table.containsMember(this.member));
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 6)));
+		assertTrue(this.table.containsMember(this.member));
+	}
+
+	@Test
+	public void leaveOfLocalNodeIsRefuted() {
+		this.table.announce(this.local);
+		long incarnation = this.sentAbout(this.local).getIncarnation();
+		this.table.applyEvents(Arrays.asList(event(this.local, Type.LEFT, incarnation)));
+		MembershipEvent refutation = this.sentAbout(this.local);
+		assertEquals(Type.JOINED, refutation.getType());
+		assertTrue(refutation.getIncarnation() > incarnation);
+	}
+
+	@Test
+	public void eventIsPassedOnLimitedTimes() {
+		this.table.applyEvents(Arrays.asList(event(this.member, Type.JOINED, 5)));
+		int transmissions = 0;
+		for (int i = 0; i < 100; i++) {
+			if (this.sentAbout(this.member) != null) {
+				transmissions++;
+			}
+		}
+		// retransmission factor 4 times the bit length of two nodes
+		assertEquals(8, transmissions);
+	}
+
+}
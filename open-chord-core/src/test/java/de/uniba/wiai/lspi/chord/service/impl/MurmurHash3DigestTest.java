@@ -0,0 +1,60 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MurmurHash3Digest} against known hash values of MurmurHash3_x64_128 with seed 0, given as h1 followed by h2.
+ */
+public class MurmurHash3DigestTest {
+
+	private static byte[] hex(String value) {
+		byte[] bytes = new BigInteger(value, 16).toByteArray();
+		byte[] result = new byte[16];
+		int length = Math.min(bytes.length, result.length);
+		System.arraycopy(bytes, bytes.length - length, result, result.length - length, length);
+		return result;
+	}
+
+	private static byte[] hash(byte[] data) {
+		return new MurmurHash3Digest().digest(data);
+	}
+
+	@Test
+	public void knownVectors() {
+		assertArrayEquals(hex("00000000000000000000000000000000"), hash(new byte[0]));
+		assertArrayEquals(hex("cbd8a7b341bd9b025b1e906a48ae1d19"), hash("hello".getBytes(StandardCharsets.UTF_8)));
+		assertArrayEquals(hex("e34bbc7bbc071b6c7a433ca9c49a9347"), hash("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)));
+		// one full block and a tail of 15 bytes
+		byte[] data = new byte[31];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		assertArrayEquals(hex("053dd3e1a32cd0949ee59aefb4005490"), hash(data));
+	}
+
+	@Test
+	public void updatesInPartsEqualOneUpdate() {
+		byte[] data = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+		MurmurHash3Digest digest = new MurmurHash3Digest();
+		digest.update(data, 0, 7);
+		digest.update(data[7]);
+		digest.update(data, 8, data.length - 8);
+		assertArrayEquals(hash(data), digest.digest());
+	}
+
+	@Test
+	public void digestResets() {
+		MurmurHash3Digest digest = new MurmurHash3Digest();
+		assertEquals(16, digest.getDigestLength());
+		digest.update("hello".getBytes(StandardCharsets.UTF_8));
+		digest.digest();
+		assertArrayEquals(hex("00000000000000000000000000000000"), digest.digest());
+	}
+
+}
@@ -0,0 +1,57 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests when the failure detector of {@link PeerStatistics} regards a node as failed.
+ */
+public class PeerStatisticsTest {
+
+	private final PeerStatistics statistics = new PeerStatistics();
+
+	private final TestNode node = new TestNode(0x40);
+
+	@Test
+	public void unknownIntervalsFallBackToNumberOfFailures() {
+		this.statistics.recordContact(this.node);
+		this.statistics.recordFailure(this.node);
+		assertTrue(this.statistics.isSuspected(this.node));
+		assertEquals(0.0, this.statistics.getSuspicion(this.node), 0.0);
+		assertFalse(this.statistics.isFailed(this.node));
+
+		this.statistics.recordFailure(this.node);
+		assertFalse(this.statistics.isFailed(this.node));
+		this.statistics.recordFailure(this.node);
+		assertTrue(this.statistics.isFailed(this.node));
+	}
+
+	@Test
+	public void contactEndsSuspicion() {
+		this.statistics.recordFailure(this.node);
+		this.statistics.recordFailure(this.node);
+		this.statistics.recordContact(this.node);
+		assertFalse(this.statistics.isSuspected(this.node));
+		this.statistics.recordFailure(this.node);
+		assertFalse(this.statistics.isFailed(this.node));
+	}
+
+	@Test
+	public void suspicionGrowsWithTimeSinceLastContact() throws InterruptedException {
+		this.statistics.recordContact(this.node);
+		Thread.sleep(20);
+		this.statistics.recordContact(this.node);
+		this.statistics.recordFailure(this.node);
+		double suspicion = this.statistics.getSuspicion(this.node);
+		assertFalse(this.statistics.isFailed(this.node));
+
+		// far beyond the usual interval and its minimum deviation of 100 ms
+		Thread.sleep(1000);
+		assertTrue(this.statistics.getSuspicion(this.node) > suspicion);
+		assertTrue(this.statistics.isFailed(this.node));
+	}
+
+}
@@ -0,0 +1,71 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+
+/**
+ * Tests the limits of {@link RetryPolicy} with its default settings, except for the backoff, which is disabled.
+ */
+public class RetryPolicyTest {
+
+	private static final CommunicationException FAILURE = new CommunicationException("test");
+
+	/**
+	 * Retries the given call until it is given up.
+	 *
+	 * @return Number of retries taken.
+	 */
+	private static int retryUntilGivenUp(RetryPolicy.Call call) throws CommunicationException {
+		int retries = 0;
+		while (call.retry(FAILURE)) {
+			retries++;
+		}
+		return retries;
+	}
+
+	@Test
+	public void callIsGivenUpAfterMaximumAttempts() throws CommunicationException {
+		RetryPolicy.Call call = new RetryPolicy(0).begin();
+		assertEquals(1, call.getAttempts());
+		assertEquals(7, retryUntilGivenUp(call));
+		assertEquals(8, call.getAttempts());
+		assertFalse(call.retry(FAILURE));
+	}
+
+	@Test
+	public void budgetLimitsRetriesPerCall() throws CommunicationException {
+		RetryPolicy policy = new RetryPolicy(0);
+		// use up the budget saved up initially
+		int calls = 0;
+		while (retryUntilGivenUp(policy.begin()) > 0) {
+			assertTrue("Budget is not used up", ++calls < 100);
+		}
+		// afterwards, every call earns a fifth of a retry
+		int retries = 0;
+		for (int i = 0; i < 100; i++) {
+			retries += retryUntilGivenUp(policy.begin());
+		}
+		assertTrue("Retries: " + retries, retries >= 19 && retries <= 20);
+	}
+
+	@Test
+	public void budgetIsCapped() throws CommunicationException {
+		RetryPolicy policy = new RetryPolicy(0);
+		for (int i = 0; i < 1000; i++) {
+			policy.begin().succeeded();
+		}
+		// no more than 100 retries have been saved up, plus those earned while using them up
+		int retries = 0;
+		int retriesOfCall;
+		while ((retriesOfCall = retryUntilGivenUp(policy.begin())) > 0) {
+			retries += retriesOfCall;
+		}
+		assertTrue("Retries: " + retries, retries >= 100 && retries <= 105);
+	}
+
+}
@@ -0,0 +1,107 @@
+package de.uniba.wiai.lspi.chord.service.impl;
+
+import java.net.MalformedURLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import de.uniba.wiai.lspi.chord.com.CommunicationException;
+import de.uniba.wiai.lspi.chord.com.Node;
+import de.uniba.wiai.lspi.chord.com.ReferencesAndEntries;
+import de.uniba.wiai.lspi.chord.data.Entry;
+import de.uniba.wiai.lspi.chord.data.ID;
+import de.uniba.wiai.lspi.chord.data.URL;
+
+/**
+ * Remote node with a one byte ID, which answers every invocation at once or, while {@link #failure} is set, throws it.
+ */
+final class TestNode extends Node {
+
+	/**
+	 * Exception thrown by every invocation; <code>null</code> if invocations succeed.
+	 */
+	volatile CommunicationException failure = null;
+
+	TestNode(int id1) {
+		this.id = new ID(new byte[] { (byte) id1 });
+		try {
+			this.url = new URL(URL.KNOWN_PROTOCOLS.get(URL.LOCAL_PROTOCOL) + "://node" + id1 + "/");
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private void invoke() throws CommunicationException {
+		CommunicationException e = this.failure;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	@Override
+	public void ping() throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public Node findSuccessor(ID key) throws CommunicationException {
+		this.invoke();
+		return this;
+	}
+
+	@Override
+	public List<Node> notify(Node potentialPredecessor) throws CommunicationException {
+		this.invoke();
+		return new LinkedList<Node>();
+	}
+
+	@Override
+	public ReferencesAndEntries notifyAndCopyEntries(Node potentialPredecessor) throws CommunicationException {
+		this.invoke();
+		return new ReferencesAndEntries(new LinkedList<Node>(), new HashSet<Entry>());
+	}
+
+	@Override
+	public void insertEntry(Entry entryToInsert) throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public void insertReplicas(Set<Entry> entries) throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public void removeEntry(Entry entryToRemove) throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public void removeReplicas(ID sendingNode, Set<Entry> replicasToRemove) throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public Set<Entry> retrieveEntries(ID key) throws CommunicationException {
+		this.invoke();
+		return Collections.emptySet();
+	}
+
+	@Override
+	public void leavesNetwork(Node predecessor) throws CommunicationException {
+		this.invoke();
+	}
+
+	@Override
+	public void disconnect() {
+		// nothing to close
+	}
+
+	@Override
+	public String toString() {
+		return "TestNode " + this.id;
+	}
+
+}
@@ -0,0 +1,90 @@
+package de.uniba.wiai.lspi.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link BoundedExecutor} runs at most two tasks at the same time and accepts at most one more.
+ */
+public class BoundedExecutorTest {
+
+	private static final int THREADS = 2;
+
+	private final BoundedExecutor executor = new BoundedExecutor(Executors.newCachedThreadPool(), THREADS, 1);
+
+	private final CountDownLatch released = new CountDownLatch(1);
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicInteger started = new AtomicInteger();
+
+	private final Runnable task = new Runnable() {
+		public void run() {
+			BoundedExecutorTest.this.started.incrementAndGet();
+			BoundedExecutorTest.this.running.incrementAndGet();
+			try {
+				BoundedExecutorTest.this.released.await();
+			} catch (InterruptedException e) {
+				// finish
+			}
+			BoundedExecutorTest.this.running.decrementAndGet();
+		}
+	};
+
+	@After
+	public void shutdown() {
+		this.released.countDown();
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void boundsRunningAndWaitingTasks() throws InterruptedException {
+		for (int i = 0; i < THREADS + 1; i++) {
+			this.executor.execute(this.task);
+		}
+		try {
+			this.executor.execute(this.task);
+			fail("Task beyond the bound has been accepted");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		Thread.sleep(200);
+		assertEquals(THREADS, this.started.get());
+
+		this.released.countDown();
+		this.executor.shutdown();
+		assertTrue(this.executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(THREADS + 1, this.started.get());
+		assertEquals(0, this.running.get());
+	}
+
+	@Test
+	public void unboundedExecutorAcceptsAllTasks() throws InterruptedException {
+		BoundedExecutor unbounded = new BoundedExecutor(Executors.newCachedThreadPool(), THREADS, BoundedExecutor.UNBOUNDED);
+		try {
+			for (int i = 0; i < 10; i++) {
+				unbounded.execute(this.task);
+			}
+			Thread.sleep(200);
+			assertEquals(THREADS, this.started.get());
+			assertFalse(unbounded.isShutdown());
+		} finally {
+			this.released.countDown();
+			unbounded.shutdown();
+		}
+		assertTrue(unbounded.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(10, this.started.get());
+	}
+
+}